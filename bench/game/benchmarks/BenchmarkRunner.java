@@ -0,0 +1,34 @@
+package game.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run all benchmarks with the GC profiler, which reports the allocations per operation next to
+ * the throughput. The benchmarks have to be started from the project root, such that the card
+ * database can be found.
+ * 
+ * Usage: BenchmarkRunner [regex]
+ */
+public class BenchmarkRunner {
+	
+	/**
+	 * The location of the card database, relative to the project root.
+	 */
+	public static final String CARDS_DB = "src/game/cards/db_cards.txt";
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "game\\..*Benchmark";
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.warmupIterations(3)
+				.measurementIterations(5)
+				.forks(1)
+				.build();
+		new Runner(options).run();
+	}
+}
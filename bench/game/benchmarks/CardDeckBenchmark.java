@@ -0,0 +1,45 @@
+package game.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import game.cards.CardsParser;
+import game.helpers.Card;
+import game.helpers.CardDeck;
+
+/**
+ * Benchmarks of drawing cards from the deck. Every drawn card is returned to the deck, such that
+ * the deck stays in a steady state over all invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardDeckBenchmark {
+	
+	@Param({"1", "2", "4"})
+	public int numberCards;
+	
+	private CardDeck deck;
+	
+	@Setup
+	public void setup() {
+		Set<Card> cards = new CardsParser(BenchmarkRunner.CARDS_DB).getCards();
+		this.deck = new CardDeck(cards, BenchmarkRunner.CARDS_DB);
+	}
+	
+	@Benchmark
+	public Set<Card> drawCard() {
+		Set<Card> cards = this.deck.drawCard(this.numberCards);
+		this.deck.returnCards(cards);
+		return cards;
+	}
+}
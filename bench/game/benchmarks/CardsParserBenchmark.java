@@ -0,0 +1,53 @@
+package game.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import game.cards.CardCatalog;
+import game.cards.CardCatalogFile;
+import game.cards.CardsParser;
+import game.helpers.Card;
+
+/**
+ * Benchmark of reading and parsing the card database, as text and as precompiled binary catalog.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CardsParserBenchmark {
+	
+	@Setup
+	public void setup() throws IOException {
+		this.binary = Files.createTempFile("db_cards", CardCatalogFile.EXTENSION);
+		CardCatalogFile.write(new CardsParser(BenchmarkRunner.CARDS_DB).getCatalog(), this.binary);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(this.binary);
+	}
+	
+	private Path binary;
+	
+	@Benchmark
+	public Set<Card> getCards() {
+		return new CardsParser(BenchmarkRunner.CARDS_DB).getCards();
+	}
+	
+	@Benchmark
+	public CardCatalog readBinary() throws IOException {
+		return CardCatalogFile.read(this.binary);
+	}
+}
@@ -0,0 +1,64 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.helpers.Character;
+import game.helpers.CharacterDeck;
+
+/**
+ * Benchmarks of the character deck. Popping characters drains the deck, so every benchmark that
+ * pops characters also resets the available characters first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CharacterDeckBenchmark {
+	
+	private CharacterDeck deck;
+	
+	@Setup
+	public void setup() {
+		this.deck = new CharacterDeck(null);
+	}
+	
+	@Benchmark
+	public void resetAvailableChars() {
+		this.deck.resetAvailableChars();
+	}
+	
+	@Benchmark
+	public Character popChar() {
+		this.deck.resetAvailableChars();
+		return this.deck.popChar();
+	}
+	
+	@Benchmark
+	public Character popCharNoKing() {
+		this.deck.resetAvailableChars();
+		return this.deck.popCharNoKing();
+	}
+	
+	@Benchmark
+	public void popAllChars(Blackhole blackhole) {
+		this.deck.resetAvailableChars();
+		for (int i = 0; i < 8; i++) {
+			blackhole.consume(this.deck.popChar());
+		}
+	}
+	
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (Character character : this.deck) {
+			blackhole.consume(character);
+		}
+	}
+}
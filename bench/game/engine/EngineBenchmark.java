@@ -0,0 +1,93 @@
+package game.engine;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import game.benchmarks.BenchmarkRunner;
+import game.cards.CardsParser;
+import game.helpers.Card;
+import game.player.BotPlayer;
+import game.player.Player;
+
+/**
+ * Benchmarks of the engine. This class lives in the package of the engine, such that it can
+ * measure the package private validation methods directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EngineBenchmark {
+	
+	@Param({"2", "4", "7"})
+	public int numberPlayers;
+	
+	/**
+	 * The parsed card database, shared by all engines of this benchmark.
+	 */
+	private Set<Card> cards;
+	
+	/**
+	 * An engine waiting for the build of the active player, who tries to build his cheapest card.
+	 */
+	private Engine buildEngine;
+	
+	private Set<Card> build;
+	
+	@Setup
+	public void setup() {
+		this.cards = new CardsParser(BenchmarkRunner.CARDS_DB).getCards();
+		this.buildEngine = this.newEngine(new Random(0));
+		this.buildEngine.begin();
+		while (this.buildEngine.getPhase() != Phase.BUILD) {
+			this.buildEngine.step();
+		}
+		Card cheapest = null;
+		for (Card card : this.buildEngine.getCards(this.buildEngine.getAwaitedPlayer())) {
+			if ((cheapest == null) || (card.cost < cheapest.cost)) {
+				cheapest = card;
+			}
+		}
+		this.build = new HashSet<Card>(1);
+		if (cheapest != null) {
+			this.build.add(cheapest);
+		}
+	}
+	
+	private Engine newEngine(Random random) {
+		Set<Player> players = new HashSet<Player>(this.numberPlayers);
+		for (int i = 0; i < this.numberPlayers; i++) {
+			players.add(new BotPlayer(random));
+		}
+		return new Engine(players, this.cards, null);
+	}
+	
+	@Benchmark
+	public boolean isValidBuild() {
+		return this.buildEngine.isValidBuild(this.buildEngine.getAwaitedPlayer(), this.build);
+	}
+	
+	/**
+	 * Play the first complete round of a fresh game between scripted bot players, including the
+	 * creation of the engine. The round stops early if the game ends in it.
+	 */
+	@Benchmark
+	public Engine playRound() {
+		Engine engine = this.newEngine(new Random(42));
+		engine.begin();
+		while ((engine.getRound() < 2) && (engine.getPhase() != Phase.ENDED)) {
+			engine.step();
+		}
+		return engine;
+	}
+}
@@ -0,0 +1,94 @@
+package game.engine;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import game.benchmarks.BenchmarkRunner;
+import game.cards.CardsParser;
+import game.helpers.Card;
+import game.player.BotPlayer;
+import game.player.Player;
+
+/**
+ * Benchmarks of the game state: copying a state, listing the legal builds of a position and
+ * playing random moves on a copy as a search does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameStateBenchmark {
+	
+	@Param({"2", "4", "7"})
+	public int numberPlayers;
+	
+	/**
+	 * The state of a game between bot players at the start of its third round.
+	 */
+	private GameState state;
+	
+	/**
+	 * The state of the same game when a player is about to build for the first time.
+	 */
+	private GameState buildState;
+	
+	private final MoveGenerator generator = new MoveGenerator();
+	
+	private long seed;
+	
+	@Setup
+	public void setup() {
+		Set<Card> cards = new CardsParser(BenchmarkRunner.CARDS_DB).getCards();
+		Random random = new Random(0);
+		Set<Player> players = new HashSet<Player>(this.numberPlayers);
+		for (int i = 0; i < this.numberPlayers; i++) {
+			players.add(new BotPlayer(random));
+		}
+		Engine engine = new Engine(players, cards, null, 0);
+		engine.begin();
+		while (engine.getPhase() != Phase.BUILD) {
+			engine.step();
+		}
+		this.buildState = engine.getState(0);
+		while (engine.getRound() < 3) {
+			engine.step();
+		}
+		this.state = engine.getState(0);
+	}
+	
+	@Benchmark
+	public GameState copy() {
+		return this.state.copy();
+	}
+	
+	@Benchmark
+	public int generateBuildMoves() {
+		return this.generator.generate(this.buildState);
+	}
+	
+	/**
+	 * Copy the state, guess the hidden information for the first player and play random moves
+	 * until the end of the round.
+	 */
+	@Benchmark
+	public GameState rollout() {
+		GameState result = this.state.copy();
+		result.setSeed(++this.seed);
+		result.determinize(0);
+		int round = result.getRound();
+		while (!result.isEnded() && (result.getRound() == round)) {
+			result.apply(this.generator.getMove(result.nextInt(this.generator.generate(result))));
+		}
+		return result;
+	}
+}
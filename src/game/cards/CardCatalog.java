@@ -0,0 +1,301 @@
+package game.cards;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import game.helpers.Card;
+
+/**
+ * An immutable catalog of cards. Every different card of the catalog has a dense type id, every
+ * physical copy of a card has a dense instance id. The cards of a catalog are created once and
+ * shared by everything that uses the catalog, such that the engine and the decks can refer to
+ * cards by their ids and compare card types by their type ids.
+ */
+public class CardCatalog {
+	
+	/**
+	 * Create a new catalog with the given multiplicity of each type of card. The instance ids are
+	 * assigned in the order of the given types.
+	 * 
+	 * @param types				A list of cards, one for each type. The ids of these cards are
+	 * 							ignored.
+	 * @param multiplicities	An array containing the number of copies of each type of card.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 							If the catalog would contain more than MAX_CARDS cards.
+	 */
+	public CardCatalog(List<Card> types, int[] multiplicities) {
+		int numberCards = 0;
+		for (int multiplicity : multiplicities) {
+			numberCards += multiplicity;
+		}
+		CardCatalog.checkNumberCards(numberCards);
+		this.cards = new Card[numberCards];
+		this.types = new Card[types.size()];
+		this.multiplicities = multiplicities.clone();
+		int id = 0;
+		for (int typeId = 0; typeId < types.size(); typeId++) {
+			Card type = types.get(typeId);
+			for (int j = 0; j < multiplicities[typeId]; j++) {
+				this.cards[id] = new Card(id, typeId, type.cost, type.points, type.color, type.name, type.text);
+				if (j == 0) {
+					this.types[typeId] = this.cards[id];
+				}
+				id ++;
+			}
+			if (this.types[typeId] == null) {
+				this.types[typeId] = new Card(-1, typeId, type.cost, type.points, type.color, type.name, type.text);
+			}
+		}
+		this.cardSet = this.initializeCardSet();
+		this.cardIds = new int[this.cards.length];
+		for (int i = 0; i < this.cardIds.length; i++) {
+			this.cardIds[i] = i;
+		}
+	}
+	
+	/**
+	 * Create a catalog from cards that already have consistent ids.
+	 */
+	private CardCatalog(Card[] cards, Card[] types, int[] multiplicities) {
+		this.cards = cards;
+		this.types = types;
+		this.multiplicities = multiplicities;
+		this.cardSet = this.initializeCardSet();
+		this.cardIds = new int[this.cards.length];
+		for (int i = 0; i < this.cardIds.length; i++) {
+			this.cardIds[i] = i;
+		}
+	}
+	
+	/**
+	 * This method returns a catalog containing the given cards. If the given cards already have
+	 * consistent instance and type ids, the catalog will contain the given card objects. Otherwise
+	 * a new catalog is created in which cards with the same name are of the same type.
+	 * 
+	 * @param cards	A collection of cards.
+	 * 
+	 * @return		A catalog containing the given cards.
+	 */
+	public static CardCatalog of(Collection<Card> cards) {
+		CardCatalog catalog = CardCatalog.wrap(cards);
+		if (catalog != null) {
+			return catalog;
+		}
+		List<Card> types = new ArrayList<Card>();
+		List<Integer> multiplicities = new ArrayList<Integer>();
+		Map<String, Integer> typeIds = new HashMap<String, Integer>();
+		for (Card card : cards) {
+			Integer typeId = typeIds.get(card.name);
+			if (typeId == null) {
+				typeIds.put(card.name, types.size());
+				types.add(card);
+				multiplicities.add(1);
+			}
+			else {
+				multiplicities.set(typeId, multiplicities.get(typeId) + 1);
+			}
+		}
+		int[] result = new int[multiplicities.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = multiplicities.get(i);
+		}
+		return new CardCatalog(types, result);
+	}
+	
+	/**
+	 * This method returns a catalog with the given card objects, or the null object if their ids
+	 * are not consistent.
+	 */
+	private static CardCatalog wrap(Collection<Card> cards) {
+		CardCatalog.checkNumberCards(cards.size());
+		Card[] byId = new Card[cards.size()];
+		int numberTypes = 0;
+		for (Card card : cards) {
+			if ((card.id < 0) || (card.id >= byId.length) || (byId[card.id] != null) || (card.typeId < 0)) {
+				return null;
+			}
+			byId[card.id] = card;
+			numberTypes = Math.max(numberTypes, card.typeId + 1);
+		}
+		Card[] types = new Card[numberTypes];
+		int[] multiplicities = new int[numberTypes];
+		for (Card card : byId) {
+			if (types[card.typeId] == null) {
+				types[card.typeId] = card;
+			}
+			else if (!types[card.typeId].name.equals(card.name)) {
+				return null;
+			}
+			multiplicities[card.typeId] ++;
+		}
+		for (Card type : types) {
+			if (type == null) {
+				return null;
+			}
+		}
+		return new CardCatalog(byId, types, multiplicities);
+	}
+	
+	/**
+	 * This method returns the standard catalog, which is loaded only once and shared by all games.
+	 * The database is read from the file given by the system property machiavelli.cards if it is
+	 * set, otherwise from the resource game/cards/db_cards.mcdb or game/cards/db_cards.txt on the
+	 * classpath. Files with the extension .mcdb are read as precompiled binary catalogs, see
+	 * CardCatalogFile.
+	 * 
+	 * @return	The standard card catalog.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If the card database cannot be found or read.
+	 */
+	public static CardCatalog getDefault() {
+		return DefaultCatalogHolder.CATALOG;
+	}
+	
+	/**
+	 * The standard catalog is loaded when this class is first used, which the JVM guarantees to
+	 * happen exactly once.
+	 */
+	private static class DefaultCatalogHolder {
+		
+		private static final CardCatalog CATALOG = CardCatalog.loadDefault();
+	}
+	
+	/**
+	 * The system property that can be used to configure the location of the card database.
+	 */
+	public static final String DATABASE_PROPERTY = "machiavelli.cards";
+	
+	private static final String DATABASE_RESOURCE = "db_cards";
+	
+	private static CardCatalog loadDefault() {
+		String fileName = System.getProperty(CardCatalog.DATABASE_PROPERTY);
+		try {
+			if (fileName != null) {
+				if (!new File(fileName).isFile()) {
+					throw new IllegalStateException("Card database not found: ".concat(fileName));
+				}
+				if (fileName.endsWith(CardCatalogFile.EXTENSION)) {
+					return CardCatalogFile.read(Paths.get(fileName));
+				}
+				return new CardsParser(fileName).getCatalog();
+			}
+			InputStream input = CardCatalog.class.getResourceAsStream(CardCatalog.DATABASE_RESOURCE.concat(CardCatalogFile.EXTENSION));
+			if (input != null) {
+				return CardCatalogFile.read(input);
+			}
+			input = CardCatalog.class.getResourceAsStream(CardCatalog.DATABASE_RESOURCE.concat(".txt"));
+			if (input == null) {
+				throw new IllegalStateException("Card database not found on the classpath: ".concat(CardCatalog.DATABASE_RESOURCE));
+			}
+			return new CardsParser(input).getCatalog();
+		} catch (IOException e) {
+			throw new IllegalStateException("Card database cannot be read", e);
+		}
+	}
+	
+	private static void checkNumberCards(int numberCards) {
+		if (numberCards > CardCatalog.MAX_CARDS) {
+			throw new IllegalArgumentException("A card catalog can contain at most ".concat(Integer.toString(CardCatalog.MAX_CARDS)).concat(" cards"));
+		}
+	}
+	
+	/**
+	 * The maximum number of cards in a catalog, such that a set of cards fits in a CardSet.
+	 */
+	public static final int MAX_CARDS = 128;
+	
+	private Set<Card> initializeCardSet() {
+		Set<Card> result = new LinkedHashSet<Card>(2 * this.cards.length);
+		for (Card card : this.cards) {
+			result.add(card);
+		}
+		return Collections.unmodifiableSet(result);
+	}
+	
+	/**
+	 * All cards of this catalog, indexed by their instance id.
+	 */
+	private final Card[] cards;
+	
+	/**
+	 * One card of each type, indexed by the type id.
+	 */
+	private final Card[] types;
+	
+	private final int[] multiplicities;
+	
+	private final Set<Card> cardSet;
+	
+	private final int[] cardIds;
+	
+	public int getNumberCards() {
+		return this.cards.length;
+	}
+	
+	public int getNumberTypes() {
+		return this.types.length;
+	}
+	
+	/**
+	 * This method returns the card with the given instance id.
+	 * 
+	 * @param id	An integer representing the instance id of the card.
+	 * 
+	 * @return		The card with the given instance id.
+	 */
+	public Card getCard(int id) {
+		return this.cards[id];
+	}
+	
+	/**
+	 * This method returns a card of the given type.
+	 * 
+	 * @param typeId	An integer representing the type id of the card.
+	 * 
+	 * @return			A card of the given type.
+	 */
+	public Card getType(int typeId) {
+		return this.types[typeId];
+	}
+	
+	/**
+	 * This method returns the number of copies of the given type of card in this catalog.
+	 * 
+	 * @param typeId	An integer representing the type id of the card.
+	 * 
+	 * @return			The number of cards of the given type.
+	 */
+	public int getMultiplicity(int typeId) {
+		return this.multiplicities[typeId];
+	}
+	
+	/**
+	 * This method returns all cards of this catalog.
+	 * 
+	 * @return	An unmodifiable set containing all cards, in the order of their instance ids.
+	 */
+	public Set<Card> getCards() {
+		return this.cardSet;
+	}
+	
+	/**
+	 * This method returns the instance ids of all cards of this catalog.
+	 * 
+	 * @return	A new array containing the instance ids, in increasing order.
+	 */
+	public int[] getCardIds() {
+		return this.cardIds.clone();
+	}
+}
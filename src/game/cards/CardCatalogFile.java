@@ -0,0 +1,263 @@
+package game.cards;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.helpers.Card;
+import game.helpers.CardColor;
+
+/**
+ * The precompiled binary format of a card database. The text database is compiled once with the
+ * main method of this class, after which the catalog can be loaded without any parsing.
+ *
+ * A file consists of a header, one fixed-size record for each type of card and a table of
+ * interned strings. All numbers are big-endian.
+ *
+ * 	header:	magic (int), version (short), number of types (short), number of strings (int),
+ * 			offset of the string table (int), length of the file (int)
+ * 	record:	name string (int), text string (int), cost (byte), points (byte), color (byte),
+ * 			multitude (byte)
+ * 	table:	for every string its offset in the string data (int) and its length (int), followed
+ * 			by the UTF-8 encoded string data
+ *
+ * Equal strings, such as the empty text of most cards, are stored once.
+ */
+public class CardCatalogFile {
+	
+	/**
+	 * Compile a text database into a binary catalog file.
+	 * 
+	 * @param args	The text database and the binary file to be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: CardCatalogFile <text database> <binary catalog>");
+			return;
+		}
+		CardCatalog catalog = new CardsParser(args[0]).getCatalog();
+		CardCatalogFile.write(catalog, Paths.get(args[1]));
+		System.out.println("Compiled ".concat(Integer.toString(catalog.getNumberTypes())).concat(" types, ").concat(Integer.toString(catalog.getNumberCards())).concat(" cards to ").concat(args[1]));
+	}
+	
+	/**
+	 * The first four bytes of a binary catalog file, "MCDB".
+	 */
+	public static final int MAGIC = 0x4D434442;
+	
+	public static final short VERSION = 1;
+	
+	/**
+	 * The file extension of binary catalog files.
+	 */
+	public static final String EXTENSION = ".mcdb";
+	
+	private static final int HEADER_SIZE = 20;
+	
+	private static final int RECORD_SIZE = 12;
+	
+	private static final int STRING_ENTRY_SIZE = 8;
+	
+	/**
+	 * This method writes the given catalog to the given file in the binary format.
+	 * 
+	 * @param catalog	The catalog to be written.
+	 * @param path		The file to be written.
+	 * 
+	 * @throws IOException
+	 * 			If the file cannot be written.
+	 */
+	public static void write(CardCatalog catalog, Path path) throws IOException {
+		Files.write(path, CardCatalogFile.toBytes(catalog));
+	}
+	
+	/**
+	 * This method returns the binary representation of the given catalog.
+	 * 
+	 * @param catalog	The catalog to be compiled.
+	 * 
+	 * @return			An array containing the binary catalog file.
+	 */
+	public static byte[] toBytes(CardCatalog catalog) {
+		int numberTypes = catalog.getNumberTypes();
+		List<byte[]> strings = new ArrayList<byte[]>();
+		Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+		int[] nameStrings = new int[numberTypes];
+		int[] textStrings = new int[numberTypes];
+		int stringDataLength = 0;
+		for (int typeId = 0; typeId < numberTypes; typeId++) {
+			Card type = catalog.getType(typeId);
+			nameStrings[typeId] = CardCatalogFile.intern(type.name, strings, stringIndexes);
+			textStrings[typeId] = CardCatalogFile.intern(type.text, strings, stringIndexes);
+		}
+		for (byte[] string : strings) {
+			stringDataLength += string.length;
+		}
+		int stringTableOffset = CardCatalogFile.HEADER_SIZE + numberTypes * CardCatalogFile.RECORD_SIZE;
+		int length = stringTableOffset + strings.size() * CardCatalogFile.STRING_ENTRY_SIZE + stringDataLength;
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putInt(CardCatalogFile.MAGIC);
+		buffer.putShort(CardCatalogFile.VERSION);
+		buffer.putShort((short) numberTypes);
+		buffer.putInt(strings.size());
+		buffer.putInt(stringTableOffset);
+		buffer.putInt(length);
+		for (int typeId = 0; typeId < numberTypes; typeId++) {
+			Card type = catalog.getType(typeId);
+			buffer.putInt(nameStrings[typeId]);
+			buffer.putInt(textStrings[typeId]);
+			buffer.put((byte) type.cost);
+			buffer.put((byte) type.points);
+			buffer.put((byte) type.color.ordinal());
+			buffer.put((byte) catalog.getMultiplicity(typeId));
+		}
+		int offset = 0;
+		for (byte[] string : strings) {
+			buffer.putInt(offset);
+			buffer.putInt(string.length);
+			offset += string.length;
+		}
+		for (byte[] string : strings) {
+			buffer.put(string);
+		}
+		return buffer.array();
+	}
+	
+	private static int intern(String string, List<byte[]> strings, Map<String, Integer> stringIndexes) {
+		Integer index = stringIndexes.get(string);
+		if (index == null) {
+			index = strings.size();
+			stringIndexes.put(string, index);
+			strings.add(string.getBytes(StandardCharsets.UTF_8));
+		}
+		return index;
+	}
+	
+	/**
+	 * This method loads a catalog from the given binary file. The file is memory-mapped, such that
+	 * it is not copied before it is decoded.
+	 * 
+	 * @param path	The binary catalog file.
+	 * 
+	 * @return		The catalog in the file.
+	 * 
+	 * @throws IOException
+	 * 			If the file cannot be read.
+	 * @throws IllegalArgumentException
+	 * 			If the file is not a valid binary catalog. The message contains the offending record.
+	 */
+	public static CardCatalog read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return CardCatalogFile.read(buffer, path.toString());
+		}
+	}
+	
+	/**
+	 * This method loads a catalog from the given stream in the binary format, for example a
+	 * resource on the classpath. The stream is closed after it has been read.
+	 * 
+	 * @param input	The stream containing the binary catalog.
+	 * 
+	 * @return		The catalog in the stream.
+	 */
+	public static CardCatalog read(InputStream input) throws IOException {
+		try (InputStream stream = input) {
+			return CardCatalogFile.read(ByteBuffer.wrap(stream.readAllBytes()), "<input>");
+		}
+	}
+	
+	/**
+	 * This method decodes a catalog from the given buffer, from its position to its limit.
+	 * 
+	 * @param buffer	The buffer containing the binary catalog. The buffer is not modified.
+	 * @param source	The name of the source of the buffer, used in the error messages.
+	 * 
+	 * @return			The catalog in the buffer.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the buffer does not contain a valid binary catalog.
+	 */
+	public static CardCatalog read(ByteBuffer buffer, String source) {
+		ByteBuffer data = buffer.slice();
+		int length = data.remaining();
+		if (length < CardCatalogFile.HEADER_SIZE) {
+			throw CardCatalogFile.error(source, "file is too short");
+		}
+		if (data.getInt(0) != CardCatalogFile.MAGIC) {
+			throw CardCatalogFile.error(source, "not a binary card catalog");
+		}
+		if (data.getShort(4) != CardCatalogFile.VERSION) {
+			throw CardCatalogFile.error(source, "unsupported version ".concat(Short.toString(data.getShort(4))));
+		}
+		int numberTypes = data.getShort(6) & 0xFFFF;
+		int numberStrings = data.getInt(8);
+		int stringTableOffset = data.getInt(12);
+		if (data.getInt(16) != length) {
+			throw CardCatalogFile.error(source, "file is truncated");
+		}
+		if ((stringTableOffset != CardCatalogFile.HEADER_SIZE + numberTypes * CardCatalogFile.RECORD_SIZE) || (stringTableOffset > length)) {
+			throw CardCatalogFile.error(source, "invalid string table offset");
+		}
+		int stringDataOffset = stringTableOffset + numberStrings * CardCatalogFile.STRING_ENTRY_SIZE;
+		if ((numberStrings < 0) || (numberStrings > (length - stringTableOffset) / CardCatalogFile.STRING_ENTRY_SIZE)) {
+			throw CardCatalogFile.error(source, "invalid number of strings");
+		}
+		String[] strings = new String[numberStrings];
+		for (int i = 0; i < numberStrings; i++) {
+			int entry = stringTableOffset + i * CardCatalogFile.STRING_ENTRY_SIZE;
+			int offset = data.getInt(entry);
+			int stringLength = data.getInt(entry + 4);
+			if ((offset < 0) || (stringLength < 0) || (offset > length - stringDataOffset - stringLength)) {
+				throw CardCatalogFile.error(source, "string ".concat(Integer.toString(i)).concat(" is out of bounds"));
+			}
+			ByteBuffer string = data.duplicate();
+			string.position(stringDataOffset + offset).limit(stringDataOffset + offset + stringLength);
+			strings[i] = StandardCharsets.UTF_8.decode(string).toString();
+		}
+		CardColor[] colors = CardColor.values();
+		List<Card> types = new ArrayList<Card>(numberTypes);
+		int[] multiplicities = new int[numberTypes];
+		int numberCards = 0;
+		for (int typeId = 0; typeId < numberTypes; typeId++) {
+			int record = CardCatalogFile.HEADER_SIZE + typeId * CardCatalogFile.RECORD_SIZE;
+			int name = data.getInt(record);
+			int text = data.getInt(record + 4);
+			int cost = data.get(record + 8) & 0xFF;
+			int points = data.get(record + 9) & 0xFF;
+			int color = data.get(record + 10) & 0xFF;
+			multiplicities[typeId] = data.get(record + 11) & 0xFF;
+			if ((name < 0) || (name >= numberStrings) || (text < 0) || (text >= numberStrings)) {
+				throw CardCatalogFile.recordError(source, typeId, "invalid string index");
+			}
+			if (color >= colors.length) {
+				throw CardCatalogFile.recordError(source, typeId, "unknown color ".concat(Integer.toString(color)));
+			}
+			numberCards += multiplicities[typeId];
+			if (numberCards > CardCatalog.MAX_CARDS) {
+				throw CardCatalogFile.recordError(source, typeId, "more than ".concat(Integer.toString(CardCatalog.MAX_CARDS)).concat(" cards"));
+			}
+			types.add(new Card(cost, points, colors[color], strings[name], strings[text]));
+		}
+		return new CardCatalog(types, multiplicities);
+	}
+	
+	private static IllegalArgumentException error(String source, String message) {
+		return new IllegalArgumentException(source.concat(": ").concat(message));
+	}
+	
+	private static IllegalArgumentException recordError(String source, int typeId, String message) {
+		return CardCatalogFile.error(source, "record ".concat(Integer.toString(typeId)).concat(": ").concat(message));
+	}
+}
@@ -2,8 +2,9 @@ package game.cards;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
@@ -15,41 +16,145 @@ public class CardsParser {
 	
 	public CardsParser(String fileName) {
 		this.fileName = fileName;
+		this.input = null;
+	}
+	
+	/**
+	 * Create a parser that reads the database from the given stream, for example a resource on the
+	 * classpath. The stream is closed after it has been read.
+	 * 
+	 * @param input	The stream containing the database.
+	 */
+	public CardsParser(InputStream input) {
+		this.fileName = null;
+		this.input = input;
 	}
 	
 	private final String fileName;
 	
+	private final InputStream input;
+	
 	/**
 	 * This method returns a set of all cards available in the database, according the correct
 	 * multitudes.
 	 * 
-	 * @return	A set of cards that is available in the database.
+	 * @return	A set of cards that is available in the database. The set iterates over the cards in
+	 * 			the order of the database.
 	 */
 	public Set<Card> getCards() {
+		return new LinkedHashSet<Card>(this.getCatalog().getCards());
+	}
+	
+	/**
+	 * This method returns a catalog of all cards in the database. Every card in the database is a
+	 * type of the catalog, with the multitude of the database. A card is described by six lines:
+	 * its name, points, cost, color, text and multitude. Cards are separated by empty lines.
+	 * 
+	 * @return	A card catalog containing the cards in the database.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the database cannot be read or contains a malformed card. The message contains
+	 * 			the line number of the error.
+	 */
+	public CardCatalog getCatalog() {
 		List<String> lines = this.getLines();
-		int numberCards = lines.size()/7;
-		Set<Card> result = new HashSet<Card>();
-		for (int i = 0; i < numberCards; i++) {
-			String name = lines.get(i*7);
-			int points = Integer.parseInt(lines.get(i*7+1));
-			int cost = Integer.parseInt(lines.get(i*7+2));
-			CardColor color = CardColor.getColor(lines.get(i*7+3));
-			String text = lines.get(i*7+4);
-			int mult = Integer.parseInt(lines.get(i*7+5));
-			for (int j = 0; j < mult; j++) {
-				result.add(new Card(cost, points, color, name, text));
+		List<Card> types = new ArrayList<Card>();
+		List<Integer> multiplicities = new ArrayList<Integer>();
+		int line = 0;
+		while (line < lines.size()) {
+			if (lines.get(line).trim().isEmpty()) {
+				line ++;
+				continue;
+			}
+			if (line + CardsParser.RECORD_LINES > lines.size()) {
+				throw this.error(line, "incomplete card, expected ".concat(Integer.toString(CardsParser.RECORD_LINES)).concat(" lines"));
+			}
+			String name = lines.get(line);
+			int points = this.parseNumber(lines, line + 1, "points", CardsParser.MAX_VALUE);
+			int cost = this.parseNumber(lines, line + 2, "cost", CardsParser.MAX_VALUE);
+			CardColor color = CardColor.getColor(lines.get(line + 3).trim());
+			if (color == null) {
+				throw this.error(line + 3, "unknown color '".concat(lines.get(line + 3)).concat("'"));
 			}
+			String text = lines.get(line + 4);
+			int multiplicity = this.parseNumber(lines, line + 5, "multitude", CardCatalog.MAX_CARDS);
+			int next = line + CardsParser.RECORD_LINES;
+			if ((next < lines.size()) && !lines.get(next).trim().isEmpty()) {
+				throw this.error(next, "expected an empty line after card '".concat(name).concat("'"));
+			}
+			types.add(new Card(cost, points, color, name, text));
+			multiplicities.add(multiplicity);
+			line = next;
+		}
+		int[] result = new int[multiplicities.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = multiplicities.get(i);
+		}
+		return new CardCatalog(types, result);
+	}
+	
+	/**
+	 * The number of lines describing one card.
+	 */
+	private static final int RECORD_LINES = 6;
+	
+	/**
+	 * The maximum points and cost of a card.
+	 */
+	public static final int MAX_VALUE = 255;
+	
+	/**
+	 * This method parses the given line as a number between zero and the given maximum.
+	 * 
+	 * @param lines	The lines of the database.
+	 * @param line	The index of the line to be parsed.
+	 * @param field	The name of the field on the line, used in the error message.
+	 * @param max	The maximum value of the field.
+	 * 
+	 * @return		The parsed number.
+	 */
+	private int parseNumber(List<String> lines, int line, String field, int max) {
+		int result;
+		try {
+			result = Integer.parseInt(lines.get(line).trim());
+		} catch (NumberFormatException e) {
+			throw this.error(line, field.concat(" is not a number: '").concat(lines.get(line)).concat("'"));
+		}
+		if ((result < 0) || (result > max)) {
+			throw this.error(line, field.concat(" must be between 0 and ").concat(Integer.toString(max)).concat(": ").concat(Integer.toString(result)));
 		}
 		return result;
 	}
 	
+	/**
+	 * This method returns an exception for an error on the given line of the database.
+	 * 
+	 * @param line		The index of the line with the error, starting from zero.
+	 * @param message	The description of the error.
+	 */
+	private IllegalArgumentException error(int line, String message) {
+		return new IllegalArgumentException(this.getSourceName().concat(":").concat(Integer.toString(line + 1)).concat(": ").concat(message));
+	}
+	
+	private String getSourceName() {
+		if (this.fileName == null) {
+			return "<input>";
+		}
+		return this.fileName;
+	}
+	
 	private List<String> getLines() {
-		File file = new File(this.fileName);
-		Scanner scanner = null;
-		try {
-			scanner = new Scanner(file);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+		Scanner scanner;
+		if (this.input != null) {
+			scanner = new Scanner(this.input, "UTF-8");
+		}
+		else {
+			File file = new File(this.fileName);
+			try {
+				scanner = new Scanner(file, "UTF-8");
+			} catch (FileNotFoundException e) {
+				throw new IllegalArgumentException("Card database not found: ".concat(this.fileName), e);
+			}
 		}
 		ArrayList<String> result = new ArrayList<String>();
 		while (scanner.hasNextLine()) {
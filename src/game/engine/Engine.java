@@ -1,35 +1,67 @@
 package game.engine;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
+import game.cards.CardCatalog;
 import game.helpers.Character;
 import game.helpers.Card;
 import game.helpers.CharacterDeck;
 import game.helpers.Revenue;
 import game.helpers.charMove.CharMove;
+import game.player.GameDelta;
 import game.player.Player;
 import game.helpers.CardDeck;
+import game.helpers.CardSet;
 
 public class Engine {
 	
 	/**
-	 * This constructor generates a new engine to play the Machiavelli game.
+	 * This constructor generates a new engine to play the Machiavelli game, with a random seed.
 	 * 
 	 * @param numberPlayers	Integer containing the number of players.
 	 * @param cards			A set of cards to play this game. Provide null if the standard deck is to be used.
 	 * @param characters	A set of characters to play this game. Provide null if the standard set of characters is to be used.
 	 */
 	public Engine(Set<Player> players, Set<Card> cards, Set<Character> characters) {
+		this(players, cards, characters, new Random().nextLong());
+	}
+	
+	/**
+	 * This constructor generates a new engine to play the Machiavelli game. All random decisions
+	 * of the engine are taken by one random generator initialized with the given seed. Two games
+	 * with the same seed, the same set of cards and the same inputs of the players are therefore
+	 * identical.
+	 * 
+	 * @param numberPlayers	Integer containing the number of players.
+	 * @param cards			A set of cards to play this game. Provide null if the standard deck is to be used.
+	 * 						The iteration order of the set has to be deterministic for a game to be
+	 * 						reproducible. Cards without ids are replaced by new cards of a catalog,
+	 * 						see getCatalog().
+	 * @param characters	A set of characters to play this game. Provide null if the standard set of characters is to be used.
+	 * @param seed			The seed of the random generator of this game.
+	 */
+	public Engine(Set<Player> players, Set<Card> cards, Set<Character> characters, long seed) {
+		this.seed = seed;
+		this.random = new Random(seed);
 		this.numberPlayers = players.size();
 		this.players = this.initializePlayers(players);
-		this.characterDeck = new CharacterDeck(characters);
-		this.cardDeck = new CardDeck(cards, "src/game/cards/db_cards.txt");
+		this.characterDeck = new CharacterDeck(characters, this.random);
+		if (cards == null) {
+			this.catalog = CardCatalog.getDefault();
+		}
+		else {
+			this.catalog = CardCatalog.of(cards);
+		}
+		this.characters = characters;
+		this.cardDeck = new CardDeck(this.catalog, this.random);
+		this.askedBuildingCoins = new CardSet(this.catalog);
 		this.initializeChosenChars();
 	}
 	
@@ -45,7 +77,7 @@ public class Engine {
 	private List<Player> initializePlayers(Set<Player> players) {
 		List<Player> result = new ArrayList<Player>(this.numberPlayers);
 		for (int i = 0; i < this.numberPlayers; i ++) {
-			int item = new Random().nextInt(this.numberPlayers-i);
+			int item = this.random.nextInt(this.numberPlayers-i);
 			int j = 0;
 			for (Player player : players) {
 				if (item == j) {
@@ -59,6 +91,74 @@ public class Engine {
 		return result;
 	}
 	
+	/**
+	 * This method returns the seed of the random generator of this game.
+	 * 
+	 * @return	A long containing the seed of this game.
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	private final long seed;
+	
+	/**
+	 * The random generator of this game. All shuffles and draws of the card deck and the character
+	 * deck are done with this generator.
+	 */
+	private final Random random;
+	
+	/**
+	 * This method returns the number of the given player in this game. The numbers are assigned
+	 * in a random order when the engine is created.
+	 * 
+	 * @param player	A player of this game.
+	 * 
+	 * @return			An integer representing the player, or -1 if the player does not
+	 * 					participate in this game.
+	 */
+	public int getPlayerNumber(Player player) {
+		return this.players.indexOf(player);
+	}
+	
+	/**
+	 * This method returns the number of players of this game.
+	 * 
+	 * @return	An integer representing the number of players.
+	 */
+	public int getNumberPlayers() {
+		return this.numberPlayers;
+	}
+	
+	/**
+	 * This method returns the set of characters this game was created with.
+	 * 
+	 * @return	The set of characters of this game, or the null object for the standard set.
+	 */
+	public Set<Character> getCharacters() {
+		return this.characters;
+	}
+	
+	/**
+	 * This method returns the catalog of the cards this game is played with.
+	 * 
+	 * @return	The card catalog of this game.
+	 */
+	public CardCatalog getCatalog() {
+		return this.catalog;
+	}
+	
+	/**
+	 * The catalog of the cards this game is played with. If the game is created with a set of
+	 * cards without ids, the catalog contains new cards with ids.
+	 */
+	private final CardCatalog catalog;
+	
+	/**
+	 * The set of characters this game is played with, or the null object for the standard set.
+	 */
+	private final Set<Character> characters;
+	
 	private final int numberPlayers;
 	
 	private final List<Player> players;
@@ -76,17 +176,18 @@ public class Engine {
 	 * @return			An integer representing the player that has chosen this character.
 	 */
 	private int getCurrentPlayerNumber(Character character) {
-		if (!this.chosenChars.containsKey(character)) {
-			return -1;
-		}
-		return this.chosenChars.get(character);
+		return this.chosenChars[character.number];
 	}
 	
 	private void initializeChosenChars() {
-		this.chosenChars = new HashMap<Character, Integer>(this.numberPlayers);
+		Arrays.fill(this.chosenChars, -1);
 	}
 	
-	private HashMap<Character, Integer> chosenChars;
+	/**
+	 * This array contains for each character the player that has chosen it during this round, or
+	 * -1 if no player has chosen it. The array is indexed by the number of the character.
+	 */
+	private final int[] chosenChars = new int[Character.values().length + 1];
 	
 	/**
 	 * This attribute contains the character that was on top of the character deck and can be chosen
@@ -102,6 +203,7 @@ public class Engine {
 	 */
 	public void setKingPlayer(int kingPlayer) {
 		this.kingPlayer = kingPlayer;
+		this.flushDeltas();
 		for (Player player : this.players) {
 			player.setKing(kingPlayer);
 		}
@@ -123,12 +225,26 @@ public class Engine {
 	 */
 	public void setStolenPlayer(Character stolenChar, int currentPlayerNumber) {
 		int playerStolen = this.getCurrentPlayerNumber(stolenChar);
+		this.stolenChar = stolenChar;
 		this.stolenPlayer = playerStolen;
+		if (this.pendingDelta != null) {
+			if (this.pendingDelta.getStolenChar() != null) {
+				this.flushDeltas();
+			}
+			this.pendingDelta.setStolen(stolenChar, currentPlayerNumber);
+			return;
+		}
 		for (Player player : this.players) {
 			player.setStolen(stolenChar, currentPlayerNumber);
 		}
 	}
 	
+	/**
+	 * This attribute contains the character the thief steals from, or the null object if no player
+	 * is stolen.
+	 */
+	private Character stolenChar;
+	
 	/**
 	 * This attribute contains the player number of the stolen player. It contains the value of -1
 	 * if no player is stolen.
@@ -158,6 +274,13 @@ public class Engine {
 	 */
 	public void setKilledChar(Character killedChar) {
 		this.killedChar = killedChar;
+		if (this.pendingDelta != null) {
+			if (this.pendingDelta.getKilledChar() != null) {
+				this.flushDeltas();
+			}
+			this.pendingDelta.setKilledChar(killedChar);
+			return;
+		}
 		for (Player player : this.players) {
 			player.setKilledChar(killedChar);
 		}
@@ -174,68 +297,586 @@ public class Engine {
 	private Character killedChar = null;
 	
 	/**
-	 * Start the engine!
+	 * Start the engine! This method plays a complete game and only returns when the game has
+	 * ended. Every input of the game is pulled from the players via their getX() methods. If a
+	 * player provides an invalid input, he will be asked again.
 	 */
 	public void start() {
+		this.begin();
+		while (this.phase != Phase.ENDED) {
+			this.step();
+		}
+	}
+	
+	/**
+	 * Pull the input the engine is waiting for from the awaited player and submit it. If the
+	 * player provides an invalid input, the engine keeps waiting and this method has to be invoked
+	 * again. This method has no effect if the game has not started yet or has already ended.
+	 */
+	public void step() {
+		int playerNumber = this.awaitedPlayer;
+		if (playerNumber < 0) {
+			return;
+		}
+		Player player = this.players.get(playerNumber);
+		switch (this.phase) {
+		case CHOOSE_CHAR:
+			this.submit(playerNumber, player.getChosenChar());
+			break;
+		case PUT_AWAY_CHAR:
+			this.submit(playerNumber, player.getPutAwayChar());
+			break;
+		case CHAR_MOVE:
+			this.submit(playerNumber, player.getCharMove());
+			break;
+		case REVENUE:
+			this.submit(playerNumber, player.getRevenue());
+			break;
+		case CHOOSE_CARDS:
+			this.submit(playerNumber, player.getChosenCard());
+			break;
+		case BUILD:
+			this.submit(playerNumber, player.getBuild());
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Start the engine in event driven mode. This method prepares the game and returns as soon as
+	 * the engine waits for the first input of a player. The inputs of the players have to be
+	 * provided via the submit() methods, which also return immediately. The engine never blocks
+	 * and does not own a thread: all methods have to be invoked from one thread at a time.
+	 */
+	public void begin() {
+		if (this.phase != Phase.NOT_STARTED) {
+			return;
+		}
 		this.initializeGame();
-		while (!this.hasEnded()) {
-			this.distributeChars();
-			for (Character character : this.characterDeck) {
-				this.executePlayerTurn(character);
-				
+		this.beginRound();
+		this.flushDeltas();
+	}
+	
+	/**
+	 * This method returns the phase the engine is in, which determines the input it waits for.
+	 * 
+	 * @return	The current phase of this game.
+	 */
+	public Phase getPhase() {
+		return this.phase;
+	}
+	
+	/**
+	 * This attribute contains the phase of the game, the engine is waiting for an input of the
+	 * awaited player in this phase.
+	 */
+	private Phase phase = Phase.NOT_STARTED;
+	
+	/**
+	 * This method returns the player number of the player the engine is waiting for. It returns -1
+	 * if the game has not started yet or has already ended.
+	 * 
+	 * @return	An integer representing the player that has to provide the next input.
+	 */
+	public int getAwaitedPlayer() {
+		return this.awaitedPlayer;
+	}
+	
+	private int awaitedPlayer = -1;
+	
+	/**
+	 * Submit the character chosen or put away by the given player. This input is expected in the
+	 * phases CHOOSE_CHAR and PUT_AWAY_CHAR.
+	 * 
+	 * @param playerNumber	An integer representing the player that provides this input.
+	 * @param character		The character chosen or put away by the given player.
+	 * 
+	 * @return				A boolean stating if the input was accepted. If the input was not
+	 * 						expected or is not valid, it is ignored and the engine keeps waiting.
+	 */
+	public boolean submit(int playerNumber, Character character) {
+		if ((playerNumber != this.awaitedPlayer) || !this.characterDeck.isAvailable(character)) {
+			return false;
+		}
+		if (this.phase == Phase.CHOOSE_CHAR) {
+			this.characterDeck.removeAvailableChar(character);
+			this.chosenChars[character.number] = playerNumber;
+			if ((this.numberPlayers == 2) && !(this.playerIterator.isKing()) && !(this.playerIterator.isLast())) {
+				this.phase = Phase.PUT_AWAY_CHAR;
 			}
+			else {
+				this.nextChooser();
+			}
+			this.recordInput(playerNumber, Phase.CHOOSE_CHAR, character);
+			this.flushDeltas();
+			return true;
+		}
+		if (this.phase == Phase.PUT_AWAY_CHAR) {
+			this.characterDeck.removeAvailableChar(character);
+			this.nextChooser();
+			this.recordInput(playerNumber, Phase.PUT_AWAY_CHAR, character);
+			this.flushDeltas();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Submit the character move of the given player. This input is expected three times during a
+	 * player's turn, in the phase CHAR_MOVE.
+	 * 
+	 * @param playerNumber	An integer representing the player that provides this input.
+	 * @param charMove		The character move played by the given player.
+	 * 
+	 * @return				A boolean stating if the input was accepted.
+	 */
+	public boolean submit(int playerNumber, CharMove charMove) {
+		if ((this.phase != Phase.CHAR_MOVE) || (playerNumber != this.awaitedPlayer)) {
+			return false;
+		}
+		if (!this.isValidCharMove(playerNumber, charMove)) {
+			return false;
+		}
+		this.handleCharMove(playerNumber, charMove);
+		this.recordInput(playerNumber, Phase.CHAR_MOVE, charMove);
+		switch (this.turnStep) {
+		case 0:
+			this.phase = Phase.REVENUE;
+			break;
+		case 1:
+			this.phase = Phase.BUILD;
+			break;
+		default:
+			this.nextTurn();
+			break;
+		}
+		this.flushDeltas();
+		return true;
+	}
+	
+	/**
+	 * Submit the revenue type chosen by the given player. This input is expected in the phase
+	 * REVENUE.
+	 * 
+	 * @param playerNumber	An integer representing the player that provides this input.
+	 * @param revenue		The revenue chosen by the given player.
+	 * 
+	 * @return				A boolean stating if the input was accepted.
+	 */
+	public boolean submit(int playerNumber, Revenue revenue) {
+		if ((this.phase != Phase.REVENUE) || (playerNumber != this.awaitedPlayer) || (revenue == null)) {
+			return false;
+		}
+		this.handleRevenue(playerNumber, revenue);
+		this.recordInput(playerNumber, Phase.REVENUE, revenue);
+		this.flushDeltas();
+		return true;
+	}
+	
+	/**
+	 * Submit a set of cards for the given player. This input is expected in the phase
+	 * CHOOSE_CARDS, where it represents the cards the player keeps from the cards to choose, and
+	 * in the phase BUILD, where it represents the cards the player wants to build.
+	 * 
+	 * @param playerNumber	An integer representing the player that provides this input.
+	 * @param cards			The set of cards chosen by the given player.
+	 * 
+	 * @return				A boolean stating if the input was accepted.
+	 */
+	public boolean submit(int playerNumber, Set<Card> cards) {
+		if (playerNumber != this.awaitedPlayer) {
+			return false;
+		}
+		if (this.phase == Phase.CHOOSE_CARDS) {
+			if (!this.isValidChosenCards(cards)) {
+				return false;
+			}
+			CardSet input = new CardSet(this.catalog, cards);
+			this.handleChosenCards(playerNumber, cards);
+			this.recordInput(playerNumber, Phase.CHOOSE_CARDS, input);
+			this.turnStep = 1;
+			this.phase = Phase.CHAR_MOVE;
+			this.flushDeltas();
+			return true;
+		}
+		if (this.phase == Phase.BUILD) {
+			if (!this.isValidBuild(playerNumber, cards)) {
+				return false;
+			}
+			CardSet input = new CardSet(this.catalog, cards);
+			this.handleBuild(playerNumber, input);
+			this.recordInput(playerNumber, Phase.BUILD, input);
+			this.turnStep = 2;
+			this.phase = Phase.CHAR_MOVE;
+			this.flushDeltas();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Submit an input of the given player, which can be a Character, a CharMove, a Revenue or a set
+	 * of cards. The input is dispatched to the submit() method of its type.
+	 * 
+	 * @param playerNumber	An integer representing the player that provides this input.
+	 * @param input			The input provided by the given player.
+	 * 
+	 * @return				A boolean stating if the input was accepted.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean submitInput(int playerNumber, Object input) {
+		if (input instanceof Character) {
+			return this.submit(playerNumber, (Character) input);
+		}
+		if (input instanceof CharMove) {
+			return this.submit(playerNumber, (CharMove) input);
+		}
+		if (input instanceof Revenue) {
+			return this.submit(playerNumber, (Revenue) input);
+		}
+		if (input instanceof Set) {
+			return this.submit(playerNumber, (Set<Card>) input);
+		}
+		return false;
+	}
+	
+	/**
+	 * Start recording this game. From now on, every accepted input is added to the returned
+	 * record. To be able to replay the complete game, this method has to be invoked before the game
+	 * is started.
+	 * 
+	 * @return	The record of this game.
+	 */
+	public GameRecord startRecording() {
+		if (this.record == null) {
+			this.record = new GameRecord(this.seed, this.numberPlayers, this.catalog.getCards(), this.characters);
 		}
+		return this.record;
 	}
 	
+	/**
+	 * Record the given input and pass it to the listener. An input is only recorded after it has
+	 * been applied, such that an input that fails is never journaled and the record can always be
+	 * replayed.
+	 */
+	private void recordInput(int playerNumber, Phase phase, Object input) {
+		if (this.record != null) {
+			this.record.addInput(playerNumber, input);
+		}
+		if (this.listener != null) {
+			this.listener.inputAccepted(playerNumber, phase, input);
+		}
+	}
+	
+	/**
+	 * The record of this game, or the null object if this game is not recorded.
+	 */
+	private GameRecord record;
+	
+	/**
+	 * This method returns a snapshot of the position of this game, which can be copied and played
+	 * further without affecting this game. The snapshot contains the complete position, including
+	 * the hands of all players, but not the order of the card deck: the cards that are not in a
+	 * hand or a city are shuffled into the deck of the snapshot with its own random generator.
+	 * 
+	 * @param seed	The seed of the random generator of the snapshot.
+	 * 
+	 * @return		A new game state.
+	 */
+	public GameState getState(long seed) {
+		GameState result = new GameState(this.catalog, this.numberPlayers, seed);
+		result.phase = this.phase;
+		result.awaitedPlayer = this.awaitedPlayer;
+		result.round = this.round;
+		result.kingPlayer = this.kingPlayer;
+		if (this.phase == Phase.NOT_STARTED) {
+			result.fillDeck();
+			return result;
+		}
+		for (int i = 0; i < this.numberPlayers; i++) {
+			result.words[GameState.coinsWord(i)] = this.coins[i];
+			GameState.addCards(result.words, GameState.handWord(i), this.cards.get(i));
+			GameState.addCards(result.words, GameState.cityWord(i), this.city.get(i));
+			result.words[GameState.builtWord(i)] = this.builtTypes[2 * i];
+			result.words[GameState.builtWord(i) + 1] = this.builtTypes[2 * i + 1];
+		}
+		if (this.cardsToChoose != null) {
+			long[] toChoose = new long[2];
+			GameState.addCards(toChoose, 0, this.cardsToChoose);
+			result.toChooseLow = toChoose[0];
+			result.toChooseHigh = toChoose[1];
+			result.numberToChoose = this.numberToChoose;
+		}
+		for (Card card : this.askedBuildingCoins) {
+			if (card.id < 64) {
+				result.askedLow |= 1L << card.id;
+			}
+			else {
+				result.askedHigh |= 1L << (card.id - 64);
+			}
+		}
+		result.fillDeck();
+		for (Character character : GameState.CHARACTERS) {
+			if ((this.characters == null) || this.characters.contains(character)) {
+				result.deckChars |= 1 << character.number;
+			}
+			if (this.characterDeck.isAvailable(character)) {
+				result.availableChars |= 1 << character.number;
+			}
+			result.setChooser(character.number, this.chosenChars[character.number]);
+		}
+		for (Character character : this.openChars) {
+			result.openChars |= 1 << character.number;
+		}
+		result.topChar = (this.topChar == null) ? 0 : this.topChar.number;
+		result.killedChar = (this.killedChar == null) ? 0 : this.killedChar.number;
+		result.stolenChar = (this.stolenChar == null) ? 0 : this.stolenChar.number;
+		result.stolenPlayer = this.stolenPlayer;
+		result.thiefPlayer = this.thiefPlayer;
+		result.activeChar = (this.activeChar == null) ? 0 : this.activeChar.number;
+		result.turnStep = this.turnStep;
+		result.charMovePlayed = this.charMovePlayed;
+		result.firstComplete = this.scoreboard.getFirstComplete();
+		result.chooserIndex = this.playerIterator.iter;
+		result.numberChoosers = this.playerIterator.numberIter;
+		result.nextChooser = this.playerIterator.nextPlayer;
+		return result;
+	}
+	
+	/**
+	 * Set the listener that is notified of every accepted input and of the end of this game. To
+	 * notify the listener of all inputs, this method has to be invoked before the game is started.
+	 * 
+	 * @param listener	The listener of this game, or the null object to remove the listener.
+	 */
+	public void setListener(GameListener listener) {
+		this.listener = listener;
+	}
+	
+	private GameListener listener;
+	
+	/**
+	 * Enable or disable the batching of notifications. In batching mode, the changes caused by one
+	 * action are not notified via the individual methods of the players, but gathered in one
+	 * GameDelta per player that is delivered via Player.setDelta() when the action has been
+	 * handled. Notifications that ask a player for an input, such as setCharsToChoose(), are still
+	 * invoked directly, after the pending delta has been delivered.
+	 * 
+	 * @param batching	A boolean stating if the notifications should be batched.
+	 */
+	public void setBatchingDeltas(boolean batching) {
+		this.flushDeltas();
+		if (batching) {
+			this.pendingDelta = new GameDelta(this.numberPlayers);
+		}
+		else {
+			this.pendingDelta = null;
+		}
+	}
+	
+	public boolean isBatchingDeltas() {
+		return this.pendingDelta != null;
+	}
+	
+	/**
+	 * Deliver the changes gathered since the previous delta to all players. Every player receives
+	 * its own copy of the changed hands and cities. This method has no effect if the engine is not
+	 * in batching mode or nothing has changed.
+	 */
+	private void flushDeltas() {
+		if ((this.pendingDelta == null) || (this.pendingDelta.isEmpty() && (this.changedCities == 0))) {
+			return;
+		}
+		Map<Integer, Integer> points = this.changedPoints ? this.scoreboard.getPoints() : null;
+		for (int number = 0; number < this.numberPlayers; number++) {
+			GameDelta delta = new GameDelta(this.pendingDelta);
+			if ((this.changedHands & (1 << number)) != 0) {
+				delta.setCards(new CardSet(this.getCards(number)));
+			}
+			for (int i = 0; i < this.numberPlayers; i++) {
+				if ((this.changedCities & (1 << i)) != 0) {
+					delta.setCity(i, new CardSet(this.city.get(i)));
+				}
+			}
+			this.players.get(number).setDelta(delta);
+			if (points != null) {
+				this.players.get(number).setPoints(points);
+			}
+		}
+		this.pendingDelta = new GameDelta(this.numberPlayers);
+		this.changedHands = 0;
+		this.changedCities = 0;
+		this.changedPoints = false;
+	}
+	
+	/**
+	 * The changes of the current action that have not yet been delivered to the players, or the
+	 * null object if the engine is not in batching mode.
+	 */
+	private GameDelta pendingDelta;
+	
+	/**
+	 * The players whose hand has changed since the previous delta, one bit per player number.
+	 */
+	private int changedHands;
+	
+	/**
+	 * The players whose city has changed since the previous delta, one bit per player number.
+	 */
+	private int changedCities;
+	
+	/**
+	 * This attribute is true if the scores have changed since the previous delta.
+	 */
+	private boolean changedPoints;
+	
 	/**
 	 * This method will check if this game has ended. A game is considered as ended if one or more
-	 * players own 8 or more cards in his city.
+	 * players own 8 or more cards in his city, which the scoreboard knows without looking at the
+	 * cities.
 	 * 
 	 * @return	A boolean containing the value true if this game has ended.
 	 */
 	private boolean hasEnded() {
-		for (int i = 0; i < this.numberPlayers; i++) {
-			if (this.getNumberBuildings(i) >= 8) {
-				return true;
+		return this.scoreboard.isCityComplete();
+	}
+	
+	/**
+	 * This method will notify all players about the final scores of all players and the winner of
+	 * this game, via the methods setPoints() and setWinner().
+	 */
+	private void notifyWinner() {
+		Map<Integer, Integer> points = this.scoreboard.getPoints();
+		int winner = this.scoreboard.getWinner();
+		for (Player player : this.players) {
+			player.setPoints(points);
+			player.setWinner(winner);
+		}
+	}
+	
+	/**
+	 * Start a new round: distribute the characters if the game has not ended yet. Otherwise the
+	 * engine enters the phase ENDED.
+	 */
+	private void beginRound() {
+		if (this.hasEnded()) {
+			this.phase = Phase.ENDED;
+			this.awaitedPlayer = -1;
+			this.flushDeltas();
+			this.notifyWinner();
+			if (this.listener != null) {
+				this.listener.gameEnded();
 			}
+			return;
 		}
-		return false;
+		this.round ++;
+		this.distributeChars();
+	}
+	
+	/**
+	 * This method returns the number of the current round. The first round has number 1.
+	 * 
+	 * @return	An integer representing the current round, 0 if the game has not started yet.
+	 */
+	public int getRound() {
+		return this.round;
+	}
+	
+	private int round = 0;
+	
+	/**
+	 * Start the turn of the next character that has been chosen by a player in this round. If all
+	 * characters have had their turn, the next round is started.
+	 */
+	private void nextTurn() {
+		while (this.characterIterator.hasNext()) {
+			Character character = this.characterIterator.next();
+			if (this.beginPlayerTurn(character)) {
+				return;
+			}
+		}
+		this.beginRound();
 	}
 	
 	/**
-	 * Execute a turn for the player who is holding the given character.
+	 * Begin a turn for the player who is holding the given character.
 	 * 
 	 * @param character	The current character. If no player has this character, this method will
 	 * 					have no effect. If this character is killed, this method will reset the
 	 * 					killed character and return.
+	 * 
+	 * @return			A boolean stating if a player turn has started.
 	 */
-	private void executePlayerTurn(Character character) {
+	private boolean beginPlayerTurn(Character character) {
 		if (character == this.killedChar) {
 			this.killedChar = null;
-			return;
+			return false;
 		}
 		int currentPlayerNumber = this.getCurrentPlayerNumber(character);
 		if (currentPlayerNumber < 0) {
-			return;
+			return false;
+		}
+		if (this.pendingDelta != null) {
+			if (this.pendingDelta.getActiveChar() != null) {
+				this.flushDeltas();
+			}
+			this.pendingDelta.setActiveChar(character, currentPlayerNumber);
 		}
-		Player currentPlayer = this.players.get(currentPlayerNumber);
-		for (Player otherPlayers : this.players) {
-			otherPlayers.setActiveChar(character, currentPlayerNumber);
+		else {
+			for (Player otherPlayers : this.players) {
+				otherPlayers.setActiveChar(character, currentPlayerNumber);
+			}
 		}
+		this.activeChar = character;
+		this.charMovePlayed = false;
+		this.maxBuildings = (this.getCurrentPlayerNumber(Character.BOUWMEESTER) == currentPlayerNumber) ? 3 : 1;
 		this.resetAskedBuildingCoin();
 		this.handleStolen(currentPlayerNumber);
-		this.getCharMove(currentPlayerNumber);
-		Revenue revenue = currentPlayer.getRevenue();
-		this.handleRevenue(currentPlayerNumber, revenue);
-		this.getCharMove(currentPlayerNumber);
-		Set<Card> build = null;
-		while (!this.isValidBuild(currentPlayerNumber, build)) {
-			build = currentPlayer.getBuild();
+		this.turnStep = 0;
+		this.phase = Phase.CHAR_MOVE;
+		this.awaitedPlayer = currentPlayerNumber;
+		return true;
+	}
+	
+	/**
+	 * This method returns the character that is currently playing its turn.
+	 * 
+	 * @return	The active character, or the null object if characters are still being chosen.
+	 */
+	public Character getActiveChar() {
+		if ((this.phase == Phase.CHOOSE_CHAR) || (this.phase == Phase.PUT_AWAY_CHAR)) {
+			return null;
 		}
-		this.handleBuild(currentPlayerNumber, build);
-		this.getCharMove(currentPlayerNumber);
+		return this.activeChar;
 	}
 	
+	private Character activeChar;
+	
+	/**
+	 * This attribute iterates over the characters during a round, it points to the active
+	 * character.
+	 */
+	private CharacterDeck.CharacterIterator characterIterator;
+	
+	/**
+	 * This attribute contains the number of character moves the active player has already
+	 * provided during his turn: 0 before his revenue, 1 before his build and 2 after his build.
+	 */
+	private int turnStep;
+	
+	/**
+	 * This attribute is true if the active player has already played the special move of his
+	 * character during this turn.
+	 */
+	private boolean charMovePlayed;
+	
+	/**
+	 * This attribute contains the number of buildings the active player can build during his turn:
+	 * 3 if he has chosen the bouwmeester, 1 otherwise.
+	 */
+	private int maxBuildings;
+	
 	/**
 	 * This method will handle the building action of the given player. It will add the build cards
 	 * to the players city, subtract the number of coins for the given player and notify all players
@@ -243,9 +884,10 @@ public class Engine {
 	 * 
 	 * @param playerNumber	An integer representing the current player who wants to build the given
 	 * 						set of build cards.
-	 * @param build			A set of cards the given player wants to build.
+	 * @param build			A set of cards the given player wants to build, of the catalog of this
+	 * 						game: the type and the cost of the cards are taken from them.
 	 */
-	private void handleBuild(int playerNumber, Set<Card> build) {
+	private void handleBuild(int playerNumber, CardSet build) {
 		this.addToCity(playerNumber, build);
 		int coins = this.getCoins(playerNumber);
 		for (Card card : build) {
@@ -262,43 +904,54 @@ public class Engine {
 	 * - The set is empty
 	 * - Or the set contains one card
 	 * - Or the set contains max three cards if the player has the bouwmeester character
+	 * - And if each card is in the hand of the player, the type and the cost of a card are then
+	 *   taken from the card with its id in the catalog of this game, not from the given card
+	 * - And if no card is of a type that is already in the city of the player
+	 * - And if no two cards are of the same type
 	 * - And if the player can pay for each card
 	 * 
 	 * @param playerNumber	An integer representing the player who wants to build the given set of
-	 * 						cards.
+	 * 						cards, the active player.
 	 * @param build			A set of cards the given player wants to build.
 	 * 
 	 * @return				A boolean representing if the given player can legally build the given 
 	 * 						set of cards.
 	 */
-	private boolean isValidBuild(int playerNumber, Set<Card> build) {
+	boolean isValidBuild(int playerNumber, Set<Card> build) {
 		if (build == null) {
 			return false;
 		}
 		if (build.size() == 0) {
 			return true;
 		}
-		if (build.size() > 3) {
+		if (build.size() > this.maxBuildings) {
 			return false;
 		}
-		if (build.size() > 1) {
-			if (!(this.getCurrentPlayerNumber(Character.BOUWMEESTER) == playerNumber)) {
-				return false;
-			}
+		if (!this.getCards(playerNumber).containsAll(build)) {
+			return false;
 		}
-		for (Card card : build) {
+		int playerCoins = this.getCoins(playerNumber);
+		long typesLow = 0;
+		long typesHigh = 0;
+		for (Card card : new CardSet(this.catalog, build)) {
 			if (this.alreadyBuilded(playerNumber, card)) {
 				return false;
 			}
-		}
-		int playerCoins = this.getCoins(playerNumber);
-		for (Card card : build) {
+			if (card.typeId < 64) {
+				if ((typesLow & (1L << card.typeId)) != 0) {
+					return false;
+				}
+				typesLow |= 1L << card.typeId;
+			}
+			else {
+				if ((typesHigh & (1L << (card.typeId - 64))) != 0) {
+					return false;
+				}
+				typesHigh |= 1L << (card.typeId - 64);
+			}
 			playerCoins -= card.cost;
 		}
-		if (playerCoins < 0) {
-			return false;
-		}
-		return true;
+		return playerCoins >= 0;
 	}
 	
 	/**
@@ -308,9 +961,8 @@ public class Engine {
 	 * - Cards: this will proceed in the following steps:
 	 *          * the engine will invoke setCardsToChoose() providing the player with a set of cards
 	 *            from which he can choose on or multiple, depending on which special cards he has.
-	 *          * the engine will invoke getChosenCard(), asking for the player to return a set of
-	 *            cards he has chosen. If the player chooses a wrong set, this method will be invoked
-	 *            again.
+	 *          * the engine will wait in the phase CHOOSE_CARDS for the player to return a set of
+	 *            cards he has chosen. If the player chooses a wrong set, the engine keeps waiting.
 	 *          * the engine will invoke setCards(int, int), to update all players with the
 	 *            number of cards this player has now.
 	 *          * the engine will invoke setCards(Set<Card>), to update the current active player
@@ -323,62 +975,131 @@ public class Engine {
 	private void handleRevenue(int currentPlayerNumber, Revenue revenue) {
 		if (revenue.isCoins()) {
 			this.setCoins(currentPlayerNumber, this.getCoins(currentPlayerNumber)+2);
+			this.turnStep = 1;
+			this.phase = Phase.CHAR_MOVE;
 		}
 		else {
 			Player currentPlayer = this.players.get(currentPlayerNumber);
 			//For now, standard is give two cards and ask one back. This should be updated to also
 			//handle the special cards.
 			int numberToDraw = 2;
-			int numberToChoose = 1;
-			Set<Card> cardsToChoose = this.cardDeck.drawCard(numberToDraw);
-			currentPlayer.setCardsToChoose(cardsToChoose);
-			Set<Card> chosenCards = null;
-			boolean validReturn = false;
-			while (!validReturn) {
-				chosenCards = currentPlayer.getChosenCard();
-				if (chosenCards != null) {
-					if (chosenCards.size() == numberToChoose) {
-						if (cardsToChoose.containsAll(chosenCards)) {
-							validReturn = true;
-						}
-					}
-				}
-			}
-			this.addCards(currentPlayerNumber, chosenCards);
+			this.numberToChoose = 1;
+			this.cardsToChoose = this.drawCards(numberToDraw);
+			this.flushDeltas();
+			currentPlayer.setCardsToChoose(this.cardsToChoose);
+			this.phase = Phase.CHOOSE_CARDS;
 		}
 	}
 	
 	/**
-	 * This method asks for a CharMove object at the current player. It checks the validity of the
-	 * CharMove object and executes the move.
+	 * This method checks if the given set of cards is a valid choice from the cards to choose.
+	 * 
+	 * @param chosenCards	The set of cards chosen by the active player.
+	 * 
+	 * @return				A boolean stating if the chosen cards can be accepted.
+	 */
+	private boolean isValidChosenCards(Set<Card> chosenCards) {
+		if (chosenCards == null) {
+			return false;
+		}
+		int expected = Math.min(this.numberToChoose, this.cardsToChoose.size());
+		if (chosenCards.size() != expected) {
+			return false;
+		}
+		return this.cardsToChoose.containsAll(chosenCards);
+	}
+	
+	/**
+	 * Add the chosen cards to the hand of the given player. The cards that were not chosen are
+	 * returned to the deck.
+	 * 
+	 * @param currentPlayerNumber	A number representing the current active player.
+	 * @param chosenCards			The set of cards chosen by the active player.
+	 */
+	private void handleChosenCards(int currentPlayerNumber, Set<Card> chosenCards) {
+		CardSet chosen = new CardSet(this.catalog, chosenCards);
+		this.cardDeck.returnCards(this.cardsToChoose.difference(chosen));
+		this.cardsToChoose = null;
+		this.addCards(currentPlayerNumber, chosen);
+	}
+	
+	/**
+	 * Draw the given number of cards from the deck.
 	 * 
-	 * @param currentPlayerNumber	An integer representing the current active player.
+	 * @param numberCards	The number of cards to be drawn.
+	 * 
+	 * @return				A set containing the drawn cards, it contains less cards if the deck
+	 * 						runs out of cards.
 	 */
-	private void getCharMove(int currentPlayerNumber) {
-		Player currentPlayer = this.players.get(currentPlayerNumber);
-		CharMove charMove = null;
-		while (!this.isValidCharMove(currentPlayerNumber, charMove)) {
-			charMove = currentPlayer.getCharMove();
+	private CardSet drawCards(int numberCards) {
+		CardSet result = new CardSet(this.catalog);
+		for (int i = 0; i < numberCards; i++) {
+			Card card = this.cardDeck.drawCard();
+			if (card == null) {
+				break;
+			}
+			result.add(card);
 		}
-		this.handleCharMove(currentPlayerNumber, charMove);
+		return result;
 	}
 	
 	/**
+	 * The cards the active player can choose from, after choosing cards as his revenue.
+	 */
+	private CardSet cardsToChoose;
+	
+	/**
+	 * The number of cards the active player has to keep from the cards to choose.
+	 */
+	private int numberToChoose;
+	
+	/**
+	 * This method executes the given CharMove object of the current player and notifies all players
+	 * about this move via the method setCharMove().
 	 * 
-	 * @param playerNumber
-	 * @param move
+	 * @param playerNumber	An integer representing the current active player.
+	 * @param move			The move played by the current player.
 	 */
 	private void handleCharMove(int playerNumber, CharMove move) {
 		move.execute(this, playerNumber);
+		if (move.type != null) {
+			this.charMovePlayed = true;
+			if (this.pendingDelta != null) {
+				if (this.pendingDelta.getCharMove() != null) {
+					this.flushDeltas();
+				}
+				this.pendingDelta.setCharMove(playerNumber, move);
+				return;
+			}
+			for (Player player : this.players) {
+				player.setCharMove(playerNumber, move);
+			}
+		}
 	}
 	
 	/**
+	 * This method checks if the given CharMove object can be played by the current player. A move
+	 * is valid if:
+	 * - The move is not equal to the null object;
+	 * - The move is a NoMove
+	 * - Or the move belongs to the active character, which has not yet played its move during this
+	 *   turn, and the move itself is valid
 	 * 
-	 * @param playerNumber
-	 * @param move
-	 * @return
+	 * @param playerNumber	An integer representing the current active player.
+	 * @param move			The move the current player wants to play.
+	 * 
+	 * @return				A boolean stating if the given move can be played.
 	 */
 	private boolean isValidCharMove(int playerNumber, CharMove move) {
+		if (move == null) {
+			return false;
+		}
+		if (move.type == null) {
+			return true;
+		}
+		if ((move.type != this.activeChar) || this.charMovePlayed) {
+			return false;
+		}
 		return move.isValid(this, playerNumber);
 	}
 	
@@ -392,11 +1113,20 @@ public class Engine {
 	 */
 	private void handleStolen(int currentPlayer) {
 		if (this.stolenPlayer == currentPlayer) {
-			for (Player otherPlayers : this.players) {
-				otherPlayers.setStolen(this.stolenPlayer, this.thiefPlayer);
+			if (this.pendingDelta != null) {
+				if (this.pendingDelta.getStolenPlayer() >= 0) {
+					this.flushDeltas();
+				}
+				this.pendingDelta.setStolen(this.stolenPlayer, this.thiefPlayer);
+			}
+			else {
+				for (Player otherPlayers : this.players) {
+					otherPlayers.setStolen(this.stolenPlayer, this.thiefPlayer);
+				}
 			}
 			this.setCoins(this.thiefPlayer, this.getCoins(this.stolenPlayer) + this.getCoins(this.thiefPlayer));
 			this.setCoins(this.stolenPlayer, 0);
+			this.stolenChar = null;
 			this.stolenPlayer = -1;
 			this.thiefPlayer = -1;
 		}
@@ -420,7 +1150,7 @@ public class Engine {
 	 * @return				An integer representing the number of coins this player has.
 	 */
 	private int getCoins(int playerNumber) {
-		return this.coins.get(playerNumber);
+		return this.coins[playerNumber];
 	}
 	
 	/**
@@ -431,24 +1161,32 @@ public class Engine {
 	 * @param coins			The number of coins this player has now.
 	 */
 	private void setCoins(int playerNumber, int coins) {
-		this.coins.put(playerNumber, coins);
+		this.coins[playerNumber] = coins;
+		if (this.pendingDelta != null) {
+			this.pendingDelta.setCoins(playerNumber, coins);
+			return;
+		}
 		for (Player player : this.players) {
 			player.setCoins(playerNumber, coins);
 		}
 	}
 	
 	private void initializeCoins(int initCoins) {
-		this.coins = new HashMap<Integer, Integer>(this.numberPlayers);
+		this.coins = new int[this.numberPlayers];
 		for (int i = 0; i < this.numberPlayers; i++) {
 			this.setCoins(i, initCoins);
 		}
 	}
 	
-	private HashMap<Integer, Integer> coins;
+	/**
+	 * This array contains the number of coins of each player, indexed by the player number.
+	 */
+	private int[] coins;
 	
 	/**
 	 * This method will remove the given set of cards from the set of cards the given player owns.
-	 * The given player will receive an equal amount of cards freshly drawn from the deck of cards.
+	 * The given player will receive an equal amount of cards freshly drawn from the deck of cards,
+	 * after which the removed cards are returned to the back of the deck.
 	 * All players will be notified of this interchange by the methods removeCards(int, Set<Card>)
 	 * and addCards(int, Set<Card>).
 	 * 
@@ -456,8 +1194,10 @@ public class Engine {
 	 * @param cards			The set of cards that will be changed.
 	 */
 	public void switchCardsDeck(int playerNumber, Set<Card> cards) {
-		this.removeCards(playerNumber, cards);
-		Set<Card> newCards = this.cardDeck.drawCard(cards.size());
+		CardSet oldCards = new CardSet(this.catalog, cards);
+		this.removeCards(playerNumber, oldCards);
+		CardSet newCards = this.drawCards(oldCards.size());
+		this.cardDeck.returnCards(oldCards);
 		this.addCards(playerNumber, newCards);
 	}
 	
@@ -470,8 +1210,8 @@ public class Engine {
 	 * @param playerNumber2	The second player that will change this card with the first player.
 	 */
 	public void switchCards(int playerNumber1, int playerNumber2) {
-		Set<Card> player1Cards = this.getCards(playerNumber1);
-		Set<Card> player2Cards = this.getCards(playerNumber2);
+		CardSet player1Cards = new CardSet(this.getCards(playerNumber1));
+		CardSet player2Cards = new CardSet(this.getCards(playerNumber2));
 		this.removeCards(playerNumber1, player1Cards);
 		this.removeCards(playerNumber2, player2Cards);
 		this.addCards(playerNumber1, player2Cards);
@@ -479,9 +1219,10 @@ public class Engine {
 	}
 	
 	private void initializeCards(int numberCards) {
-		this.cards = new HashMap<Integer, Set<Card>>(this.numberPlayers);
+		this.cards = new ArrayList<CardSet>(this.numberPlayers);
 		for (int i = 0; i < this.numberPlayers; i++) {
-			this.addCards(i, this.cardDeck.drawCard(numberCards));
+			this.cards.add(new CardSet(this.catalog));
+			this.addCards(i, this.drawCards(numberCards));
 		}
 	}
 	
@@ -494,11 +1235,7 @@ public class Engine {
 	 * @param cards			The set of cards that should be removed for the given player.
 	 */
 	private void removeCards(int playerNumber, Set<Card> cards) {
-		for (Card card : cards) {
-			if (this.cards.get(playerNumber).contains(card)) {
-				this.cards.get(playerNumber).remove(card);
-			}
-		}
+		this.cards.get(playerNumber).removeAll(cards);
 		this.notifyPlayersCards(playerNumber);
 	}
 	
@@ -510,15 +1247,7 @@ public class Engine {
 	 * @param cards			A set of cards to add to the given player.
 	 */
 	private void addCards(int playerNumber, Set<Card> cards) {
-		Set<Card> oldCards = this.cards.get(playerNumber);
-		if (oldCards == null) {
-			oldCards = cards;
-		}
-		else {
-			//Make sure that cards that look the same are still different objects:
-			oldCards.addAll(cards);
-		}
-		this.cards.put(playerNumber, oldCards);
+		this.cards.get(playerNumber).addAll(cards);
 		this.notifyPlayersCards(playerNumber);
 	}
 	
@@ -533,10 +1262,15 @@ public class Engine {
 	 */
 	private void notifyPlayersCards(int playerNumber) {
 		int numberCards = this.getNumberCards(playerNumber);
+		if (this.pendingDelta != null) {
+			this.pendingDelta.setCards(playerNumber, numberCards);
+			this.changedHands |= 1 << playerNumber;
+			return;
+		}
 		for (Player otherPlayer : this.players) {
 			otherPlayer.setCards(playerNumber, numberCards);
 		}
-		this.players.get(playerNumber).setCards(this.getCards(playerNumber));
+		this.players.get(playerNumber).setCards(new CardSet(this.getCards(playerNumber)));
 	}
 	
 	/**
@@ -559,14 +1293,14 @@ public class Engine {
 	 * 
 	 * @return				A set of cards owned by the given player.
 	 */
-	public Set<Card> getCards(int playerNumber) {
+	public CardSet getCards(int playerNumber) {
 		return this.cards.get(playerNumber);
 	}
 	
 	/**
-	 * This map contains the sets of cards that each player owns.
+	 * This list contains the sets of cards that each player owns, indexed by the player number.
 	 */
-	private HashMap<Integer, Set<Card>> cards;
+	private List<CardSet> cards;
 	
 	/**
 	 * This method will add the given building to the set of buildings the current active player has
@@ -583,7 +1317,7 @@ public class Engine {
 	 * asked coins for.
 	 */
 	private void resetAskedBuildingCoin() {
-		this.askedBuildingCoins = new HashSet<Card>(8);
+		this.askedBuildingCoins.clear();
 	}
 	
 	/**
@@ -601,7 +1335,7 @@ public class Engine {
 	/**
 	 * This set will contain all buildings the current player has already asked coins for.
 	 */
-	private HashSet<Card> askedBuildingCoins;
+	private final CardSet askedBuildingCoins;
 	
 	/**
 	 * This method will check if the given player already has built the given build card.
@@ -612,14 +1346,16 @@ public class Engine {
 	 * @return
 	 */
 	private boolean alreadyBuilded(int playerNumber, Card buildCard) {
-		for (Card card : this.city.get(playerNumber)) {
-			if (card.name.equals(buildCard.name)) {
-				return true;
-			}
-		}
-		return false;
+		return ((this.builtTypes[2 * playerNumber + (buildCard.typeId >>> 6)] >>> (buildCard.typeId & 63)) & 1) != 0;
 	}
 	
+	/**
+	 * This array contains the type ids of the buildings in the city of each player as a bitset:
+	 * the type ids 0 to 63 of player p in the word 2p and the type ids 64 to 127 in the word 2p+1.
+	 * It is kept up to date by addToCity().
+	 */
+	private long[] builtTypes;
+	
 	/**
 	 * This method will add the given set of build cards to the city of the given player. It will 
 	 * also notify all other players about the changed city of the given player.
@@ -629,53 +1365,77 @@ public class Engine {
 	 * @param build			A set of build cards that will be added to the city of the given player.
 	 */
 	private void addToCity(int playerNumber, Set<Card> build) {
-		Set<Card> oldCards = this.city.get(playerNumber);
-		oldCards.addAll(build);
-		this.city.put(playerNumber, oldCards);
+		this.city.get(playerNumber).addAll(build);
+		for (Card card : build) {
+			this.builtTypes[2 * playerNumber + (card.typeId >>> 6)] |= 1L << (card.typeId & 63);
+			this.scoreboard.addBuilding(playerNumber, card);
+		}
 		this.notifyPlayersCity(playerNumber);
+		this.notifyPlayersPoints();
 	}
 	
 	/**
-	 * This method will notify all players about the changed city of the given player. It will 
-	 * invoke the method setCity() to all players.
-	 * 
-	 * @param playerNumber	An integer representing the player for who all other player will be
-	 * 						notified about his city.
+	 * This method will notify all players about the current scores of all players, via the method
+	 * setPoints(). In batching mode, the scores are delivered right after the next delta.
 	 */
-	private void notifyPlayersCity(int playerNumber) {
-		Set<Card> city = this.city.get(playerNumber);
+	private void notifyPlayersPoints() {
+		if (this.pendingDelta != null) {
+			this.changedPoints = true;
+			return;
+		}
+		Map<Integer, Integer> points = this.scoreboard.getPoints();
 		for (Player player : this.players) {
-			player.setCity(playerNumber, city);
+			player.setPoints(points);
 		}
 	}
 	
 	/**
-	 * This method will return the number of buildings the given player has in his city.
+	 * This method returns the scoreboard of this game, which contains the current score of every
+	 * player.
 	 * 
-	 * @param playerNumber	An integer representing the player for who the number of buildings 
-	 * 						should be returned.
+	 * @return	The scoreboard of this game, or the null object if the game has not started yet.
+	 */
+	public Scoreboard getScoreboard() {
+		return this.scoreboard;
+	}
+	
+	private Scoreboard scoreboard;
+	
+	/**
+	 * This method will notify all players about the changed city of the given player. It will 
+	 * invoke the method setCity() to all players.
 	 * 
-	 * @return				An integer representing the number of buildings the given player has in
-	 * 						his city.
+	 * @param playerNumber	An integer representing the player for who all other player will be
+	 * 						notified about his city.
 	 */
-	private int getNumberBuildings(int playerNumber) {
-		return this.city.get(playerNumber).size();
+	private void notifyPlayersCity(int playerNumber) {
+		if (this.pendingDelta != null) {
+			this.changedCities |= 1 << playerNumber;
+			return;
+		}
+		CardSet city = this.city.get(playerNumber);
+		for (Player player : this.players) {
+			player.setCity(playerNumber, new CardSet(city));
+		}
 	}
 	
 	/**
 	 * Initialize the city of all players with an empty city.
 	 */
 	private void initializeCity() {
-		this.city = new HashMap<Integer, Set<Card>>(this.numberPlayers);
+		this.city = new ArrayList<CardSet>(this.numberPlayers);
 		for (int i = 0; i < this.numberPlayers; i++) {
-			this.city.put(i, new HashSet<Card>(8));
+			this.city.add(new CardSet(this.catalog));
 		}
+		this.builtTypes = new long[2 * this.numberPlayers];
+		this.scoreboard = new Scoreboard(this.numberPlayers);
 	}
 	
 	/**
-	 * This map contains a set of buildings this player has alread built.
+	 * This list contains the set of buildings each player has already built, indexed by the player
+	 * number.
 	 */
-	private HashMap<Integer, Set<Card>> city;
+	private List<CardSet> city;
 	
 	/**
 	 * Prepare this game to start the first round:
@@ -705,6 +1465,7 @@ public class Engine {
 	}
 	
 	private void provideKing() {
+		this.flushDeltas();
 		for (Player player : this.players) {
 			player.setKing(this.kingPlayer);
 		}
@@ -717,10 +1478,9 @@ public class Engine {
 	 *  - Provide the players the information who will be the king player for the next round
 	 *  - Provide the players the information of the open characters (if any)
 	 *  - Provide the king player with the information of the top character
-	 *  - Provide each player with a set of characters, from which he can choose one or put one away
-	 *    in case numberPlayers == 2
-	 *  - Obtain the characters chosen by each player
-	 *  - Obtain the characters put away by each player, in case numberPlayers == 2
+	 *  - Provide the first player with a set of characters, from which he can choose one or put one
+	 *    away in case numberPlayers == 2
+	 * The characters chosen and put away by each player are obtained via the submit() methods.
 	 */
 	private void distributeChars() {
 		this.characterDeck.resetAvailableChars();
@@ -740,47 +1500,63 @@ public class Engine {
 			numberOpenChars = 1;
 			break;
 		}
-		HashSet<Character> openChars = new HashSet<Character>(2);
+		Set<Character> openChars = EnumSet.noneOf(Character.class);
 		for (int i = 0; i < numberOpenChars; i++) {
 			openChars.add(this.characterDeck.popCharNoKing());
 		}
+		this.openChars = openChars;
 		if (numberOpenChars > 0) {
+			this.flushDeltas();
 			for (Player player : this.players) {
 				player.setOpenChars(openChars);
 			}
 		}
 	}
 	
+	/**
+	 * The characters that have been laid open at the start of this round.
+	 */
+	private Set<Character> openChars = EnumSet.noneOf(Character.class);
+	
 	private void provideKingTopChar() {
 		this.topChar = this.characterDeck.popChar();
+		this.flushDeltas();
 		this.players.get(this.kingPlayer).setKingChar(this.topChar);
 	}
 	
 	private void provideObtainPlayerChars() {
 		this.initializeChosenChars();
-		PlayerIterator playerIterator = new PlayerIterator(this);
-		while (playerIterator.hasNext()) {
-			Player currentPlayer = playerIterator.next();
-			if ((this.numberPlayers == 7) && (playerIterator.isLast())) {
-				this.characterDeck.makeAvailable(this.topChar);
-			}
-			currentPlayer.setCharsToChoose(this.characterDeck.getAvailableChars());
-			Character chosenChar = null;
-			while (!this.characterDeck.isAvailable(chosenChar)) {
-				chosenChar = currentPlayer.getChosenChar();
-			}
-			this.characterDeck.removeAvailableChar(chosenChar);
-			this.chosenChars.put(chosenChar, playerIterator.currentPlayer);
-			if ((this.numberPlayers == 2) && !(playerIterator.isKing()) && !(playerIterator.isLast())) {
-				Character putAwayChar = null;
-				while (!this.characterDeck.isAvailable(putAwayChar)) {
-					putAwayChar = currentPlayer.getPutAwayChar();
-				}
-				this.characterDeck.removeAvailableChar(putAwayChar);
-			}
+		this.playerIterator = new PlayerIterator(this);
+		this.nextChooser();
+	}
+	
+	/**
+	 * Provide the next player in the character distribution with the set of characters he can
+	 * choose from and wait for his choice. If all players have chosen their characters, the turn
+	 * of the first character is started.
+	 */
+	private void nextChooser() {
+		if (!this.playerIterator.hasNext()) {
+			this.characterIterator = this.characterDeck.iterator();
+			this.nextTurn();
+			return;
+		}
+		Player currentPlayer = this.playerIterator.next();
+		if ((this.numberPlayers == 7) && (this.playerIterator.isLast())) {
+			this.characterDeck.makeAvailable(this.topChar);
 		}
+		this.flushDeltas();
+		currentPlayer.setCharsToChoose(this.characterDeck.getAvailableChars());
+		this.phase = Phase.CHOOSE_CHAR;
+		this.awaitedPlayer = this.playerIterator.currentPlayer;
 	}
 	
+	/**
+	 * This attribute iterates over the players during the character distribution, it points to
+	 * the player that is choosing a character.
+	 */
+	private PlayerIterator playerIterator;
+	
 	/**
 	 * This Iterator implementation enables the engine to iterate over all players in the correct
 	 * order (starting with the king player) and the correct multiplicity (twice for a game of 2
@@ -0,0 +1,25 @@
+package game.engine;
+
+/**
+ * A game listener is notified of every input accepted by an engine and of the end of its game.
+ * Together with the seed, the cards and the characters of the game, these inputs determine the
+ * complete game, they can be used to store or replicate the game while it is being played.
+ */
+public interface GameListener {
+	
+	/**
+	 * Notify the listener that the engine has accepted the given input. The listener is invoked on
+	 * the thread that submitted the input, before the engine has finished handling it.
+	 * 
+	 * @param playerNumber	An integer representing the player that provided the input.
+	 * @param phase			The phase in which the input was accepted.
+	 * @param input			The input of the player: a Character, a CharMove, a Revenue or a set of
+	 * 						cards. The listener must not modify the input.
+	 */
+	public void inputAccepted(int playerNumber, Phase phase, Object input);
+	
+	/**
+	 * Notify the listener that the game has ended.
+	 */
+	public void gameEnded();
+}
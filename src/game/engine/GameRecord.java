@@ -0,0 +1,112 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import game.helpers.Card;
+import game.helpers.Character;
+import game.player.Player;
+import game.player.SilentPlayer;
+
+/**
+ * A game record contains everything that is needed to replay a game exactly: the seed of the
+ * game, the cards and characters it is played with and the ordered list of accepted inputs of
+ * the players.
+ */
+public class GameRecord {
+	
+	/**
+	 * Create a new record without any inputs.
+	 * 
+	 * @param seed			The seed of the recorded game.
+	 * @param numberPlayers	The number of players of the recorded game.
+	 * @param cards			The set of cards the recorded game is played with.
+	 * @param characters	The set of characters the recorded game is played with, or the null
+	 * 						object for the standard set.
+	 */
+	public GameRecord(long seed, int numberPlayers, Set<Card> cards, Set<Character> characters) {
+		this.seed = seed;
+		this.numberPlayers = numberPlayers;
+		this.cards = cards;
+		this.characters = characters;
+		this.playerNumbers = new ArrayList<Integer>();
+		this.inputs = new ArrayList<Object>();
+	}
+	
+	public final long seed;
+	
+	public final int numberPlayers;
+	
+	public final Set<Card> cards;
+	
+	public final Set<Character> characters;
+	
+	private final List<Integer> playerNumbers;
+	
+	private final List<Object> inputs;
+	
+	/**
+	 * Add an input to this record.
+	 * 
+	 * @param playerNumber	An integer representing the player that provided the input.
+	 * @param input			The input of the player, a Character, CharMove, Revenue or set of
+	 * 						cards.
+	 */
+	public void addInput(int playerNumber, Object input) {
+		this.playerNumbers.add(playerNumber);
+		this.inputs.add(input);
+	}
+	
+	public int getNumberInputs() {
+		return this.inputs.size();
+	}
+	
+	public int getPlayerNumber(int index) {
+		return this.playerNumbers.get(index);
+	}
+	
+	public Object getInput(int index) {
+		return this.inputs.get(index);
+	}
+	
+	/**
+	 * Replay the recorded game without any interaction of players. All players of the replayed
+	 * game are silent.
+	 * 
+	 * @return	The engine of the replayed game, in the same state as the recorded game after its
+	 * 			last recorded input.
+	 */
+	public Engine replay() {
+		Set<Player> players = new HashSet<Player>(this.numberPlayers);
+		for (int i = 0; i < this.numberPlayers; i++) {
+			players.add(new SilentPlayer());
+		}
+		return this.replay(players);
+	}
+	
+	/**
+	 * Replay the recorded game, the given players are notified of everything that happens in the
+	 * game but are never asked for an input.
+	 * 
+	 * @param players	A set of players that observe the replayed game, it should contain as many
+	 * 					players as the recorded game.
+	 * 
+	 * @return			The engine of the replayed game, in the same state as the recorded game after
+	 * 					its last recorded input.
+	 * 
+	 * @throws IllegalStateException
+	 * 					If an input of this record is not accepted by the replayed game.
+	 */
+	public Engine replay(Set<Player> players) {
+		Engine engine = new Engine(players, this.cards, this.characters, this.seed);
+		engine.begin();
+		for (int i = 0; i < this.inputs.size(); i++) {
+			if (!engine.submitInput(this.playerNumbers.get(i), this.inputs.get(i))) {
+				throw new IllegalStateException("Input ".concat(Integer.toString(i)).concat(" of the record is not accepted"));
+			}
+		}
+		return engine;
+	}
+}
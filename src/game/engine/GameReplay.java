@@ -0,0 +1,295 @@
+package game.engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.helpers.Character;
+import game.player.Player;
+import game.player.SilentPlayer;
+
+/**
+ * A game replay re-runs a recorded game through an engine, one recorded input at a time. The
+ * inputs are submitted to the engine directly, so the replay runs at full speed, and the players of
+ * the replayed game receive exactly the notifications the players of the recorded game have
+ * received. A replay can be moved forward to any input, round or turn of the recorded game. Moving
+ * it backward restarts the game from its seed: the players then receive the notifications of the
+ * game from the start again, beginning with setNumberPlayers().
+ */
+public class GameReplay {
+	
+	/**
+	 * Create a new replay of the given record, played by silent players.
+	 * 
+	 * @param record	The record of the game to replay.
+	 */
+	public GameReplay(GameRecord record) {
+		this(record, null);
+	}
+	
+	/**
+	 * Create a new replay of the given record, played by the given players. The players are
+	 * notified of everything that happens in the replayed game but are never asked for an input.
+	 * 
+	 * @param record	The record of the game to replay.
+	 * @param players	A set of players that observe the replayed game, it should contain as many
+	 * 					players as the recorded game. Provide null to replay the game with silent
+	 * 					players.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 					If the number of players does not match the record.
+	 */
+	public GameReplay(GameRecord record, Set<Player> players) {
+		if (players == null) {
+			players = new HashSet<Player>(record.numberPlayers);
+			for (int i = 0; i < record.numberPlayers; i++) {
+				players.add(new SilentPlayer());
+			}
+		}
+		if (players.size() != record.numberPlayers) {
+			throw new IllegalArgumentException("The record has ".concat(Integer.toString(record.numberPlayers)).concat(" players"));
+		}
+		this.record = record;
+		this.players = new ArrayList<Player>(players);
+		this.restart();
+	}
+	
+	public GameRecord getRecord() {
+		return this.record;
+	}
+	
+	private final GameRecord record;
+	
+	/**
+	 * The players of the replay, in a fixed order. The engine consumes the set of players it is
+	 * created with, every restart gets a new set in this order.
+	 */
+	private final List<Player> players;
+	
+	/**
+	 * This method returns the engine of the replayed game, in the state of the recorded game after
+	 * the inputs before the current position. The engine is replaced when the replay is moved
+	 * backward.
+	 * 
+	 * @return	The engine of the replayed game.
+	 */
+	public Engine getEngine() {
+		return this.engine;
+	}
+	
+	private Engine engine;
+	
+	/**
+	 * This method returns the index of the next input of the record that will be submitted.
+	 * 
+	 * @return	An integer representing the number of inputs that have been replayed.
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+	
+	private int position;
+	
+	/**
+	 * This method returns true if there are inputs left to replay.
+	 */
+	public boolean hasNext() {
+		return this.position < this.record.getNumberInputs();
+	}
+	
+	/**
+	 * Start the replayed game again from its seed, before its first input.
+	 */
+	public void restart() {
+		this.engine = new Engine(new LinkedHashSet<Player>(this.players), this.record.cards, this.record.characters, this.record.seed);
+		this.engine.begin();
+		this.position = 0;
+	}
+	
+	/**
+	 * Submit the next input of the record to the engine.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If there are no inputs left or the input is not accepted by the replayed game.
+	 */
+	public void step() {
+		if (!this.hasNext()) {
+			throw new IllegalStateException("All inputs of the record have been replayed");
+		}
+		if (!this.engine.submitInput(this.record.getPlayerNumber(this.position), this.record.getInput(this.position))) {
+			throw new IllegalStateException("Input ".concat(Integer.toString(this.position)).concat(" of the record is not accepted"));
+		}
+		this.position ++;
+	}
+	
+	/**
+	 * Replay the remaining inputs of the record.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If an input is not accepted by the replayed game.
+	 */
+	public void runToEnd() {
+		while (this.hasNext()) {
+			this.step();
+		}
+	}
+	
+	/**
+	 * Move the replay to the given input: after this method, the inputs before the given index
+	 * have been replayed.
+	 * 
+	 * @param index	The index of the next input to replay, between 0 and the number of inputs of
+	 * 				the record.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 				If the index is out of range.
+	 * @throws IllegalStateException
+	 * 				If an input is not accepted by the replayed game.
+	 */
+	public void seek(int index) {
+		if ((index < 0) || (index > this.record.getNumberInputs())) {
+			throw new IllegalArgumentException("Invalid input index: ".concat(Integer.toString(index)));
+		}
+		if (index < this.position) {
+			this.restart();
+		}
+		while (this.position < index) {
+			this.step();
+		}
+	}
+	
+	/**
+	 * Move the replay to the start of the given round, where the first character of the round is
+	 * about to be chosen.
+	 * 
+	 * @param round	The number of the round, the first round has number 1.
+	 * 
+	 * @return		A boolean stating if the round has been reached. If the record ends before the
+	 * 				given round, the replay is left at the end of the record.
+	 * 
+	 * @throws IllegalStateException
+	 * 				If an input is not accepted by the replayed game.
+	 */
+	public boolean seekRound(int round) {
+		if (this.engine.getRound() >= round) {
+			this.restart();
+		}
+		while ((this.engine.getRound() < round) && this.hasNext()) {
+			this.step();
+		}
+		return this.engine.getRound() == round;
+	}
+	
+	/**
+	 * Move the replay to the start of the turn of the given character in the given round, where the
+	 * player of the character is about to play his first character move.
+	 * 
+	 * @param round		The number of the round, the first round has number 1.
+	 * @param character	The character whose turn has to be reached.
+	 * 
+	 * @return			A boolean stating if the turn has been reached. If the character has no
+	 * 					turn in the given round, the replay is left at the start of the next round.
+	 * 
+	 * @throws IllegalStateException
+	 * 					If an input is not accepted by the replayed game.
+	 */
+	public boolean seekTurn(int round, Character character) {
+		if (!this.seekRound(round)) {
+			return false;
+		}
+		while (this.engine.getActiveChar() != character) {
+			if (!this.hasNext()) {
+				return false;
+			}
+			this.step();
+			if (this.engine.getRound() != round) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Replay the complete record with silent players and check that every input is accepted.
+	 * 
+	 * @param record	The record of the game to check.
+	 * 
+	 * @return			The index of the first input that is not accepted by the replayed game, or
+	 * 					-1 if all inputs are accepted.
+	 */
+	public static int verify(GameRecord record) {
+		GameReplay replay = new GameReplay(record);
+		Engine engine = replay.engine;
+		for (int i = 0; i < record.getNumberInputs(); i++) {
+			if (!engine.submitInput(record.getPlayerNumber(i), record.getInput(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Replay the given games on the given number of threads and check that every input of every
+	 * game is accepted, see verify().
+	 * 
+	 * @param games			A map containing the id and the record of every game to check.
+	 * @param numberThreads	An integer representing the number of threads to replay the games on.
+	 * 
+	 * @return				A map containing the id of every game with an input that is not
+	 * 						accepted, and the index of its first such input.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public static Map<Long, Integer> verifyAll(Map<Long, GameRecord> games, int numberThreads) throws InterruptedException {
+		if (numberThreads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed.");
+		}
+		final List<Map.Entry<Long, GameRecord>> entries = new ArrayList<Map.Entry<Long, GameRecord>>(games.entrySet());
+		List<Callable<Map<Long, Integer>>> tasks = new ArrayList<Callable<Map<Long, Integer>>>(numberThreads);
+		for (int t = 0; t < numberThreads; t++) {
+			final int first = t;
+			final int stride = numberThreads;
+			tasks.add(new Callable<Map<Long, Integer>>() {
+				
+				@Override
+				public Map<Long, Integer> call() {
+					Map<Long, Integer> result = new LinkedHashMap<Long, Integer>();
+					for (int i = first; i < entries.size(); i += stride) {
+						int rejected;
+						try {
+							rejected = GameReplay.verify(entries.get(i).getValue());
+						} catch (RuntimeException e) {
+							rejected = 0;
+						}
+						if (rejected >= 0) {
+							result.put(entries.get(i).getKey(), rejected);
+						}
+					}
+					return result;
+				}
+			
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numberThreads);
+		Map<Long, Integer> result = new LinkedHashMap<Long, Integer>();
+		try {
+			for (Future<Map<Long, Integer>> future : executor.invokeAll(tasks)) {
+				result.putAll(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,1095 @@
+package game.engine;
+
+import game.cards.CardCatalog;
+import game.helpers.Card;
+import game.helpers.CardColor;
+import game.helpers.CardSet;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.DiefMove;
+import game.helpers.charMove.KoningMove;
+import game.helpers.charMove.MagierMove;
+import game.helpers.charMove.MoordenaarMove;
+import game.helpers.charMove.NoMove;
+
+/**
+ * A game state is a compact copy of the position of a game, without any players. It follows the
+ * rules of the engine, but all sets of cards are bitsets over the instance ids of the cards and all
+ * sets of characters are bitsets over the numbers of the characters, and moves can be applied to it
+ * without notifying anyone. This makes it suited for searching the future of a game, see
+ * Engine.getState().
+ * 
+ * A state is copied on write: the positions of the players are stored in a single array of words,
+ * which is the only array that is copied, and everything else is either a field or an array that
+ * is shared by all copies and never changed.
+ *
+ * A move is a long: the kind of the move in the highest byte and its payload in the other bits.
+ * Moves that select cards have a payload that selects cards by their position in a set, for
+ * example the positions of the cards to build in the hand of the player in ascending instance id
+ * order. The legal moves of a state are listed by a MoveGenerator.
+ *
+ * The order of the card deck and the random generator of the engine are not part of the state: a
+ * state shuffles its deck and picks random characters with its own random generator.
+ */
+public class GameState {
+	
+	/**
+	 * Create a new state of a game with the given catalog and number of players. The position is
+	 * filled in by the engine, see Engine.getState().
+	 */
+	GameState(CardCatalog catalog, int numberPlayers, long seed) {
+		this.catalog = catalog;
+		this.numberPlayers = numberPlayers;
+		int numberCards = catalog.getNumberCards();
+		this.costs = new int[numberCards];
+		this.points = new int[numberCards];
+		this.typeIds = new int[numberCards];
+		this.colorCards = new long[2 * CardColor.values().length];
+		for (int id = 0; id < numberCards; id++) {
+			Card card = catalog.getCard(id);
+			this.costs[id] = card.cost;
+			this.points[id] = card.points;
+			this.typeIds[id] = card.typeId;
+			this.colorCards[2 * card.color.ordinal() + (id >>> 6)] |= 1L << (id & 63);
+		}
+		this.yellowLow = this.colorCards[2 * CardColor.YELLOW.ordinal()];
+		this.yellowHigh = this.colorCards[2 * CardColor.YELLOW.ordinal() + 1];
+		this.words = new long[GameState.PLAYER_WORDS * numberPlayers];
+		this.deck = new int[0];
+		this.setSeed(seed);
+	}
+	
+	/**
+	 * Create a copy of the given state.
+	 */
+	private GameState(GameState state) {
+		this.catalog = state.catalog;
+		this.numberPlayers = state.numberPlayers;
+		this.costs = state.costs;
+		this.points = state.points;
+		this.typeIds = state.typeIds;
+		this.yellowLow = state.yellowLow;
+		this.yellowHigh = state.yellowHigh;
+		this.colorCards = state.colorCards;
+		this.firstComplete = state.firstComplete;
+		this.words = state.words.clone();
+		this.deck = state.deck;
+		this.numberDeckCards = state.numberDeckCards;
+		this.returnedLow = state.returnedLow;
+		this.returnedHigh = state.returnedHigh;
+		this.choosers = state.choosers;
+		this.deckChars = state.deckChars;
+		this.availableChars = state.availableChars;
+		this.openChars = state.openChars;
+		this.topChar = state.topChar;
+		this.kingPlayer = state.kingPlayer;
+		this.killedChar = state.killedChar;
+		this.stolenChar = state.stolenChar;
+		this.stolenPlayer = state.stolenPlayer;
+		this.thiefPlayer = state.thiefPlayer;
+		this.phase = state.phase;
+		this.awaitedPlayer = state.awaitedPlayer;
+		this.round = state.round;
+		this.activeChar = state.activeChar;
+		this.turnStep = state.turnStep;
+		this.charMovePlayed = state.charMovePlayed;
+		this.askedLow = state.askedLow;
+		this.askedHigh = state.askedHigh;
+		this.toChooseLow = state.toChooseLow;
+		this.toChooseHigh = state.toChooseHigh;
+		this.numberToChoose = state.numberToChoose;
+		this.chooserIndex = state.chooserIndex;
+		this.numberChoosers = state.numberChoosers;
+		this.nextChooser = state.nextChooser;
+		this.random = state.random;
+	}
+	
+	/**
+	 * This method returns a copy of this state. Applying moves to the copy does not change this
+	 * state.
+	 * 
+	 * @return	A new state with the same position and the same random generator state.
+	 */
+	public GameState copy() {
+		return new GameState(this);
+	}
+	
+	public CardCatalog getCatalog() {
+		return this.catalog;
+	}
+	
+	private final CardCatalog catalog;
+	
+	public int getNumberPlayers() {
+		return this.numberPlayers;
+	}
+	
+	final int numberPlayers;
+	
+	/**
+	 * The cost, the points and the type id of every card, indexed by the instance id. These arrays
+	 * are shared by all copies of a state.
+	 */
+	final int[] costs;
+	
+	private final int[] points;
+	
+	final int[] typeIds;
+	
+	/**
+	 * The yellow cards of the catalog, the cards with instance ids 0 to 63 and 64 to 127.
+	 */
+	private final long yellowLow;
+	
+	private final long yellowHigh;
+	
+	/**
+	 * The cards of every color as a set of two words, at twice the ordinal of the color.
+	 */
+	private final long[] colorCards;
+	
+	static final Character[] CHARACTERS = Character.values();
+	
+	/*
+	 * The kinds of the moves.
+	 */
+	
+	/**
+	 * Choose or put away the character with the number in the payload.
+	 */
+	public static final int CHARACTER = 1;
+	
+	/**
+	 * Do not play the move of the active character.
+	 */
+	public static final int NO_MOVE = 2;
+	
+	/**
+	 * Kill the character with the number in the payload, as the moordenaar.
+	 */
+	public static final int KILL = 3;
+	
+	/**
+	 * Steal from the character with the number in the payload, as the dief.
+	 */
+	public static final int STEAL = 4;
+	
+	/**
+	 * Exchange the hand with the player with the number in the payload, as the magier.
+	 */
+	public static final int SWAP = 5;
+	
+	/**
+	 * Exchange the cards at the positions in the payload with cards from the deck, as the magier.
+	 */
+	public static final int REDRAW = 6;
+	
+	/**
+	 * Become king and collect a coin for every yellow building in the city, as the koning.
+	 */
+	public static final int KING = 7;
+	
+	/**
+	 * Take two coins as revenue.
+	 */
+	public static final int COINS = 8;
+	
+	/**
+	 * Draw cards as revenue.
+	 */
+	public static final int CARDS = 9;
+	
+	/**
+	 * Keep the cards at the positions in the payload from the drawn cards.
+	 */
+	public static final int CHOOSE = 10;
+	
+	/**
+	 * Build the cards at the positions in the payload in the hand.
+	 */
+	public static final int BUILD = 11;
+	
+	private static final long PAYLOAD_MASK = (1L << 56) - 1;
+	
+	/**
+	 * This method returns the move of the given kind with the given payload.
+	 * 
+	 * @param kind		The kind of the move.
+	 * @param payload	The payload of the move, less than 2^56.
+	 * 
+	 * @return			A long representing the move.
+	 */
+	public static long move(int kind, long payload) {
+		return ((long) kind << 56) | payload;
+	}
+	
+	public static int getKind(long move) {
+		return (int) (move >>> 56);
+	}
+	
+	public static long getPayload(long move) {
+		return move & GameState.PAYLOAD_MASK;
+	}
+	
+	/**
+	 * This method returns the phase of the game, which determines the kinds of moves the awaited
+	 * player can play.
+	 */
+	public Phase getPhase() {
+		return this.phase;
+	}
+	
+	Phase phase = Phase.NOT_STARTED;
+	
+	/**
+	 * This method returns the player that has to play the next move, or -1 if the game has ended.
+	 */
+	public int getAwaitedPlayer() {
+		return this.awaitedPlayer;
+	}
+	
+	int awaitedPlayer = -1;
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	int round;
+	
+	public boolean isEnded() {
+		return this.phase == Phase.ENDED;
+	}
+	
+	public int getKingPlayer() {
+		return this.kingPlayer;
+	}
+	
+	int kingPlayer;
+	
+	/**
+	 * This method returns the active character, or the null object if characters are being chosen.
+	 */
+	public Character getActiveChar() {
+		if ((this.activeChar == 0) || (this.phase == Phase.CHOOSE_CHAR) || (this.phase == Phase.PUT_AWAY_CHAR)) {
+			return null;
+		}
+		return GameState.CHARACTERS[this.activeChar - 1];
+	}
+	
+	/**
+	 * The number of the active character, which is also the position of the character iterator of
+	 * the round. The value is 0 before the first turn of a round.
+	 */
+	int activeChar;
+	
+	/**
+	 * The number of character moves the active player has played during his turn, see the engine.
+	 */
+	int turnStep;
+	
+	boolean charMovePlayed;
+	
+	/*
+	 * Coins, hands and cities. The position of player p is stored in the PLAYER_WORDS words of the
+	 * word array from PLAYER_WORDS * p on: his hand, his city and the type ids of his city as sets
+	 * of two words each, followed by his coins. A set of cards is stored in two words, the first
+	 * for the instance ids 0 to 63 and the second for 64 to 127.
+	 */
+	
+	/**
+	 * The word array, the only array a copy of a state has to copy.
+	 */
+	final long[] words;
+	
+	static final int PLAYER_WORDS = 7;
+	
+	static int handWord(int playerNumber) {
+		return GameState.PLAYER_WORDS * playerNumber;
+	}
+	
+	static int cityWord(int playerNumber) {
+		return GameState.PLAYER_WORDS * playerNumber + 2;
+	}
+	
+	static int builtWord(int playerNumber) {
+		return GameState.PLAYER_WORDS * playerNumber + 4;
+	}
+	
+	static int coinsWord(int playerNumber) {
+		return GameState.PLAYER_WORDS * playerNumber + 6;
+	}
+	
+	public int getCoins(int playerNumber) {
+		return (int) this.words[GameState.coinsWord(playerNumber)];
+	}
+	
+	public int getNumberCards(int playerNumber) {
+		return Long.bitCount(this.words[GameState.handWord(playerNumber)]) + Long.bitCount(this.words[GameState.handWord(playerNumber) + 1]);
+	}
+	
+	/**
+	 * This method returns the hand of the given player as a new set of cards.
+	 */
+	public CardSet getCards(int playerNumber) {
+		return this.toCardSet(this.words[GameState.handWord(playerNumber)], this.words[GameState.handWord(playerNumber) + 1]);
+	}
+	
+	public int getNumberBuildings(int playerNumber) {
+		return Long.bitCount(this.words[GameState.cityWord(playerNumber)]) + Long.bitCount(this.words[GameState.cityWord(playerNumber) + 1]);
+	}
+	
+	/**
+	 * This method returns the city of the given player as a new set of cards.
+	 */
+	public CardSet getCity(int playerNumber) {
+		return this.toCardSet(this.words[GameState.cityWord(playerNumber)], this.words[GameState.cityWord(playerNumber) + 1]);
+	}
+	
+	/**
+	 * This method returns the sum of the points of the buildings in the city of the given player.
+	 */
+	public int getCityPoints(int playerNumber) {
+		int result = 0;
+		for (int word = 0; word < 2; word++) {
+			long bits = this.words[GameState.cityWord(playerNumber) + word];
+			while (bits != 0) {
+				result += this.points[64 * word + Long.numberOfTrailingZeros(bits)];
+				bits &= bits - 1;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * This method returns the score of the given player, as it is kept by the scoreboard of the
+	 * engine: the points of his city and the bonuses for the colors and the number of buildings in
+	 * his city.
+	 */
+	public int getScore(int playerNumber) {
+		int result = this.getCityPoints(playerNumber);
+		long low = this.words[GameState.cityWord(playerNumber)];
+		long high = this.words[GameState.cityWord(playerNumber) + 1];
+		boolean allColors = true;
+		for (int color = 0; color < this.colorCards.length; color += 2) {
+			allColors = allColors && (((low & this.colorCards[color]) | (high & this.colorCards[color + 1])) != 0);
+		}
+		if (allColors) {
+			result += Scoreboard.ALL_COLORS_BONUS;
+		}
+		if (this.firstComplete == playerNumber) {
+			result += Scoreboard.FIRST_COMPLETE_BONUS;
+		}
+		else if (this.getNumberBuildings(playerNumber) >= Scoreboard.COMPLETE_CITY) {
+			result += Scoreboard.COMPLETE_BONUS;
+		}
+		return result;
+	}
+	
+	/**
+	 * The player whose city was the first to contain COMPLETE_CITY buildings, or -1.
+	 */
+	int firstComplete = -1;
+	
+	/*
+	 * The card deck: the cards that can be drawn, with the top of the deck at the end, and the
+	 * cards that have been returned and are shuffled when the deck runs out. The deck array is
+	 * shared by the copies of a state and is never changed: drawing a card only decreases the
+	 * number of cards, a state that shuffles its deck replaces the array by a new one.
+	 */
+	
+	private int[] deck;
+	
+	private int numberDeckCards;
+	
+	private long returnedLow;
+	
+	private long returnedHigh;
+	
+	/**
+	 * The cards the active player draws as his revenue, and the number of them he has to keep.
+	 */
+	long toChooseLow;
+	
+	long toChooseHigh;
+	
+	int numberToChoose;
+	
+	/**
+	 * The buildings the active player has collected coins for as the koning.
+	 */
+	long askedLow;
+	
+	long askedHigh;
+	
+	/*
+	 * Characters. A set of characters is an int with the bit of every character number.
+	 */
+	
+	/**
+	 * The player that has chosen each character, plus one, in the four bits from four times the
+	 * character number on. The bits of the characters that have not been chosen are 0.
+	 */
+	private long choosers;
+	
+	int getChooser(int character) {
+		return (int) ((this.choosers >>> (4 * character)) & 0xF) - 1;
+	}
+	
+	void setChooser(int character, int playerNumber) {
+		this.choosers = (this.choosers & ~(0xFL << (4 * character))) | ((long) (playerNumber + 1) << (4 * character));
+	}
+	
+	/**
+	 * This method returns the player that has chosen the given character in this round, or -1.
+	 */
+	public int getPlayer(Character character) {
+		return this.getChooser(character.number);
+	}
+	
+	/**
+	 * The characters of the game.
+	 */
+	int deckChars;
+	
+	/**
+	 * The characters that can still be chosen in this round.
+	 */
+	int availableChars;
+	
+	/**
+	 * The characters that have been laid open at the start of this round.
+	 */
+	int openChars;
+	
+	/**
+	 * The number of the character that was put away face down at the start of this round, which
+	 * becomes available again to the last chooser in a game of seven players, or 0.
+	 */
+	int topChar;
+	
+	int killedChar;
+	
+	int stolenChar;
+	
+	int stolenPlayer = -1;
+	
+	int thiefPlayer = -1;
+	
+	/*
+	 * The distribution of the characters: the number of characters chosen so far in this round,
+	 * the number of choices of the round and the player that chooses next.
+	 */
+	
+	int chooserIndex;
+	
+	int numberChoosers;
+	
+	int nextChooser;
+	
+	/**
+	 * Apply the given move of the awaited player.
+	 * 
+	 * @param move	The move to be applied.
+	 * 
+	 * @return		A boolean stating if the move was legal. An illegal move is ignored.
+	 */
+	public boolean apply(long move) {
+		int kind = GameState.getKind(move);
+		long payload = GameState.getPayload(move);
+		switch (this.phase) {
+		case CHOOSE_CHAR:
+		case PUT_AWAY_CHAR:
+			return (kind == GameState.CHARACTER) && this.chooseChar((int) payload);
+		case CHAR_MOVE:
+			return this.playCharMove(kind, payload);
+		case REVENUE:
+			if (kind == GameState.COINS) {
+				this.words[GameState.coinsWord(this.awaitedPlayer)] += 2;
+				this.turnStep = 1;
+				this.phase = Phase.CHAR_MOVE;
+				return true;
+			}
+			if (kind == GameState.CARDS) {
+				this.toChooseLow = 0;
+				this.toChooseHigh = 0;
+				for (int i = 0; i < 2; i++) {
+					int id = this.drawCard();
+					if (id < 0) {
+						break;
+					}
+					this.addId(id);
+				}
+				this.numberToChoose = 1;
+				this.phase = Phase.CHOOSE_CARDS;
+				return true;
+			}
+			return false;
+		case CHOOSE_CARDS:
+			return (kind == GameState.CHOOSE) && this.chooseCards(payload);
+		case BUILD:
+			return (kind == GameState.BUILD) && this.build(payload);
+		default:
+			return false;
+		}
+	}
+	
+	private void addId(int id) {
+		if (id < 64) {
+			this.toChooseLow |= 1L << id;
+		}
+		else {
+			this.toChooseHigh |= 1L << (id - 64);
+		}
+	}
+	
+	private boolean chooseChar(int character) {
+		if ((character < 1) || (character > GameState.CHARACTERS.length) || ((this.availableChars & (1 << character)) == 0)) {
+			return false;
+		}
+		this.availableChars &= ~(1 << character);
+		if (this.phase == Phase.CHOOSE_CHAR) {
+			this.setChooser(character, this.awaitedPlayer);
+			if ((this.numberPlayers == 2) && (this.chooserIndex != 1) && (this.chooserIndex != this.numberChoosers)) {
+				this.phase = Phase.PUT_AWAY_CHAR;
+				return true;
+			}
+		}
+		this.nextChooser();
+		return true;
+	}
+	
+	private boolean playCharMove(int kind, long payload) {
+		if (kind != GameState.NO_MOVE) {
+			if (this.charMovePlayed || !this.playSpecialMove(kind, payload)) {
+				return false;
+			}
+			this.charMovePlayed = true;
+		}
+		switch (this.turnStep) {
+		case 0:
+			this.phase = Phase.REVENUE;
+			break;
+		case 1:
+			this.phase = Phase.BUILD;
+			break;
+		default:
+			this.nextTurn();
+			break;
+		}
+		return true;
+	}
+	
+	private boolean playSpecialMove(int kind, long payload) {
+		int player = this.awaitedPlayer;
+		switch (kind) {
+		case KILL:
+			if ((this.activeChar != Character.MOORDENAAR.number) || (payload <= Character.MOORDENAAR.number) || (payload > GameState.CHARACTERS.length)) {
+				return false;
+			}
+			this.killedChar = (int) payload;
+			return true;
+		case STEAL:
+			if ((this.activeChar != Character.DIEF.number) || (payload <= Character.DIEF.number) || (payload > GameState.CHARACTERS.length) || (payload == this.killedChar)) {
+				return false;
+			}
+			this.stolenChar = (int) payload;
+			this.thiefPlayer = player;
+			this.stolenPlayer = this.getChooser(this.stolenChar);
+			return true;
+		case SWAP:
+			if ((this.activeChar != Character.MAGIER.number) || (payload >= this.numberPlayers) || (payload == player)) {
+				return false;
+			}
+			int other = (int) payload;
+			for (int word = 0; word < 2; word++) {
+				long hand = this.words[GameState.handWord(player) + word];
+				this.words[GameState.handWord(player) + word] = this.words[GameState.handWord(other) + word];
+				this.words[GameState.handWord(other) + word] = hand;
+			}
+			return true;
+		case REDRAW:
+			if ((this.activeChar != Character.MAGIER.number) || (payload == 0) || (payload >= (1L << this.getNumberCards(player)))) {
+				return false;
+			}
+			this.select(this.words[GameState.handWord(player)], this.words[GameState.handWord(player) + 1], payload);
+			long oldLow = this.selectedLow;
+			long oldHigh = this.selectedHigh;
+			this.words[GameState.handWord(player)] &= ~oldLow;
+			this.words[GameState.handWord(player) + 1] &= ~oldHigh;
+			int numberCards = Long.bitCount(oldLow) + Long.bitCount(oldHigh);
+			long newLow = 0;
+			long newHigh = 0;
+			for (int i = 0; i < numberCards; i++) {
+				int id = this.drawCard();
+				if (id < 0) {
+					break;
+				}
+				if (id < 64) {
+					newLow |= 1L << id;
+				}
+				else {
+					newHigh |= 1L << (id - 64);
+				}
+			}
+			this.returnCards(oldLow, oldHigh);
+			this.words[GameState.handWord(player)] |= newLow;
+			this.words[GameState.handWord(player) + 1] |= newHigh;
+			return true;
+		case KING:
+			if ((this.activeChar != Character.KONING.number) || (payload != 0)) {
+				return false;
+			}
+			this.kingPlayer = player;
+			long coinLow = this.words[GameState.cityWord(player)] & this.yellowLow & ~this.askedLow;
+			long coinHigh = this.words[GameState.cityWord(player) + 1] & this.yellowHigh & ~this.askedHigh;
+			this.askedLow |= coinLow;
+			this.askedHigh |= coinHigh;
+			this.words[GameState.coinsWord(player)] += Long.bitCount(coinLow) + Long.bitCount(coinHigh);
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	private boolean chooseCards(long positions) {
+		int numberToChoose = Math.min(this.numberToChoose, Long.bitCount(this.toChooseLow) + Long.bitCount(this.toChooseHigh));
+		if ((Long.bitCount(positions) != numberToChoose) || (positions >= (1L << (Long.bitCount(this.toChooseLow) + Long.bitCount(this.toChooseHigh))))) {
+			return false;
+		}
+		this.select(this.toChooseLow, this.toChooseHigh, positions);
+		int player = this.awaitedPlayer;
+		this.returnCards(this.toChooseLow & ~this.selectedLow, this.toChooseHigh & ~this.selectedHigh);
+		this.words[GameState.handWord(player)] |= this.selectedLow;
+		this.words[GameState.handWord(player) + 1] |= this.selectedHigh;
+		this.toChooseLow = 0;
+		this.toChooseHigh = 0;
+		this.turnStep = 1;
+		this.phase = Phase.CHAR_MOVE;
+		return true;
+	}
+	
+	private boolean build(long positions) {
+		int player = this.awaitedPlayer;
+		int numberBuildings = Long.bitCount(positions);
+		if (numberBuildings > 0) {
+			if ((numberBuildings > 3) || (positions >= (1L << this.getNumberCards(player)))) {
+				return false;
+			}
+			if ((numberBuildings > 1) && (this.getChooser(Character.BOUWMEESTER.number) != player)) {
+				return false;
+			}
+			this.select(this.words[GameState.handWord(player)], this.words[GameState.handWord(player) + 1], positions);
+			int cost = 0;
+			long typesLow = 0;
+			long typesHigh = 0;
+			for (int word = 0; word < 2; word++) {
+				long bits = (word == 0) ? this.selectedLow : this.selectedHigh;
+				while (bits != 0) {
+					int id = 64 * word + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					int typeId = this.typeIds[id];
+					long built = (typeId < 64) ? this.words[GameState.builtWord(player)] >>> typeId : this.words[GameState.builtWord(player) + 1] >>> (typeId - 64);
+					if ((built & 1) != 0) {
+						return false;
+					}
+					if (typeId < 64) {
+						if ((typesLow & (1L << typeId)) != 0) {
+							return false;
+						}
+						typesLow |= 1L << typeId;
+					}
+					else {
+						if ((typesHigh & (1L << (typeId - 64))) != 0) {
+							return false;
+						}
+						typesHigh |= 1L << (typeId - 64);
+					}
+					cost += this.costs[id];
+				}
+			}
+			if (cost > this.words[GameState.coinsWord(player)]) {
+				return false;
+			}
+			this.words[GameState.coinsWord(player)] -= cost;
+			this.words[GameState.cityWord(player)] |= this.selectedLow;
+			this.words[GameState.cityWord(player) + 1] |= this.selectedHigh;
+			this.words[GameState.builtWord(player)] |= typesLow;
+			this.words[GameState.builtWord(player) + 1] |= typesHigh;
+			this.words[GameState.handWord(player)] &= ~this.selectedLow;
+			this.words[GameState.handWord(player) + 1] &= ~this.selectedHigh;
+			if ((this.firstComplete < 0) && (this.getNumberBuildings(player) >= Scoreboard.COMPLETE_CITY)) {
+				this.firstComplete = player;
+			}
+		}
+		this.turnStep = 2;
+		this.phase = Phase.CHAR_MOVE;
+		return true;
+	}
+	
+	/**
+	 * Select the cards at the given positions of the given set, in ascending instance id order.
+	 * The result is stored in selectedLow and selectedHigh.
+	 */
+	private void select(long low, long high, long positions) {
+		long resultLow = 0;
+		long resultHigh = 0;
+		while ((positions != 0) && (low != 0)) {
+			long bit = low & -low;
+			if ((positions & 1) != 0) {
+				resultLow |= bit;
+			}
+			low ^= bit;
+			positions >>>= 1;
+		}
+		while ((positions != 0) && (high != 0)) {
+			long bit = high & -high;
+			if ((positions & 1) != 0) {
+				resultHigh |= bit;
+			}
+			high ^= bit;
+			positions >>>= 1;
+		}
+		this.selectedLow = resultLow;
+		this.selectedHigh = resultHigh;
+	}
+	
+	private long selectedLow;
+	
+	private long selectedHigh;
+	
+	/**
+	 * Start a new round, or end the game if a city has been completed.
+	 */
+	void beginRound() {
+		if (this.firstComplete >= 0) {
+			this.phase = Phase.ENDED;
+			this.awaitedPlayer = -1;
+			return;
+		}
+		this.round ++;
+		this.availableChars = this.deckChars;
+		this.openChars = 0;
+		int numberOpenChars = (this.numberPlayers == 4) ? 2 : ((this.numberPlayers == 5) ? 1 : 0);
+		for (int i = 0; i < numberOpenChars; i++) {
+			int character = this.popChar(this.availableChars & ~(1 << Character.KONING.number));
+			if (character != 0) {
+				this.openChars |= 1 << character;
+				this.availableChars &= ~(1 << character);
+			}
+		}
+		this.topChar = this.popChar(this.availableChars);
+		if (this.topChar != 0) {
+			this.availableChars &= ~(1 << this.topChar);
+		}
+		this.choosers = 0;
+		this.activeChar = 0;
+		this.chooserIndex = 0;
+		this.numberChoosers = ((this.numberPlayers == 2) || (this.numberPlayers == 3)) ? 2 * this.numberPlayers : this.numberPlayers;
+		this.nextChooser = this.kingPlayer;
+		this.nextChooser();
+	}
+	
+	/**
+	 * This method returns a random character of the given set, or 0 if the set is empty.
+	 */
+	private int popChar(int characters) {
+		int numberChars = Integer.bitCount(characters);
+		if (numberChars == 0) {
+			return 0;
+		}
+		int item = this.nextInt(numberChars);
+		for (int i = 0; i < item; i++) {
+			characters &= characters - 1;
+		}
+		return Integer.numberOfTrailingZeros(characters);
+	}
+	
+	private void nextChooser() {
+		if (this.chooserIndex >= this.numberChoosers) {
+			this.activeChar = 0;
+			this.nextTurn();
+			return;
+		}
+		int chooser = this.nextChooser;
+		this.chooserIndex ++;
+		this.nextChooser = (this.nextChooser + 1) % this.numberPlayers;
+		if ((this.numberPlayers == 7) && (this.chooserIndex == this.numberChoosers) && (this.topChar != 0)) {
+			this.availableChars |= 1 << this.topChar;
+		}
+		this.phase = Phase.CHOOSE_CHAR;
+		this.awaitedPlayer = chooser;
+	}
+	
+	private void nextTurn() {
+		for (int character = this.activeChar + 1; character <= GameState.CHARACTERS.length; character++) {
+			if ((this.deckChars & (1 << character)) == 0) {
+				continue;
+			}
+			this.activeChar = character;
+			if (this.beginPlayerTurn(character)) {
+				return;
+			}
+		}
+		this.beginRound();
+	}
+	
+	private boolean beginPlayerTurn(int character) {
+		if (character == this.killedChar) {
+			this.killedChar = 0;
+			return false;
+		}
+		int player = this.getChooser(character);
+		if (player < 0) {
+			return false;
+		}
+		this.charMovePlayed = false;
+		this.askedLow = 0;
+		this.askedHigh = 0;
+		if (this.stolenPlayer == player) {
+			this.words[GameState.coinsWord(this.thiefPlayer)] += this.words[GameState.coinsWord(this.stolenPlayer)];
+			this.words[GameState.coinsWord(this.stolenPlayer)] = 0;
+			this.stolenChar = 0;
+			this.stolenPlayer = -1;
+			this.thiefPlayer = -1;
+		}
+		this.turnStep = 0;
+		this.phase = Phase.CHAR_MOVE;
+		this.awaitedPlayer = player;
+		return true;
+	}
+	
+	/**
+	 * Draw the top card of the deck. If the deck is empty, the returned cards are shuffled and
+	 * become the new deck.
+	 * 
+	 * @return	The instance id of the drawn card, or -1 if there are no cards left.
+	 */
+	private int drawCard() {
+		if (this.numberDeckCards == 0) {
+			int[] deck = new int[this.costs.length];
+			this.numberDeckCards = GameState.addIds(deck, 0, this.returnedLow, this.returnedHigh);
+			this.returnedLow = 0;
+			this.returnedHigh = 0;
+			this.shuffle(deck, this.numberDeckCards);
+			this.deck = deck;
+			if (this.numberDeckCards == 0) {
+				return -1;
+			}
+		}
+		this.numberDeckCards --;
+		return this.deck[this.numberDeckCards];
+	}
+	
+	private void returnCards(long low, long high) {
+		this.returnedLow |= low;
+		this.returnedHigh |= high;
+	}
+	
+	/**
+	 * Write the instance ids of the given set of two words to the given array, from the given index
+	 * on.
+	 * 
+	 * @return	The index after the last written instance id.
+	 */
+	private static int addIds(int[] ids, int index, long low, long high) {
+		while (low != 0) {
+			ids[index++] = Long.numberOfTrailingZeros(low);
+			low &= low - 1;
+		}
+		while (high != 0) {
+			ids[index++] = 64 + Long.numberOfTrailingZeros(high);
+			high &= high - 1;
+		}
+		return index;
+	}
+	
+	private void shuffle(int[] cards, int length) {
+		for (int i = length - 1; i > 0; i--) {
+			int j = this.nextInt(i + 1);
+			int card = cards[i];
+			cards[i] = cards[j];
+			cards[j] = card;
+		}
+	}
+	
+	/**
+	 * Put all cards that are not in a hand, a city or the cards to choose in the deck, in a random
+	 * order.
+	 */
+	void fillDeck() {
+		long usedLow = this.toChooseLow;
+		long usedHigh = this.toChooseHigh;
+		for (int i = 0; i < this.numberPlayers; i++) {
+			usedLow |= this.words[GameState.handWord(i)] | this.words[GameState.cityWord(i)];
+			usedHigh |= this.words[GameState.handWord(i) + 1] | this.words[GameState.cityWord(i) + 1];
+		}
+		int[] deck = new int[this.costs.length];
+		this.numberDeckCards = 0;
+		this.returnedLow = 0;
+		this.returnedHigh = 0;
+		for (int id = 0; id < deck.length; id++) {
+			long used = (id < 64) ? (usedLow >>> id) : (usedHigh >>> (id - 64));
+			if ((used & 1) == 0) {
+				deck[this.numberDeckCards++] = id;
+			}
+		}
+		this.shuffle(deck, this.numberDeckCards);
+		this.deck = deck;
+	}
+	
+	/**
+	 * Replace everything the given player cannot know by a random guess that is consistent with
+	 * what he knows: the hands of the other players are dealt again from their cards and the deck,
+	 * and the characters chosen by the other players that have not been revealed yet are
+	 * exchanged randomly with each other and with the characters that lie face down. The result is
+	 * one of the positions the game can be in from the point of view of the given player.
+	 * 
+	 * @param observer	The player from whose point of view the hidden information is guessed.
+	 */
+	public void determinize(int observer) {
+		int[] deck = new int[this.costs.length];
+		System.arraycopy(this.deck, 0, deck, 0, this.numberDeckCards);
+		int poolSize = GameState.addIds(deck, this.numberDeckCards, this.returnedLow, this.returnedHigh);
+		this.returnedLow = 0;
+		this.returnedHigh = 0;
+		for (int i = 0; i < this.numberPlayers; i++) {
+			if (i != observer) {
+				poolSize = GameState.addIds(deck, poolSize, this.words[GameState.handWord(i)], this.words[GameState.handWord(i) + 1]);
+			}
+		}
+		this.shuffle(deck, poolSize);
+		this.deck = deck;
+		for (int i = 0; i < this.numberPlayers; i++) {
+			if (i == observer) {
+				continue;
+			}
+			int numberCards = this.getNumberCards(i);
+			this.words[GameState.handWord(i)] = 0;
+			this.words[GameState.handWord(i) + 1] = 0;
+			for (int j = 0; j < numberCards; j++) {
+				int id = deck[--poolSize];
+				this.words[GameState.handWord(i) + (id >>> 6)] |= 1L << (id & 63);
+			}
+		}
+		this.numberDeckCards = poolSize;
+		boolean choosing = (this.phase == Phase.CHOOSE_CHAR) || (this.phase == Phase.PUT_AWAY_CHAR);
+		int revealed = choosing ? 0 : this.activeChar;
+		int known = this.openChars;
+		if (choosing && (this.awaitedPlayer == observer)) {
+			known |= this.availableChars;
+		}
+		int hidden = 0;
+		int numberSlots = 0;
+		int[] slots = new int[GameState.CHARACTERS.length];
+		for (int character = revealed + 1; character <= GameState.CHARACTERS.length; character++) {
+			int player = this.getChooser(character);
+			if (((this.deckChars & (1 << character)) == 0) || (player == observer)) {
+				continue;
+			}
+			if (player >= 0) {
+				slots[numberSlots++] = player;
+				this.setChooser(character, -1);
+				hidden |= 1 << character;
+			}
+			else if ((known & (1 << character)) == 0) {
+				hidden |= 1 << character;
+			}
+		}
+		for (int i = 0; i < numberSlots; i++) {
+			int character = this.popChar(hidden);
+			hidden &= ~(1 << character);
+			this.setChooser(character, slots[i]);
+		}
+		if (this.stolenChar != 0) {
+			this.stolenPlayer = this.getChooser(this.stolenChar);
+		}
+	}
+	
+	/**
+	 * Set the seed of the random generator of this state.
+	 */
+	public void setSeed(long seed) {
+		this.random = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+	}
+	
+	/**
+	 * The state of the xorshift random generator of this state.
+	 */
+	private long random;
+	
+	/**
+	 * This method returns a random integer between 0 (inclusive) and the given bound (exclusive).
+	 */
+	public int nextInt(int bound) {
+		long x = this.random;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		this.random = x;
+		return (int) (((x >>> 32) * bound) >>> 32);
+	}
+	
+	/**
+	 * This method returns the input of the engine that corresponds to the given move of the awaited
+	 * player: a Character, a CharMove, a Revenue or a set of cards.
+	 * 
+	 * @param move	A legal move of the awaited player.
+	 * 
+	 * @return		The input to be submitted to the engine.
+	 */
+	public Object getInput(long move) {
+		int player = this.awaitedPlayer;
+		long payload = GameState.getPayload(move);
+		switch (GameState.getKind(move)) {
+		case CHARACTER:
+			return GameState.CHARACTERS[(int) payload - 1];
+		case NO_MOVE:
+			return new NoMove();
+		case KILL:
+			return new MoordenaarMove(GameState.CHARACTERS[(int) payload - 1]);
+		case STEAL:
+			return new DiefMove(GameState.CHARACTERS[(int) payload - 1]);
+		case SWAP:
+			return new MagierMove(true, (int) payload, null);
+		case REDRAW:
+			this.select(this.words[GameState.handWord(player)], this.words[GameState.handWord(player) + 1], payload);
+			return new MagierMove(false, -1, this.toCardSet(this.selectedLow, this.selectedHigh));
+		case KING:
+			return new KoningMove(this.toCardSet(this.words[GameState.cityWord(player)] & this.yellowLow & ~this.askedLow, this.words[GameState.cityWord(player) + 1] & this.yellowHigh & ~this.askedHigh));
+		case COINS:
+			return new Revenue(true);
+		case CARDS:
+			return new Revenue(false);
+		case CHOOSE:
+			this.select(this.toChooseLow, this.toChooseHigh, payload);
+			return this.toCardSet(this.selectedLow, this.selectedHigh);
+		case BUILD:
+			this.select(this.words[GameState.handWord(player)], this.words[GameState.handWord(player) + 1], payload);
+			return this.toCardSet(this.selectedLow, this.selectedHigh);
+		default:
+			throw new IllegalArgumentException("Unknown move: ".concat(Long.toHexString(move)));
+		}
+	}
+	
+	private CardSet toCardSet(long low, long high) {
+		CardSet result = new CardSet(this.catalog);
+		while (low != 0) {
+			result.addId(Long.numberOfTrailingZeros(low));
+			low &= low - 1;
+		}
+		while (high != 0) {
+			result.addId(64 + Long.numberOfTrailingZeros(high));
+			high &= high - 1;
+		}
+		return result;
+	}
+	
+	/**
+	 * Add the given cards to the set of two words at the given index of the given array.
+	 */
+	static void addCards(long[] words, int index, CardSet cards) {
+		for (int id = cards.nextId(0); id >= 0; id = cards.nextId(id + 1)) {
+			words[index + (id >>> 6)] |= 1L << (id & 63);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package game.engine;
+
+import java.util.Arrays;
+
+import game.helpers.Character;
+
+/**
+ * A move generator lists the legal moves of the awaited player of a game state: the characters he
+ * can choose or put away, the character moves of the active character, the revenues, the cards he
+ * can keep and the sets of cards he can build. Every move that is listed is accepted by
+ * GameState.apply(), and by the engine after GameState.getInput().
+ * 
+ * The moves are enumerated as bitmasks over the positions of the cards in the hand or in the drawn
+ * cards, and are written to an array of the generator that is reused by the next invocation.
+ * Listing the moves of a position does not allocate anything, except when the array has to grow.
+ * A generator is not thread safe, every thread needs its own generator.
+ */
+public class MoveGenerator {
+	
+	public MoveGenerator() {
+		this.moves = new long[64];
+	}
+	
+	/**
+	 * List the legal moves of the awaited player of the given state. The moves can be read with
+	 * getMove() until the next invocation of this method.
+	 * 
+	 * @param state	The state whose moves have to be listed.
+	 * 
+	 * @return		The number of legal moves, 0 if the game has not started or has ended.
+	 */
+	public int generate(GameState state) {
+		this.numberMoves = 0;
+		switch (state.phase) {
+		case CHOOSE_CHAR:
+		case PUT_AWAY_CHAR:
+			for (int characters = state.availableChars; characters != 0; characters &= characters - 1) {
+				this.add(GameState.move(GameState.CHARACTER, Integer.numberOfTrailingZeros(characters)));
+			}
+			break;
+		case CHAR_MOVE:
+			this.addCharMoves(state);
+			break;
+		case REVENUE:
+			this.add(GameState.move(GameState.COINS, 0));
+			this.add(GameState.move(GameState.CARDS, 0));
+			break;
+		case CHOOSE_CARDS:
+			this.addChooseMoves(state);
+			break;
+		case BUILD:
+			this.addBuildMoves(state);
+			break;
+		default:
+			break;
+		}
+		return this.numberMoves;
+	}
+	
+	/**
+	 * This method returns the number of moves listed by the last invocation of generate().
+	 */
+	public int getNumberMoves() {
+		return this.numberMoves;
+	}
+	
+	private int numberMoves;
+	
+	/**
+	 * This method returns the move at the given index of the moves listed by the last invocation of
+	 * generate().
+	 * 
+	 * @param index	The index of the move, less than the number of moves.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 				If the index is out of range.
+	 */
+	public long getMove(int index) {
+		if ((index < 0) || (index >= this.numberMoves)) {
+			throw new IllegalArgumentException("Invalid move index: ".concat(Integer.toString(index)));
+		}
+		return this.moves[index];
+	}
+	
+	private long[] moves;
+	
+	private void add(long move) {
+		if (this.numberMoves == this.moves.length) {
+			this.moves = Arrays.copyOf(this.moves, 2 * this.moves.length);
+		}
+		this.moves[this.numberMoves++] = move;
+	}
+	
+	/**
+	 * The number of cards in the hand of a magier whose subsets are listed as moves. A magier can
+	 * exchange every non-empty subset of his hand with the deck, only subsets of the first
+	 * MAX_REDRAW_CARDS cards of his hand are listed.
+	 */
+	public static final int MAX_REDRAW_CARDS = 10;
+	
+	private void addCharMoves(GameState state) {
+		int player = state.awaitedPlayer;
+		this.add(GameState.move(GameState.NO_MOVE, 0));
+		if (state.charMovePlayed) {
+			return;
+		}
+		switch (state.activeChar) {
+		case 1:
+			for (int character = Character.MOORDENAAR.number + 1; character <= GameState.CHARACTERS.length; character++) {
+				if ((state.deckChars & (1 << character)) != 0) {
+					this.add(GameState.move(GameState.KILL, character));
+				}
+			}
+			break;
+		case 2:
+			for (int character = Character.DIEF.number + 1; character <= GameState.CHARACTERS.length; character++) {
+				if (((state.deckChars & (1 << character)) != 0) && (character != state.killedChar)) {
+					this.add(GameState.move(GameState.STEAL, character));
+				}
+			}
+			break;
+		case 3:
+			for (int other = 0; other < state.numberPlayers; other++) {
+				if (other != player) {
+					this.add(GameState.move(GameState.SWAP, other));
+				}
+			}
+			int numberCards = Math.min(state.getNumberCards(player), MoveGenerator.MAX_REDRAW_CARDS);
+			for (long subset = 1; subset < (1L << numberCards); subset++) {
+				this.add(GameState.move(GameState.REDRAW, subset));
+			}
+			break;
+		case 4:
+			this.add(GameState.move(GameState.KING, 0));
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * List the subsets of the drawn cards with as many cards as the active player has to keep, in
+	 * ascending order of their bitmasks.
+	 */
+	private void addChooseMoves(GameState state) {
+		int numberDrawn = Long.bitCount(state.toChooseLow) + Long.bitCount(state.toChooseHigh);
+		int numberToChoose = Math.min(state.numberToChoose, numberDrawn);
+		if (numberToChoose == 0) {
+			this.add(GameState.move(GameState.CHOOSE, 0));
+			return;
+		}
+		long subset = (1L << numberToChoose) - 1;
+		while (subset < (1L << numberDrawn)) {
+			this.add(GameState.move(GameState.CHOOSE, subset));
+			long lowest = subset & -subset;
+			long ripple = subset + lowest;
+			subset = (((ripple ^ subset) >>> 2) / lowest) | ripple;
+		}
+	}
+	
+	/**
+	 * List not building anything and every set of one card, or of up to three cards of different
+	 * types for the bouwmeester, that the active player can afford and whose types are not in his
+	 * city yet. Only
+	 * the first 56 cards of the hand can be built, the positions have to fit in the payload of a
+	 * move.
+	 */
+	private void addBuildMoves(GameState state) {
+		int player = state.awaitedPlayer;
+		long coins = state.words[GameState.coinsWord(player)];
+		int hand = GameState.handWord(player);
+		int built = GameState.builtWord(player);
+		this.add(GameState.move(GameState.BUILD, 0));
+		long candidates = 0;
+		int position = 0;
+		for (int word = 0; (word < 2) && (position < 56); word++) {
+			for (long bits = state.words[hand + word]; (bits != 0) && (position < 56); bits &= bits - 1) {
+				int id = 64 * word + Long.numberOfTrailingZeros(bits);
+				int typeId = state.typeIds[id];
+				if ((((state.words[built + (typeId >>> 6)] >>> (typeId & 63)) & 1) == 0) && (state.costs[id] <= coins)) {
+					candidates |= 1L << position;
+					this.costs[position] = state.costs[id];
+					this.typeIds[position] = typeId;
+				}
+				position ++;
+			}
+		}
+		boolean multiple = state.getChooser(Character.BOUWMEESTER.number) == player;
+		for (long first = candidates; first != 0; first &= first - 1) {
+			long firstBit = first & -first;
+			this.add(GameState.move(GameState.BUILD, firstBit));
+			if (!multiple) {
+				continue;
+			}
+			int firstCost = this.costs[Long.numberOfTrailingZeros(first)];
+			int firstType = this.typeIds[Long.numberOfTrailingZeros(first)];
+			for (long second = first & (first - 1); second != 0; second &= second - 1) {
+				int secondCost = firstCost + this.costs[Long.numberOfTrailingZeros(second)];
+				int secondType = this.typeIds[Long.numberOfTrailingZeros(second)];
+				if ((secondCost > coins) || (secondType == firstType)) {
+					continue;
+				}
+				long secondBits = firstBit | (second & -second);
+				this.add(GameState.move(GameState.BUILD, secondBits));
+				for (long third = second & (second - 1); third != 0; third &= third - 1) {
+					int thirdType = this.typeIds[Long.numberOfTrailingZeros(third)];
+					if ((secondCost + this.costs[Long.numberOfTrailingZeros(third)] <= coins) && (thirdType != firstType) && (thirdType != secondType)) {
+						this.add(GameState.move(GameState.BUILD, secondBits | (third & -third)));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The cost of every candidate card of addBuildMoves(), indexed by its position in the hand.
+	 */
+	private final int[] costs = new int[56];
+	
+	/**
+	 * The type id of every candidate card of addBuildMoves(), indexed by its position in the hand.
+	 */
+	private final int[] typeIds = new int[56];
+}
@@ -0,0 +1,48 @@
+package game.engine;
+
+/**
+ * The phases of a game. In every phase except NOT_STARTED and ENDED, the engine waits for one
+ * specific input of one player.
+ */
+public enum Phase {
+	
+	/**
+	 * The game has not been started yet.
+	 */
+	NOT_STARTED,
+	
+	/**
+	 * The engine waits for a player to choose a character.
+	 */
+	CHOOSE_CHAR,
+	
+	/**
+	 * The engine waits for a player to put away a character, only in a game of two players.
+	 */
+	PUT_AWAY_CHAR,
+	
+	/**
+	 * The engine waits for the active player to play a character move.
+	 */
+	CHAR_MOVE,
+	
+	/**
+	 * The engine waits for the active player to choose his revenue.
+	 */
+	REVENUE,
+	
+	/**
+	 * The engine waits for the active player to choose cards from the cards he has drawn.
+	 */
+	CHOOSE_CARDS,
+	
+	/**
+	 * The engine waits for the active player to build.
+	 */
+	BUILD,
+	
+	/**
+	 * The game has ended.
+	 */
+	ENDED;
+}
@@ -0,0 +1,157 @@
+package game.engine;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import game.helpers.Card;
+import game.helpers.CardColor;
+
+/**
+ * A scoreboard keeps the score of every player of a game while the cities are built. The score of
+ * a player consists of:
+ * - The points of the buildings in his city;
+ * - ALL_COLORS_BONUS points if his city contains a building of every color;
+ * - FIRST_COMPLETE_BONUS points if his city was the first to contain COMPLETE_CITY buildings;
+ * - COMPLETE_BONUS points if his city contains COMPLETE_CITY buildings, but was not the first.
+ * 
+ * The score only changes when a building is added to a city, so every building updates the score
+ * of its player in constant time and the scores and the end of the game can be read without
+ * looking at the cities.
+ */
+public class Scoreboard {
+	
+	/**
+	 * Create a new scoreboard for a game with the given number of players, all with an empty city.
+	 * 
+	 * @param numberPlayers	An integer representing the number of players in the game.
+	 */
+	public Scoreboard(int numberPlayers) {
+		this.points = new int[numberPlayers];
+		this.buildingPoints = new int[numberPlayers];
+		this.numberBuildings = new int[numberPlayers];
+		this.colors = new int[numberPlayers];
+	}
+	
+	public static final int COMPLETE_CITY = 8;
+	
+	public static final int ALL_COLORS_BONUS = 3;
+	
+	public static final int FIRST_COMPLETE_BONUS = 4;
+	
+	public static final int COMPLETE_BONUS = 2;
+	
+	/**
+	 * The colors of a city that contains a building of every color, one bit per color ordinal.
+	 */
+	static final int ALL_COLORS = (1 << CardColor.values().length) - 1;
+	
+	/**
+	 * Add the given building to the city of the given player and update his score.
+	 * 
+	 * @param playerNumber	An integer representing the player who has built the building.
+	 * @param building		The building that was added to his city.
+	 */
+	void addBuilding(int playerNumber, Card building) {
+		this.buildingPoints[playerNumber] += building.points;
+		this.points[playerNumber] += building.points;
+		if (this.colors[playerNumber] != Scoreboard.ALL_COLORS) {
+			this.colors[playerNumber] |= 1 << building.color.ordinal();
+			if (this.colors[playerNumber] == Scoreboard.ALL_COLORS) {
+				this.points[playerNumber] += Scoreboard.ALL_COLORS_BONUS;
+			}
+		}
+		this.numberBuildings[playerNumber] ++;
+		if (this.numberBuildings[playerNumber] == Scoreboard.COMPLETE_CITY) {
+			if (this.firstComplete < 0) {
+				this.firstComplete = playerNumber;
+				this.points[playerNumber] += Scoreboard.FIRST_COMPLETE_BONUS;
+			}
+			else {
+				this.points[playerNumber] += Scoreboard.COMPLETE_BONUS;
+			}
+		}
+	}
+	
+	/**
+	 * This method returns the current score of the given player.
+	 * 
+	 * @param playerNumber	An integer representing the player.
+	 */
+	public int getPoints(int playerNumber) {
+		return this.points[playerNumber];
+	}
+	
+	/**
+	 * This method returns the current scores of all players.
+	 * 
+	 * @return	An unmodifiable map containing the score of every player, indexed by the player
+	 * 			number.
+	 */
+	public Map<Integer, Integer> getPoints() {
+		Map<Integer, Integer> result = new LinkedHashMap<Integer, Integer>(2 * this.points.length);
+		for (int i = 0; i < this.points.length; i++) {
+			result.put(i, this.points[i]);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+	
+	private final int[] points;
+	
+	/**
+	 * This method returns the sum of the points of the buildings in the city of the given player,
+	 * without any bonus.
+	 * 
+	 * @param playerNumber	An integer representing the player.
+	 */
+	public int getBuildingPoints(int playerNumber) {
+		return this.buildingPoints[playerNumber];
+	}
+	
+	private final int[] buildingPoints;
+	
+	public int getNumberBuildings(int playerNumber) {
+		return this.numberBuildings[playerNumber];
+	}
+	
+	private final int[] numberBuildings;
+	
+	/**
+	 * The colors of the buildings in the city of every player, one bit per color ordinal.
+	 */
+	private final int[] colors;
+	
+	/**
+	 * This method returns the player whose city was the first to contain COMPLETE_CITY buildings,
+	 * or -1 if no city is complete yet. The game ends at the end of the round in which the first
+	 * city is completed.
+	 */
+	public int getFirstComplete() {
+		return this.firstComplete;
+	}
+	
+	/**
+	 * This method returns true if a city contains COMPLETE_CITY buildings.
+	 */
+	public boolean isCityComplete() {
+		return this.firstComplete >= 0;
+	}
+	
+	private int firstComplete = -1;
+	
+	/**
+	 * This method returns the player with the highest score. A tie is won by the player with the
+	 * most building points among the tied players, and then by the lowest player number.
+	 * 
+	 * @return	An integer representing the leading player.
+	 */
+	public int getWinner() {
+		int result = 0;
+		for (int i = 1; i < this.points.length; i++) {
+			if ((this.points[i] > this.points[result]) || ((this.points[i] == this.points[result]) && (this.buildingPoints[i] > this.buildingPoints[result]))) {
+				result = i;
+			}
+		}
+		return result;
+	}
+}
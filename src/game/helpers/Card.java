@@ -2,7 +2,23 @@ package game.helpers;
 
 public class Card {
 	
+	/**
+	 * Create a new card that does not belong to a card catalog. Such a card has no type id and no
+	 * instance id, and is only equal to itself.
+	 */
 	public Card(int cost, int points, CardColor color, String name, String text) {
+		this(-1, -1, cost, points, color, name, text);
+	}
+	
+	/**
+	 * Create a new card of a card catalog.
+	 * 
+	 * @param id		The instance id of this card, unique for every physical card of the catalog.
+	 * @param typeId	The type id of this card, shared by all copies of the same card.
+	 */
+	public Card(int id, int typeId, int cost, int points, CardColor color, String name, String text) {
+		this.id = id;
+		this.typeId = typeId;
 		this.cost = cost;
 		this.points = points;
 		this.color = color;
@@ -10,6 +26,18 @@ public class Card {
 		this.text = text;
 	}
 	
+	/**
+	 * The instance id of this card in its catalog, ranging from zero to the number of cards in the
+	 * catalog minus one. The value is -1 if this card does not belong to a catalog.
+	 */
+	public final int id;
+	
+	/**
+	 * The type id of this card in its catalog, ranging from zero to the number of different cards
+	 * in the catalog minus one. The value is -1 if this card does not belong to a catalog.
+	 */
+	public final int typeId;
+	
 	public final int cost;
 	
 	public final int points;
@@ -20,6 +48,43 @@ public class Card {
 	
 	public final String text;
 	
+	/**
+	 * This method returns true if the given card is of the same type as this card.
+	 * 
+	 * @param card	The card to be compared.
+	 * 
+	 * @return		A boolean stating if both cards are copies of the same card.
+	 */
+	public boolean isSameType(Card card) {
+		if ((this.typeId >= 0) && (card.typeId >= 0)) {
+			return this.typeId == card.typeId;
+		}
+		return this.name.equals(card.name);
+	}
+	
+	/**
+	 * Two cards of a catalog are equal if they have the same instance id. A card without instance
+	 * id is only equal to itself.
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof Card) || (this.id < 0)) {
+			return false;
+		}
+		return this.id == ((Card) object).id;
+	}
+	
+	@Override
+	public int hashCode() {
+		if (this.id < 0) {
+			return super.hashCode();
+		}
+		return this.id;
+	}
+	
 	public String toString() {
 		String result = "Card: cost=".concat(Integer.toString(this.cost));
 		result = result.concat(" points=").concat(Integer.toString(this.points));
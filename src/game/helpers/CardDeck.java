@@ -1,87 +1,170 @@
 package game.helpers;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
 
+import game.cards.CardCatalog;
 import game.cards.CardsParser;
 
 public class CardDeck {
 	
 	/**
-	 * This constructor generates a new deck of cards.
+	 * This constructor generates a new deck of cards, shuffled with a new random generator.
 	 * 
 	 * @param cards	The different cards to be put in the deck.
 	 */
 	public CardDeck(Set<Card> cards, String dbFileName) {
-		this.dbFileName = dbFileName;
-		if (cards == null) {
-			this.cards = this.initializeCards();
-		}
-		else {
-			this.cards = cards;
-		}
-		this.drawnCards = new HashSet<Card>();
+		this(cards, dbFileName, new Random());
+	}
+	
+	/**
+	 * This constructor generates a new deck of cards. All shuffles of this deck are done with the
+	 * given random generator. Cards without instance ids are replaced by cards of a new catalog.
+	 * 
+	 * @param cards		The different cards to be put in the deck. The given set is not modified. If
+	 * 					it is the null object, the cards are read from the given database, or from
+	 * 					the shared default catalog if no database is given.
+	 * @param random	The random generator of this deck.
+	 */
+	public CardDeck(Set<Card> cards, String dbFileName, Random random) {
+		this(CardDeck.initializeCatalog(cards, dbFileName), random);
 	}
 	
-	private final String dbFileName;
+	/**
+	 * This constructor generates a new deck containing all cards of the given catalog. The catalog
+	 * is shared and not copied, the deck only holds the instance ids of its cards.
+	 * 
+	 * @param catalog	The catalog of the cards to be put in the deck.
+	 * @param random	The random generator of this deck.
+	 */
+	public CardDeck(CardCatalog catalog, Random random) {
+		this.catalog = catalog;
+		this.random = random;
+		this.cards = catalog.getCardIds();
+		this.numberCards = this.cards.length;
+		this.drawnCards = new int[this.cards.length];
+		this.numberDrawnCards = 0;
+		this.shuffle(this.cards, this.numberCards);
+	}
 	
 	/**
-	 * This method generates a set of cards to play the game.
+	 * This method returns the catalog of the given cards.
 	 * 
-	 * @return	A fresh initialized set of cards.
+	 * @param cards			The cards of the catalog, or the null object.
+	 * @param dbFileName	The database to read the cards from if no cards are given, or the null
+	 * 						object to use the shared default catalog.
+	 * 
+	 * @return	The catalog of the cards of a new deck.
 	 */
-	private Set<Card> initializeCards() {
-		CardsParser parser = new CardsParser(this.dbFileName);
-		return parser.getCards();
+	private static CardCatalog initializeCatalog(Set<Card> cards, String dbFileName) {
+		if (cards != null) {
+			return CardCatalog.of(cards);
+		}
+		if (dbFileName == null) {
+			return CardCatalog.getDefault();
+		}
+		return new CardsParser(dbFileName).getCatalog();
 	}
 	
-	private Set<Card> cards;
+	private final CardCatalog catalog;
 	
-	private Set<Card> drawnCards;
+	public CardCatalog getCatalog() {
+		return this.catalog;
+	}
+	
+	private final Random random;
+	
+	/**
+	 * The instance ids of the shuffled cards that can still be drawn. The top of the deck is at
+	 * index numberCards-1.
+	 */
+	private int[] cards;
+	
+	private int numberCards;
+	
+	/**
+	 * The instance ids of the cards that have been returned to the deck. They will be shuffled and
+	 * drawn after the other cards have been exhausted.
+	 */
+	private int[] drawnCards;
+	
+	private int numberDrawnCards;
 	
 	/**
 	 * This method draws a card from the set of cards, that has not been drawn before.
 	 * 
 	 * @param numberCards	The number of cards to be drawn
 	 * 
-	 * @return	A set of cards containing numberCards cards that have not been drawn before.
+	 * @return	A set of cards containing numberCards cards that have not been drawn before. If the
+	 * 			deck and the returned cards together contain less cards, all of them are returned.
 	 */
 	public Set<Card> drawCard(int numberCards) {
 		Set<Card> result = new HashSet<Card>(numberCards);
-		if (this.cards.size() < numberCards) {
-			for (Card card : this.cards) {
-				result.add(card);
-			}
-			int remaining = numberCards - this.cards.size();
-			this.cards = new HashSet<Card>(this.drawnCards.size());
-			for (Card card : this.drawnCards) {
-				this.cards.add(card);
+		for (int i = 0; i < numberCards; i++) {
+			Card card = this.drawCard();
+			if (card == null) {
+				break;
 			}
-			this.drawnCards = new HashSet<Card>();
-			result.addAll(this.popRandCards(remaining));
-		}
-		else {
-			result.addAll(this.popRandCards(numberCards));
+			result.add(card);
 		}
 		return result;
 	}
 	
-	private Set<Card> popRandCards(int numberCards) {
-		Set<Card> result = new HashSet<Card>(numberCards);
-		for (int i = 0; i < numberCards; i++) {
-			int item = new Random().nextInt(this.cards.size());
-			int j = 0;
-			for (Card card : this.cards) {
-				if (j == item) {
-					result.add(card);
-					this.cards.remove(card);
-					break;
-				}
-				j++;
+	/**
+	 * This method draws the top card of the deck. If the deck is empty, the returned cards are
+	 * shuffled and become the new deck.
+	 * 
+	 * @return	The drawn card, or the null object if the deck and the returned cards are both
+	 * 			empty.
+	 */
+	public Card drawCard() {
+		if (this.numberCards == 0) {
+			this.reshuffle();
+			if (this.numberCards == 0) {
+				return null;
 			}
 		}
-		return result;
+		this.numberCards --;
+		return this.catalog.getCard(this.cards[this.numberCards]);
+	}
+	
+	/**
+	 * This method returns the number of cards that can be drawn, including the returned cards.
+	 * 
+	 * @return	An integer representing the number of cards left in this deck.
+	 */
+	public int getNumberCards() {
+		return this.numberCards + this.numberDrawnCards;
+	}
+	
+	/**
+	 * Make the returned cards the new deck and shuffle it. The empty deck becomes the pile for the
+	 * returned cards, such that no arrays are allocated.
+	 */
+	private void reshuffle() {
+		int[] emptyCards = this.cards;
+		this.cards = this.drawnCards;
+		this.numberCards = this.numberDrawnCards;
+		this.drawnCards = emptyCards;
+		this.numberDrawnCards = 0;
+		this.shuffle(this.cards, this.numberCards);
+	}
+	
+	/**
+	 * Shuffle the first length cards of the given array in place, with the Fisher-Yates algorithm.
+	 * 
+	 * @param cards		The array of instance ids to be shuffled.
+	 * @param length	The number of cards in the array.
+	 */
+	private void shuffle(int[] cards, int length) {
+		for (int i = length - 1; i > 0; i--) {
+			int j = this.random.nextInt(i + 1);
+			int card = cards[i];
+			cards[i] = cards[j];
+			cards[j] = card;
+		}
 	}
 	
 	/**
@@ -91,7 +174,28 @@ public class CardDeck {
 	 */
 	public void returnCards(Set<Card> cards) {
 		for (Card card : cards) {
-			this.drawnCards.add(card);
+			this.returnCard(card);
+		}
+	}
+	
+	/**
+	 * This method returns the given card to the back of the deck.
+	 * 
+	 * @param card	The card to be returned.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the given card is not a card of the catalog of this deck.
+	 */
+	public void returnCard(Card card) {
+		if ((card.id < 0) || (card.id >= this.catalog.getNumberCards()) || (this.catalog.getCard(card.id) != card)) {
+			throw new IllegalArgumentException("Card not in the catalog of this deck: ".concat(card.name));
+		}
+		if (this.numberDrawnCards == this.drawnCards.length) {
+			int length = Math.max(8, 2 * this.drawnCards.length);
+			this.drawnCards = Arrays.copyOf(this.drawnCards, length);
+			this.cards = Arrays.copyOf(this.cards, length);
 		}
+		this.drawnCards[this.numberDrawnCards] = card.id;
+		this.numberDrawnCards ++;
 	}
 }
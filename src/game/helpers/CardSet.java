@@ -0,0 +1,323 @@
+package game.helpers;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import game.cards.CardCatalog;
+
+/**
+ * A set of cards of one card catalog, represented by a bitset over the instance ids of the cards.
+ * A catalog contains at most 128 cards, so the set fits in two words and union, difference,
+ * containsAll and size are a few bit operations. Cards without an instance id cannot be added to
+ * this set.
+ */
+public class CardSet extends AbstractSet<Card> {
+	
+	/**
+	 * Create a new empty set of cards of the given catalog.
+	 * 
+	 * @param catalog	The catalog of the cards in this set.
+	 */
+	public CardSet(CardCatalog catalog) {
+		this.catalog = catalog;
+	}
+	
+	/**
+	 * Create a new set containing the same cards as the given set.
+	 * 
+	 * @param cards	The set of cards to be copied.
+	 */
+	public CardSet(CardSet cards) {
+		this.catalog = cards.catalog;
+		this.low = cards.low;
+		this.high = cards.high;
+	}
+	
+	/**
+	 * Create a new set of cards of the given catalog, containing the given cards.
+	 * 
+	 * @param catalog	The catalog of the cards in this set.
+	 * @param cards		The cards to be added to this set.
+	 */
+	public CardSet(CardCatalog catalog, Collection<Card> cards) {
+		this.catalog = catalog;
+		this.addAll(cards);
+	}
+	
+	private final CardCatalog catalog;
+	
+	public CardCatalog getCatalog() {
+		return this.catalog;
+	}
+	
+	/**
+	 * The bits of the cards with instance ids 0 to 63.
+	 */
+	private long low;
+	
+	/**
+	 * The bits of the cards with instance ids 64 to 127.
+	 */
+	private long high;
+	
+	/**
+	 * This method returns true if the card with the given instance id is in this set.
+	 * 
+	 * @param id	An integer representing the instance id of a card.
+	 * 
+	 * @return		A boolean stating if the card is in this set.
+	 */
+	public boolean containsId(int id) {
+		if (id < 64) {
+			return (this.low & (1L << id)) != 0;
+		}
+		return (this.high & (1L << (id - 64))) != 0;
+	}
+	
+	/**
+	 * Add the card with the given instance id to this set.
+	 * 
+	 * @param id	An integer representing the instance id of a card.
+	 * 
+	 * @return		A boolean stating if this set has changed.
+	 */
+	public boolean addId(int id) {
+		boolean absent = !this.containsId(id);
+		if (id < 64) {
+			this.low |= 1L << id;
+		}
+		else {
+			this.high |= 1L << (id - 64);
+		}
+		return absent;
+	}
+	
+	/**
+	 * Remove the card with the given instance id from this set.
+	 * 
+	 * @param id	An integer representing the instance id of a card.
+	 * 
+	 * @return		A boolean stating if this set has changed.
+	 */
+	public boolean removeId(int id) {
+		boolean present = this.containsId(id);
+		if (id < 64) {
+			this.low &= ~(1L << id);
+		}
+		else {
+			this.high &= ~(1L << (id - 64));
+		}
+		return present;
+	}
+	
+	@Override
+	public int size() {
+		return Long.bitCount(this.low) + Long.bitCount(this.high);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return (this.low | this.high) == 0;
+	}
+	
+	@Override
+	public boolean contains(Object object) {
+		if (!(object instanceof Card)) {
+			return false;
+		}
+		int id = ((Card) object).id;
+		return (id >= 0) && (id < CardCatalog.MAX_CARDS) && this.containsId(id);
+	}
+	
+	/**
+	 * Add the given card to this set.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the given card has no instance id.
+	 */
+	@Override
+	public boolean add(Card card) {
+		if ((card.id < 0) || (card.id >= CardCatalog.MAX_CARDS)) {
+			throw new IllegalArgumentException("Card without instance id: ".concat(card.name));
+		}
+		return this.addId(card.id);
+	}
+	
+	@Override
+	public boolean remove(Object object) {
+		if (!this.contains(object)) {
+			return false;
+		}
+		return this.removeId(((Card) object).id);
+	}
+	
+	@Override
+	public void clear() {
+		this.low = 0;
+		this.high = 0;
+	}
+	
+	@Override
+	public boolean containsAll(Collection<?> cards) {
+		if (cards instanceof CardSet) {
+			CardSet other = (CardSet) cards;
+			return ((other.low & ~this.low) | (other.high & ~this.high)) == 0;
+		}
+		return super.containsAll(cards);
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends Card> cards) {
+		if (cards instanceof CardSet) {
+			CardSet other = (CardSet) cards;
+			long oldLow = this.low;
+			long oldHigh = this.high;
+			this.low |= other.low;
+			this.high |= other.high;
+			return (oldLow != this.low) || (oldHigh != this.high);
+		}
+		return super.addAll(cards);
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> cards) {
+		if (cards instanceof CardSet) {
+			CardSet other = (CardSet) cards;
+			long oldLow = this.low;
+			long oldHigh = this.high;
+			this.low &= ~other.low;
+			this.high &= ~other.high;
+			return (oldLow != this.low) || (oldHigh != this.high);
+		}
+		boolean changed = false;
+		for (Object card : cards) {
+			changed |= this.remove(card);
+		}
+		return changed;
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> cards) {
+		if (cards instanceof CardSet) {
+			CardSet other = (CardSet) cards;
+			long oldLow = this.low;
+			long oldHigh = this.high;
+			this.low &= other.low;
+			this.high &= other.high;
+			return (oldLow != this.low) || (oldHigh != this.high);
+		}
+		return super.retainAll(cards);
+	}
+	
+	/**
+	 * This method returns a new set containing the cards of this set and of the given set.
+	 * 
+	 * @param cards	The set of cards to be joined with this set.
+	 * 
+	 * @return		A new set representing the union of both sets.
+	 */
+	public CardSet union(CardSet cards) {
+		CardSet result = new CardSet(this);
+		result.low |= cards.low;
+		result.high |= cards.high;
+		return result;
+	}
+	
+	/**
+	 * This method returns a new set containing the cards of this set that are not in the given set.
+	 * 
+	 * @param cards	The set of cards to be subtracted from this set.
+	 * 
+	 * @return		A new set representing the difference of both sets.
+	 */
+	public CardSet difference(CardSet cards) {
+		CardSet result = new CardSet(this);
+		result.low &= ~cards.low;
+		result.high &= ~cards.high;
+		return result;
+	}
+	
+	/**
+	 * This method returns the lowest instance id in this set that is greater than or equal to the
+	 * given id, or -1 if there is no such id. This allows to iterate over the ids without
+	 * allocating an iterator.
+	 * 
+	 * @param id	An integer representing the first instance id to be checked.
+	 * 
+	 * @return		The next instance id in this set.
+	 */
+	public int nextId(int id) {
+		if (id < 64) {
+			long word = this.low & (-1L << id);
+			if (word != 0) {
+				return Long.numberOfTrailingZeros(word);
+			}
+			id = 64;
+		}
+		if (id < CardCatalog.MAX_CARDS) {
+			long word = this.high & (-1L << (id - 64));
+			if (word != 0) {
+				return 64 + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public Iterator<Card> iterator() {
+		return new Iterator<Card>() {
+			
+			private int next = CardSet.this.nextId(0);
+			
+			private int last = -1;
+			
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+			
+			@Override
+			public Card next() {
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.last = this.next;
+				this.next = CardSet.this.nextId(this.next + 1);
+				return CardSet.this.catalog.getCard(this.last);
+			}
+			
+			@Override
+			public void remove() {
+				if (this.last < 0) {
+					throw new IllegalStateException();
+				}
+				CardSet.this.removeId(this.last);
+				this.last = -1;
+			}
+		};
+	}
+	
+	@Override
+	public boolean equals(Object object) {
+		if (object instanceof CardSet) {
+			CardSet other = (CardSet) object;
+			return (this.low == other.low) && (this.high == other.high);
+		}
+		return super.equals(object);
+	}
+	
+	/**
+	 * The hash code is the sum of the instance ids, which equals the sum of the hash codes of the
+	 * cards as required by the Set interface.
+	 */
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (int id = this.nextId(0); id >= 0; id = this.nextId(id + 1)) {
+			result += id;
+		}
+		return result;
+	}
+}
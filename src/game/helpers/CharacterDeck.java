@@ -1,7 +1,6 @@
 package game.helpers;
 
 import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Random;
 import java.util.Set;
@@ -18,6 +17,19 @@ public class CharacterDeck implements Iterable<Character> {
 	 * 						to initialize with the standard deck of 8 characters.
 	 */
 	public CharacterDeck(Set<Character> characters) {
+		this(characters, new Random());
+	}
+	
+	/**
+	 * Create a new instance of the CharacterDeck class, that pops random characters with the given
+	 * random generator.
+	 * 
+	 * @param characters	A set of characters to initialize this deck. Provide the null object 
+	 * 						to initialize with the standard deck of 8 characters.
+	 * @param random		The random generator of this deck.
+	 */
+	public CharacterDeck(Set<Character> characters, Random random) {
+		this.random = random;
 		if (characters == null) {
 			this.characters = this.initializeCharacters();
 		}
@@ -38,6 +50,8 @@ public class CharacterDeck implements Iterable<Character> {
 	
 	private Set<Character> characters;
 	
+	private final Random random;
+	
 	/**
 	 * Provide a characterIterator to iterate over this deck of characters.
 	 * 
@@ -58,7 +72,7 @@ public class CharacterDeck implements Iterable<Character> {
 		if (this.availableChars.size() == 0) {
 			return null;
 		}
-		int item = new Random().nextInt(this.availableChars.size());
+		int item = this.random.nextInt(this.availableChars.size());
 		int i = 0;
 		for (Character character : this.availableChars) {
 			if (i == item) {
@@ -79,18 +93,19 @@ public class CharacterDeck implements Iterable<Character> {
 	 * @return	A random character that has not yet been chosen, that is not the king.
 	 */
 	public Character popCharNoKing() {
-		HashSet<Character> otherChars = new HashSet<Character>(this.availableChars.size());
-		for (Character character : this.availableChars) {
-			if (!character.equals(Character.KONING)) {
-				otherChars.add(character);
-			}
+		int numberOtherChars = this.availableChars.size();
+		if (this.availableChars.contains(Character.KONING)) {
+			numberOtherChars --;
 		}
-		if (otherChars.size() == 0) {
+		if (numberOtherChars == 0) {
 			return null;
 		}
-		int item = new Random().nextInt(otherChars.size());
+		int item = this.random.nextInt(numberOtherChars);
 		int i = 0;
-		for (Character character : otherChars) {
+		for (Character character : this.availableChars) {
+			if (character == Character.KONING) {
+				continue;
+			}
 			if (i == item) {
 				this.availableChars.remove(character);
 				return character;
@@ -104,7 +119,7 @@ public class CharacterDeck implements Iterable<Character> {
 	 * Refresh the available character, such that all characters can again be chosen.
 	 */
 	public void resetAvailableChars() {
-		this.availableChars = new HashSet<Character>(8);
+		this.availableChars.clear();
 		for (Character character : this) {
 			this.availableChars.add(character);
 		}
@@ -113,14 +128,10 @@ public class CharacterDeck implements Iterable<Character> {
 	/**
 	 * This method returns a set containing all characters that have not yet been chosen.
 	 * 
-	 * @return	A HashSet instance containing all characters ready to choose.
+	 * @return	A new set containing all characters ready to choose, in the order of their number.
 	 */
-	public HashSet<Character> getAvailableChars() {
-		HashSet<Character> result = new HashSet<Character>(this.availableChars.size());
-		for (Character character : this.availableChars) {
-			result.add(character);
-		}
-		return result;
+	public Set<Character> getAvailableChars() {
+		return EnumSet.copyOf(this.availableChars);
 	}
 	
 	/**
@@ -157,9 +168,10 @@ public class CharacterDeck implements Iterable<Character> {
 	}
 	
 	/**
-	 * Keep track of which characters have already been chosen by the players.
+	 * Keep track of which characters have already been chosen by the players. An EnumSet iterates
+	 * in the order of the characters, which makes the random picks reproducible.
 	 */
-	private HashSet<Character> availableChars;
+	private final EnumSet<Character> availableChars = EnumSet.noneOf(Character.class);
 	
 	/**
 	 * This class provides an implementation of the java.util.Iterator interface, to iterate
@@ -14,6 +14,10 @@ public class KoningMove extends CharMove {
 		this.coinBuildings = coinBuildings;
 	}
 	
+	public Set<Card> getCoinBuildings() {
+		return this.coinBuildings;
+	}
+	
 	private final Set<Card> coinBuildings;
 
 	@Override
@@ -45,7 +45,7 @@ public class MagierMove extends CharMove {
 	@Override
 	public boolean isValid(Engine engine, int currentPlayerNumber) {
 		if (this.isOtherPlayer()) {
-			return this.otherPlayerNumber != currentPlayerNumber;
+			return (this.otherPlayerNumber >= 0) && (this.otherPlayerNumber < engine.getNumberPlayers()) && (this.otherPlayerNumber != currentPlayerNumber);
 		}
 		else {
 			Set<Card> currentCards = engine.getCards(currentPlayerNumber);
@@ -0,0 +1,24 @@
+package game.helpers.charMove;
+
+import game.engine.Engine;
+
+public class NoMove extends CharMove {
+	
+	/**
+	 * This constructor generates a move that does nothing. A player returns this move if he does
+	 * not want to play the special move of his character at this moment.
+	 */
+	public NoMove() {
+		super(null);
+	}
+
+	@Override
+	public boolean isValid(Engine engine, int currentPlayerNumber) {
+		return true;
+	}
+
+	@Override
+	public void execute(Engine engine, int currentPlayerNumber) {
+	}
+
+}
@@ -0,0 +1,74 @@
+package game.host;
+
+import org.java_websocket.WebSocket;
+
+import game.protocol.OutboundQueue;
+
+/**
+ * A websocket connection of a client, identified by its session id. A connection is seated at
+ * most at one table, on the seat with the given number. The seat is the place of a player at the
+ * table, see Table.getSeat(), and not his player number in the game, which is only assigned when
+ * the game begins.
+ */
+public class Connection {
+	
+	/**
+	 * Create a new connection that has not joined a table yet.
+	 * 
+	 * @param sessionId	The unique id of the session of this connection.
+	 * @param socket	The websocket of this connection.
+	 * @param queue		The queue of the frames that still have to be sent over the socket.
+	 */
+	Connection(long sessionId, WebSocket socket, OutboundQueue queue) {
+		this.sessionId = sessionId;
+		this.socket = socket;
+		this.queue = queue;
+	}
+	
+	public final long sessionId;
+	
+	private final WebSocket socket;
+	
+	public WebSocket getSocket() {
+		return this.socket;
+	}
+	
+	private final OutboundQueue queue;
+	
+	public OutboundQueue getQueue() {
+		return this.queue;
+	}
+	
+	/**
+	 * This method returns the table this connection has joined, or -1 if it has not joined a
+	 * table.
+	 * 
+	 * @return	An integer representing the table of this connection.
+	 */
+	public int getTableId() {
+		return this.tableId;
+	}
+	
+	private volatile int tableId = -1;
+	
+	/**
+	 * This method returns the seat of this connection at its table, or -1 if it has not taken a
+	 * seat.
+	 * 
+	 * @return	An integer representing the seat of this connection.
+	 */
+	public int getSeat() {
+		return this.seat;
+	}
+	
+	private volatile int seat = -1;
+	
+	/**
+	 * Update the seat of this connection. Only the registry changes the seat, such that its indexes
+	 * stay consistent.
+	 */
+	void setSeat(int tableId, int seat) {
+		this.tableId = tableId;
+		this.seat = seat;
+	}
+}
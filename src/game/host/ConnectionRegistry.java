@@ -0,0 +1,325 @@
+package game.host;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.java_websocket.WebSocket;
+
+import game.protocol.OutboundQueue;
+import game.protocol.ProtocolEncoder;
+
+/**
+ * The registry of all connections of a server. The connections are indexed by session id and by
+ * socket, and the connections seated at a table are indexed by table and seat. All
+ * lookups are lock-free: the indexes are concurrent maps and the seats of a table are an atomic
+ * array, such that reaching the players of a table costs O(players) and never scans the other
+ * connections. The websocket threads and the table threads can use the registry concurrently.
+ * 
+ * The seats of a table are opened with openTable(), which issues a secret token for every seat. A
+ * connection can only take a seat by presenting its token, so a client cannot take the seat of
+ * another player.
+ */
+public class ConnectionRegistry {
+	
+	/**
+	 * Create a new registry. The outbound queues of the connections are created with the given
+	 * encoder and limits.
+	 * 
+	 * @param encoder			The encoder of the frames sent to the connections.
+	 * @param maxBytes			The maximum number of bytes queued for one connection.
+	 * @param highWaterMark		The number of queued bytes above which a connection is behind.
+	 * @param maxLagMillis		The time a connection may stay above the high-water mark.
+	 */
+	public ConnectionRegistry(ProtocolEncoder encoder, int maxBytes, int highWaterMark, long maxLagMillis) {
+		this.encoder = encoder;
+		this.maxBytes = maxBytes;
+		this.highWaterMark = highWaterMark;
+		this.maxLagMillis = maxLagMillis;
+	}
+	
+	private final ProtocolEncoder encoder;
+	
+	private final int maxBytes;
+	
+	private final int highWaterMark;
+	
+	private final long maxLagMillis;
+	
+	private final AtomicLong nextSessionId = new AtomicLong(1);
+	
+	private final ConcurrentHashMap<Long, Connection> sessions = new ConcurrentHashMap<Long, Connection>();
+	
+	private final ConcurrentHashMap<WebSocket, Connection> sockets = new ConcurrentHashMap<WebSocket, Connection>();
+	
+	/**
+	 * The seats of each table.
+	 */
+	private final ConcurrentHashMap<Integer, Seats> tables = new ConcurrentHashMap<Integer, Seats>();
+	
+	/**
+	 * The seats of a table: the connection seated on each seat and the token a connection has to
+	 * present to take the seat, both indexed by seat.
+	 */
+	private static final class Seats {
+		
+		Seats(long[] tokens) {
+			this.tokens = tokens;
+			this.connections = new AtomicReferenceArray<Connection>(tokens.length);
+		}
+		
+		final long[] tokens;
+		
+		final AtomicReferenceArray<Connection> connections;
+	}
+	
+	/**
+	 * The source of the tokens of the seats.
+	 */
+	private final SecureRandom random = new SecureRandom();
+	
+	/**
+	 * The maximum number of players at a table.
+	 */
+	public static final int MAX_PLAYERS = 7;
+	
+	/**
+	 * This method returns the connection of the given socket, a new session is created if the
+	 * socket has no connection yet.
+	 * 
+	 * @param socket	The websocket of the connection.
+	 * 
+	 * @return			The connection of the given socket.
+	 */
+	public Connection register(WebSocket socket) {
+		Connection connection = this.sockets.get(socket);
+		if (connection != null) {
+			return connection;
+		}
+		long sessionId = this.nextSessionId.getAndIncrement();
+		OutboundQueue queue = new OutboundQueue(socket, this.encoder, this.maxBytes, this.highWaterMark, this.maxLagMillis);
+		connection = new Connection(sessionId, socket, queue);
+		Connection existing = this.sockets.putIfAbsent(socket, connection);
+		if (existing != null) {
+			return existing;
+		}
+		this.sessions.put(sessionId, connection);
+		return connection;
+	}
+	
+	/**
+	 * Remove the connection of the given socket from the registry and from its seat. Its queued
+	 * frames are released.
+	 * 
+	 * @param socket	The websocket of the connection.
+	 * 
+	 * @return			The removed connection, or the null object if the socket was not registered.
+	 */
+	public Connection unregister(WebSocket socket) {
+		Connection connection = this.sockets.remove(socket);
+		if (connection == null) {
+			return null;
+		}
+		this.sessions.remove(connection.sessionId);
+		this.leave(connection);
+		connection.getQueue().clear();
+		return connection;
+	}
+	
+	public Connection getSession(long sessionId) {
+		return this.sessions.get(sessionId);
+	}
+	
+	public Connection getConnection(WebSocket socket) {
+		return this.sockets.get(socket);
+	}
+	
+	public Collection<Connection> getConnections() {
+		return this.sockets.values();
+	}
+	
+	public int getNumberConnections() {
+		return this.sockets.size();
+	}
+	
+	/**
+	 * Open the seats of the given table and issue the token of every seat. The tokens have to be
+	 * handed to the clients of the players, for example by the lobby that created the table, a
+	 * client presents its token when it joins the table.
+	 * 
+	 * @param tableId		An integer representing the table.
+	 * @param numberSeats	The number of players at the table.
+	 * 
+	 * @return				An array containing the token of every seat, indexed by seat.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the table id or the number of seats is not valid.
+	 * @throws IllegalStateException
+	 * 			If the seats of the table have already been opened.
+	 */
+	public long[] openTable(int tableId, int numberSeats) {
+		if ((tableId < 0) || (numberSeats < 1) || (numberSeats > ConnectionRegistry.MAX_PLAYERS)) {
+			throw new IllegalArgumentException("Invalid table ".concat(Integer.toString(tableId)).concat(" with ").concat(Integer.toString(numberSeats)).concat(" seats"));
+		}
+		long[] tokens = new long[numberSeats];
+		for (int i = 0; i < numberSeats; i++) {
+			tokens[i] = this.random.nextLong();
+		}
+		if (this.tables.putIfAbsent(tableId, new Seats(tokens)) != null) {
+			throw new IllegalStateException("The seats of table ".concat(Integer.toString(tableId)).concat(" are already open"));
+		}
+		return tokens.clone();
+	}
+	
+	/**
+	 * Seat the given connection at the given table on the given seat, if it presents the token
+	 * of that seat, see openTable(). The connection leaves its previous seat. The token stands for
+	 * the session of the player rather than for its socket: a connection presenting it replaces the
+	 * connection seated at the same place, which allows a client to reconnect with a new socket,
+	 * while a connection presenting another token is rejected and cannot evict the player. A
+	 * connection joining with seat -1 is assigned to the table without taking a seat and
+	 * without a token, it does not receive the broadcasts of the table.
+	 * 
+	 * @param connection	The connection to be seated.
+	 * @param tableId		An integer representing the table.
+	 * @param seat			An integer representing the seat at the table, or -1.
+	 * @param token			The token of the seat, it is ignored for seat -1.
+	 * 
+	 * @return				A boolean stating if the connection has joined the table. It is false if
+	 * 						the seats of the table have not been opened or the token is wrong.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the seat is not valid.
+	 */
+	public boolean join(Connection connection, int tableId, int seat, long token) {
+		if ((tableId < 0) || (seat < -1) || (seat >= ConnectionRegistry.MAX_PLAYERS)) {
+			throw new IllegalArgumentException("Invalid seat ".concat(Integer.toString(tableId)).concat(":").concat(Integer.toString(seat)));
+		}
+		if (seat < 0) {
+			if ((connection.getTableId() != tableId) || (connection.getSeat() != -1)) {
+				this.leave(connection);
+				connection.setSeat(tableId, -1);
+			}
+			return true;
+		}
+		Seats seats = this.tables.get(tableId);
+		if ((seats == null) || (seat >= seats.tokens.length) || (seats.tokens[seat] != token)) {
+			return false;
+		}
+		if ((connection.getTableId() == tableId) && (connection.getSeat() == seat)) {
+			return true;
+		}
+		this.leave(connection);
+		connection.setSeat(tableId, seat);
+		Connection previous = seats.connections.getAndSet(seat, connection);
+		if ((previous != null) && (previous != connection)) {
+			previous.setSeat(-1, -1);
+		}
+		return true;
+	}
+	
+	/**
+	 * Remove the given connection from its seat, if it is still seated there.
+	 * 
+	 * @param connection	The connection that leaves its table.
+	 */
+	public void leave(Connection connection) {
+		int tableId = connection.getTableId();
+		int seat = connection.getSeat();
+		if (tableId < 0) {
+			return;
+		}
+		Seats seats = this.tables.get(tableId);
+		if ((seats != null) && (seat >= 0)) {
+			seats.connections.compareAndSet(seat, connection, null);
+		}
+		connection.setSeat(-1, -1);
+	}
+	
+	/**
+	 * Remove the index of the given table, for example when its game has ended. The connections
+	 * stay registered but are no longer seated, the tokens of the seats are no longer valid.
+	 * 
+	 * @param tableId	An integer representing the table.
+	 */
+	public void removeTable(int tableId) {
+		Seats seats = this.tables.remove(tableId);
+		if (seats == null) {
+			return;
+		}
+		for (int i = 0; i < seats.connections.length(); i++) {
+			Connection connection = seats.connections.get(i);
+			if ((connection != null) && (connection.getTableId() == tableId)) {
+				connection.setSeat(-1, -1);
+			}
+		}
+	}
+	
+	/**
+	 * This method returns the connection seated at the given table on the given seat.
+	 * 
+	 * @param tableId	An integer representing the table.
+	 * @param seat		An integer representing the seat at the table.
+	 * 
+	 * @return			The connection on the seat, or the null object if the seat is empty.
+	 */
+	public Connection getPlayer(int tableId, int seat) {
+		Seats seats = this.tables.get(tableId);
+		if ((seats == null) || (seat < 0) || (seat >= seats.connections.length())) {
+			return null;
+		}
+		return seats.connections.get(seat);
+	}
+	
+	/**
+	 * Queue a copy of the given frame for every connection seated at the given table and flush the
+	 * queues. The given frame is released afterwards.
+	 * 
+	 * @param tableId	An integer representing the table.
+	 * @param frame		A frame encoded by the encoder of this registry.
+	 * 
+	 * @return			The number of connections the frame was queued for.
+	 */
+	public int broadcast(int tableId, ByteBuffer frame) {
+		int result = 0;
+		Seats seats = this.tables.get(tableId);
+		if (seats != null) {
+			for (int i = 0; i < seats.connections.length(); i++) {
+				Connection connection = seats.connections.get(i);
+				if (connection != null) {
+					if (this.send(connection, this.copy(frame))) {
+						result ++;
+					}
+				}
+			}
+		}
+		this.encoder.release(frame);
+		return result;
+	}
+	
+	/**
+	 * Queue the given frame for the given connection and try to send it immediately. The
+	 * connection takes ownership of the frame.
+	 * 
+	 * @param connection	The connection the frame is sent to.
+	 * @param frame			A frame encoded by the encoder of this registry.
+	 * 
+	 * @return				A boolean stating if the frame has been queued.
+	 */
+	public boolean send(Connection connection, ByteBuffer frame) {
+		OutboundQueue queue = connection.getQueue();
+		boolean queued = queue.offer(frame);
+		queue.flush();
+		return queued;
+	}
+	
+	private ByteBuffer copy(ByteBuffer frame) {
+		ByteBuffer result = this.encoder.getPool().acquire();
+		result.put(frame.duplicate());
+		result.flip();
+		return result;
+	}
+}
@@ -0,0 +1,295 @@
+package game.host;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.engine.Engine;
+import game.engine.GameRecord;
+import game.journal.GameJournal;
+import game.player.Player;
+import helpers.SocketMessage;
+
+/**
+ * The game scheduler hosts many tables side by side in one process. Every table gets its own
+ * serial execution context, which acts as the mailbox of the table: messages are enqueued by the
+ * websocket threads and handled one at a time by a worker thread. A slow table therefore never
+ * holds up the websocket threads or the other tables. The contexts run on one of three backends:
+ *  - A shared pool of worker threads sized to the number of available cores (the default).
+ *  - A sharded executor, which pins every table to one single-threaded shard. The state of a
+ *    table then always stays on the same core and no two tables of a shard compete for a lock.
+ *  - Virtual threads, one per drain of a mailbox, if the runtime supports them.
+ * Tables that run their game in blocking mode get one game thread each, again a virtual thread if
+ * the runtime supports them.
+ */
+public class GameScheduler {
+	
+	/**
+	 * Create a new scheduler with one worker thread per available core.
+	 */
+	public GameScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Create a new scheduler with the given number of worker threads.
+	 * 
+	 * @param numberThreads	An integer representing the number of worker threads.
+	 */
+	public GameScheduler(int numberThreads) {
+		this(new ExecutorService[] {Executors.newFixedThreadPool(numberThreads, new NamedThreadFactory("table-worker"))});
+	}
+	
+	/**
+	 * Create a new scheduler that runs the tables on the given executors. A table is assigned to
+	 * the executor with the index of its id modulo the number of executors.
+	 * 
+	 * @param workers	An array of the executors of the tables.
+	 */
+	private GameScheduler(ExecutorService[] workers) {
+		this.workers = workers;
+		ExecutorService gameThreads = GameScheduler.newVirtualThreadExecutor();
+		if (gameThreads == null) {
+			gameThreads = Executors.newCachedThreadPool(new NamedThreadFactory("game"));
+		}
+		this.gameThreads = gameThreads;
+		this.tables = new ConcurrentHashMap<Integer, Table>();
+		this.nextTableId = new AtomicInteger(0);
+	}
+	
+	/**
+	 * Create a new scheduler with the given number of shards. Every shard is a single worker
+	 * thread, all messages of a table are handled by the thread of its shard.
+	 * 
+	 * @param numberShards	An integer representing the number of shards.
+	 * 
+	 * @return				The new scheduler.
+	 */
+	public static GameScheduler sharded(int numberShards) {
+		if (numberShards < 1) {
+			throw new IllegalArgumentException("A scheduler needs at least one shard.");
+		}
+		ExecutorService[] shards = new ExecutorService[numberShards];
+		for (int i = 0; i < numberShards; i++) {
+			shards[i] = Executors.newSingleThreadExecutor(new NamedThreadFactory("table-shard-".concat(Integer.toString(i))));
+		}
+		return new GameScheduler(shards);
+	}
+	
+	/**
+	 * Create a new scheduler that handles the messages of the tables on virtual threads. If the
+	 * runtime does not support virtual threads, a scheduler with one worker thread per available
+	 * core is returned.
+	 * 
+	 * @return	The new scheduler.
+	 */
+	public static GameScheduler virtual() {
+		ExecutorService executor = GameScheduler.newVirtualThreadExecutor();
+		if (executor == null) {
+			return new GameScheduler();
+		}
+		return new GameScheduler(new ExecutorService[] {executor});
+	}
+	
+	/**
+	 * This method returns an executor that starts a new virtual thread for every task, or the null
+	 * object if the runtime does not support virtual threads. The executor is looked up
+	 * reflectively, such that this code still runs on older runtimes.
+	 * 
+	 * @return	An executor running every task on a new virtual thread.
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * The executors that run the serial contexts of the tables.
+	 */
+	private final ExecutorService[] workers;
+	
+	/**
+	 * The threads that run the games of the tables in blocking mode, one thread per game. These
+	 * are virtual threads if the runtime supports them.
+	 */
+	private final ExecutorService gameThreads;
+	
+	/**
+	 * This method returns the number of executors the tables are spread over.
+	 * 
+	 * @return	An integer representing the number of shards of this scheduler.
+	 */
+	public int getNumberShards() {
+		return this.workers.length;
+	}
+	
+	private final ConcurrentHashMap<Integer, Table> tables;
+	
+	private final AtomicInteger nextTableId;
+	
+	/**
+	 * Create a new table for the given players. The game will not be started until the start()
+	 * method of the table is invoked. The engines of all tables run in event driven mode, such
+	 * that a table waiting for its players does not occupy any thread.
+	 * 
+	 * @param players	A set of players that will participate in the game of the new table.
+	 * 
+	 * @return			The newly created table.
+	 */
+	public Table createTable(Set<Player> players) {
+		List<Player> seats = new ArrayList<Player>(players);
+		Engine engine = new Engine(players, null, null);
+		GameJournal journal = this.journal;
+		if (journal != null) {
+			journal.startGame(engine);
+		}
+		return this.addTable(seats, engine);
+	}
+	
+	/**
+	 * Create a new table for an unfinished game of the journal of this scheduler. The game is
+	 * rebuilt by replaying its record, the given players are notified of everything that happened
+	 * in the game. The game continues when the start() or startBlocking() method of the table is
+	 * invoked, its inputs are journaled again.
+	 * 
+	 * @param gameId	The id of the game in the journal.
+	 * @param players	A set of players that will continue the game, it should contain as many
+	 * 					players as the recorded game.
+	 * 
+	 * @return			The table of the rebuilt game.
+	 * 
+	 * @throws IllegalStateException
+	 * 					If this scheduler has no journal or the game is not an unfinished game of
+	 * 					the journal.
+	 */
+	public Table restoreTable(long gameId, Set<Player> players) {
+		GameJournal journal = this.journal;
+		GameRecord record = (journal == null) ? null : journal.getUnfinishedGames().get(gameId);
+		if (record == null) {
+			throw new IllegalStateException("No unfinished game ".concat(Long.toString(gameId)).concat(" in the journal"));
+		}
+		List<Player> seats = new ArrayList<Player>(players);
+		Engine engine = record.replay(players);
+		journal.resumeGame(gameId, engine);
+		return this.addTable(seats, engine);
+	}
+	
+	private Table addTable(List<Player> players, Engine engine) {
+		int id = this.nextTableId.getAndIncrement();
+		ExecutorService worker = this.workers[Math.floorMod(id, this.workers.length)];
+		Table table = new Table(id, players, engine, new SerialExecutor(worker), this.gameThreads);
+		this.tables.put(id, table);
+		return table;
+	}
+	
+	/**
+	 * Set the journal the games of the tables created from now on are written to.
+	 * 
+	 * @param journal	The journal of this scheduler, or the null object to stop journaling.
+	 */
+	public void setJournal(GameJournal journal) {
+		this.journal = journal;
+	}
+	
+	public GameJournal getJournal() {
+		return this.journal;
+	}
+	
+	private volatile GameJournal journal;
+	
+	/**
+	 * This method returns the table with the given id. If no such table exists, the null object is
+	 * returned.
+	 * 
+	 * @param tableId	An integer representing the table to be returned.
+	 * 
+	 * @return			The table with the given id.
+	 */
+	public Table getTable(int tableId) {
+		return this.tables.get(tableId);
+	}
+	
+	/**
+	 * Remove the table with the given id from this scheduler.
+	 * 
+	 * @param tableId	An integer representing the table to be removed.
+	 */
+	public void removeTable(int tableId) {
+		this.tables.remove(tableId);
+	}
+	
+	public Collection<Table> getTables() {
+		return this.tables.values();
+	}
+	
+	public int getNumberTables() {
+		return this.tables.size();
+	}
+	
+	/**
+	 * Route the given message to the table with the given id. This method returns false if no such
+	 * table exists.
+	 * 
+	 * @param tableId	An integer representing the table that should receive the message.
+	 * @param message	The message to be routed.
+	 * 
+	 * @return			A boolean stating if the message was delivered to a table.
+	 */
+	public boolean route(int tableId, SocketMessage message) {
+		Table table = this.tables.get(tableId);
+		if (table == null) {
+			return false;
+		}
+		table.deliver(message);
+		return true;
+	}
+	
+	/**
+	 * Stop all worker threads of this scheduler. Tasks that are already submitted will still be
+	 * executed.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void shutdown() throws InterruptedException {
+		this.gameThreads.shutdown();
+		for (ExecutorService worker : this.workers) {
+			worker.shutdown();
+		}
+		for (ExecutorService worker : this.workers) {
+			worker.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * This thread factory creates daemon threads with a recognizable name.
+	 */
+	static class NamedThreadFactory implements ThreadFactory {
+		
+		public NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+		
+		private final String prefix;
+		
+		private final AtomicInteger number = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, this.prefix.concat("-").concat(Integer.toString(this.number.getAndIncrement())));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
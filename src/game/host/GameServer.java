@@ -0,0 +1,284 @@
+package game.host;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.WebSocket;
+
+import game.cards.CardCatalog;
+import game.protocol.Opcode;
+import game.protocol.OutboundQueue;
+import game.protocol.ProtocolDecoder;
+import game.protocol.ProtocolEncoder;
+import helpers.Server;
+import helpers.SocketMessage;
+
+/**
+ * This server routes every incoming message to the table it belongs to. A text message is
+ * addressed to a table by prefixing it with the table id, followed by a colon:
+ * "<tableId>:<payload>". A binary frame of the game protocol is routed to the table the
+ * connection has joined with a JOIN frame, which has to carry the token of the seat issued by
+ * openTable(). The connections are kept in a registry, indexed by
+ * session, table and seat, such that frames can be sent to the players of a table without
+ * locking.
+ * 
+ * No game logic runs on the websocket threads: they only parse the table id or decode the frame
+ * and enqueue the message in the mailbox of the table, the message itself is handled on the
+ * execution context of that table. Such a websocket thread serves many connections, a message
+ * handled on it would delay the messages of all those connections.
+ */
+public class GameServer extends Server {
+	
+	public GameServer(int port, GameScheduler scheduler) {
+		super(port);
+		this.scheduler = scheduler;
+		this.registry = new ConnectionRegistry(this.encoder, GameServer.MAX_QUEUED_BYTES, GameServer.HIGH_WATER_MARK, GameServer.MAX_LAG_MILLIS);
+	}
+	
+	private final GameScheduler scheduler;
+	
+	public GameScheduler getScheduler() {
+		return this.scheduler;
+	}
+	
+	/**
+	 * The registry of the connections of this server. A connection is assigned to the table it has
+	 * last sent a text message to, or to the seat it has joined with a JOIN frame.
+	 */
+	private final ConnectionRegistry registry;
+	
+	public ConnectionRegistry getRegistry() {
+		return this.registry;
+	}
+
+	@Override
+	public void handleMessage(SocketMessage t) {
+		if (t.isBinary()) {
+			this.handleFrame(t);
+			return;
+		}
+		int separator = t.message.indexOf(':');
+		if (separator <= 0) {
+			return;
+		}
+		int tableId;
+		try {
+			tableId = Integer.parseInt(t.message.substring(0, separator));
+		} catch (NumberFormatException e) {
+			return;
+		}
+		SocketMessage payload = new SocketMessage(t.sock, t.message.substring(separator+1), t.server);
+		if (this.scheduler.route(tableId, payload)) {
+			Connection connection = this.registry.register(t.sock);
+			if (connection.getTableId() != tableId) {
+				this.registry.join(connection, tableId, -1, 0);
+			}
+		}
+	}
+
+	/**
+	 * Route the given binary frame. A JOIN frame seats the connection at a table on the given seat
+	 * if it carries the token of that seat, a JOIN frame with a wrong token is dropped and leaves
+	 * the player seated there in place. The action frames of a seated connection are decoded on
+	 * the calling thread and the input is submitted to its table as the input of the player on its
+	 * seat. The action frames of a connection that has joined a table without a seat are delivered
+	 * to the message handler of the table, with the buffer positioned at the start of the frame.
+	 * Malformed frames and frames of connections without a table are dropped.
+	 * 
+	 * @param t	The message containing the frame.
+	 */
+	private void handleFrame(SocketMessage t) {
+		ByteBuffer frame = t.data.duplicate();
+		Opcode opcode;
+		try {
+			opcode = this.decoder.readHeader(frame);
+			if (opcode == Opcode.JOIN) {
+				int tableId = this.decoder.getVarInt(frame);
+				int seat = this.decoder.getVarInt(frame);
+				long token = this.decoder.getLong(frame);
+				this.decoder.checkEnd(frame);
+				if (this.scheduler.getTable(tableId) != null) {
+					this.registry.join(this.registry.register(t.sock), tableId, seat, token);
+				}
+				return;
+			}
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		Connection connection = this.registry.getConnection(t.sock);
+		if ((connection == null) || !opcode.isAction()) {
+			return;
+		}
+		int tableId = connection.getTableId();
+		int seat = connection.getSeat();
+		if (tableId < 0) {
+			return;
+		}
+		if (seat < 0) {
+			this.scheduler.route(tableId, t);
+			return;
+		}
+		Table table = this.scheduler.getTable(tableId);
+		if (table == null) {
+			return;
+		}
+		Object input;
+		try {
+			input = this.decoder.decodeInput(opcode, frame);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		table.submitInput(seat, ProtocolDecoder.getPhase(opcode), input);
+	}
+	
+	/**
+	 * Open the seats of the given table and issue the token of every seat. A client can only join
+	 * the table as a player with the token of its seat, the tokens have to be handed to the
+	 * clients of the players when the table is created.
+	 * 
+	 * @param table	The table to be opened.
+	 * 
+	 * @return		An array containing the token of every seat, indexed by seat, see
+	 * 				Table.getSeat().
+	 */
+	public long[] openTable(Table table) {
+		return this.registry.openTable(table.id, table.getNumberPlayers());
+	}
+	
+	/**
+	 * The decoder of the frames. The engines of the tables use the default card catalog, so its
+	 * cards can be decoded before the frame reaches the table.
+	 */
+	private final ProtocolDecoder decoder = new ProtocolDecoder(CardCatalog.getDefault());
+	
+	/**
+	 * The encoder of the frames sent by this server, its pool is shared by all connections.
+	 */
+	private final ProtocolEncoder encoder = new ProtocolEncoder();
+	
+	public ProtocolEncoder getEncoder() {
+		return this.encoder;
+	}
+	
+	/**
+	 * The maximum number of bytes queued for one connection. Frames sent to a full queue are
+	 * dropped and the connection is closed.
+	 */
+	public static final int MAX_QUEUED_BYTES = 256 * 1024;
+	
+	/**
+	 * The number of queued bytes above which a connection is considered behind.
+	 */
+	public static final int HIGH_WATER_MARK = 64 * 1024;
+	
+	/**
+	 * The time in milliseconds a connection may stay above the high-water mark before it is closed.
+	 */
+	public static final long MAX_LAG_MILLIS = 5000;
+	
+	/**
+	 * The interval in milliseconds at which the queues that could not be sent immediately are
+	 * retried.
+	 */
+	public static final long FLUSH_INTERVAL_MILLIS = 10;
+	
+	/**
+	 * Send the given frame to the given connection. The frame is queued and written as soon as the
+	 * connection has sent its buffered data, superseded state updates are dropped in the meantime.
+	 * This method never blocks and can be invoked from any thread.
+	 * 
+	 * @param sock	The connection the frame is sent to.
+	 * @param frame	A frame encoded by the encoder of this server. This server takes ownership of
+	 * 				the frame and releases it after it has been sent.
+	 * 
+	 * @return		A boolean stating if the frame has been queued. It is false if the queue of
+	 * 				the connection is full.
+	 */
+	public boolean send(WebSocket sock, ByteBuffer frame) {
+		return this.registry.send(this.registry.register(sock), frame);
+	}
+	
+	/**
+	 * Send the given frame to the connection on the given seat of the given table.
+	 * 
+	 * @param tableId	An integer representing the table.
+	 * @param seat		An integer representing the seat at the table.
+	 * @param frame		A frame encoded by the encoder of this server. This server takes ownership
+	 * 					of the frame.
+	 * 
+	 * @return			A boolean stating if the frame has been queued. It is false if no
+	 * 					connection is seated on the seat or if its queue is full.
+	 */
+	public boolean send(int tableId, int seat, ByteBuffer frame) {
+		Connection connection = this.registry.getPlayer(tableId, seat);
+		if (connection == null) {
+			this.encoder.release(frame);
+			return false;
+		}
+		return this.registry.send(connection, frame);
+	}
+	
+	/**
+	 * Send the given frame to all players seated at the given table.
+	 * 
+	 * @param tableId	An integer representing the table.
+	 * @param frame		A frame encoded by the encoder of this server. This server takes ownership of
+	 * 					the frame.
+	 * 
+	 * @return			The number of players the frame has been queued for.
+	 */
+	public int broadcast(int tableId, ByteBuffer frame) {
+		return this.registry.broadcast(tableId, frame);
+	}
+	
+	/**
+	 * Start the websocket server and the thread that flushes the outbound queues.
+	 */
+	@Override
+	public void start() {
+		super.start();
+		this.flusher.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				GameServer.this.flushQueues();
+			}
+			
+		}, GameServer.FLUSH_INTERVAL_MILLIS, GameServer.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(new GameScheduler.NamedThreadFactory("outbound-flusher"));
+	
+	/**
+	 * Retry all queues that still contain frames. Connections that have overflowed their queue or
+	 * stayed above the high-water mark for too long are closed, such that a slow client cannot
+	 * hold memory of the server.
+	 */
+	private void flushQueues() {
+		long now = System.currentTimeMillis();
+		for (Connection connection : this.registry.getConnections()) {
+			OutboundQueue queue = connection.getQueue();
+			if (queue.isOverflowed() || queue.isLagging(now)) {
+				queue.clear();
+				queue.getSocket().close();
+				continue;
+			}
+			queue.flush();
+		}
+	}
+	
+	@Override
+	public void handleClose(SocketMessage t) {
+		Connection connection = this.registry.getConnection(t.sock);
+		if (connection == null) {
+			return;
+		}
+		int tableId = connection.getTableId();
+		this.registry.unregister(t.sock);
+		if (tableId >= 0) {
+			this.scheduler.route(tableId, t);
+		}
+	}
+}
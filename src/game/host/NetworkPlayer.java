@@ -0,0 +1,307 @@
+package game.host;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import game.engine.Phase;
+import game.helpers.Card;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+import game.player.GameDelta;
+import game.player.Player;
+import game.protocol.ProtocolEncoder;
+
+/**
+ * A player that is played by a client over a websocket connection. The notifications of the
+ * engine are encoded as frames of the game protocol and sent to the connection on the seat of this
+ * player at its table. The seat is bound when the table is created, so the client can join before
+ * the engine has assigned the player numbers. The getX() methods send an AWAIT frame and block until the client has sent
+ * the requested input, such that the blocking Engine.start() can be used for network games.
+ *
+ * A game with network players should run on a table started with Table.startBlocking(), which
+ * runs the engine on its own thread, a virtual thread if the runtime supports them. A blocked
+ * virtual thread only parks and holds no platform thread, so thousands of games waiting for
+ * their players are cheap. The inputs are handed to this player by the server on the websocket
+ * thread, via Table.submitInput().
+ */
+public class NetworkPlayer implements Player {
+	
+	/**
+	 * Create a new network player. The player sends its frames once a table has been created for
+	 * it.
+	 * 
+	 * @param server	The server the client of this player is connected to.
+	 */
+	public NetworkPlayer(GameServer server) {
+		this.server = server;
+		this.encoder = server.getEncoder();
+		this.inputs = new LinkedBlockingQueue<Input>();
+	}
+	
+	private final GameServer server;
+	
+	private final ProtocolEncoder encoder;
+	
+	/**
+	 * The inputs that have been received from the client since the last request of the engine.
+	 */
+	private final BlockingQueue<Input> inputs;
+	
+	/**
+	 * An input of the client together with the phase it was sent for.
+	 */
+	private static final class Input {
+		
+		Input(Phase phase, Object value) {
+			this.phase = phase;
+			this.value = value;
+		}
+		
+		final Phase phase;
+		
+		final Object value;
+	}
+	
+	/**
+	 * The input that is queued when this player is closed, it wakes up the game thread.
+	 */
+	private static final Input CLOSED = new Input(null, null);
+	
+	/**
+	 * This flag is set when this player is closed, it survives the queue being cleared.
+	 */
+	private volatile boolean closed;
+	
+	/**
+	 * Attach this player to the given seat of the given table, the frames of this player are sent
+	 * to the connection on that seat.
+	 * 
+	 * @param tableId	An integer representing the table of this player.
+	 * @param seat		An integer representing the seat of this player at the table.
+	 */
+	void attach(int tableId, int seat) {
+		this.seat = seat;
+		this.tableId = tableId;
+	}
+	
+	private volatile int tableId = -1;
+	
+	public int getTableId() {
+		return this.tableId;
+	}
+	
+	public int getSeat() {
+		return this.seat;
+	}
+	
+	private volatile int seat = -1;
+	
+	public int getPlayerNumber() {
+		return this.playerNumber;
+	}
+	
+	private volatile int playerNumber = -1;
+	
+	/**
+	 * Hand an input of the client to this player. This method never blocks and can be invoked from
+	 * any thread. An input sent for another phase than the one the engine waits for is discarded,
+	 * and so are all inputs that are still queued when the engine requests its next input.
+	 * 
+	 * @param phase	The phase the input was sent for.
+	 * @param input	A decoded input: a Character, a CharMove, a Revenue or a set of cards.
+	 */
+	public void submit(Phase phase, Object input) {
+		this.inputs.add(new Input(phase, input));
+	}
+	
+	/**
+	 * Close this player, for example when its table is abandoned. A game thread waiting for an
+	 * input of this player stops with an IllegalStateException.
+	 */
+	public void close() {
+		this.closed = true;
+		this.inputs.add(NetworkPlayer.CLOSED);
+	}
+	
+	/**
+	 * Send the given frame to the connection of this player. The frame is dropped if no connection
+	 * is seated on the seat of this player.
+	 */
+	private void send(ByteBuffer frame) {
+		int tableId = this.tableId;
+		if (tableId < 0) {
+			this.encoder.release(frame);
+			return;
+		}
+		this.server.send(tableId, this.seat, frame);
+	}
+	
+	/**
+	 * Ask the client for an input of the given phase and wait until an input for that phase has
+	 * been received. The inputs received before the request are discarded, they answer an earlier
+	 * request, and so are inputs for another phase or of another type.
+	 * 
+	 * @param phase	The phase the engine waits for.
+	 * @param type	The type of the requested input.
+	 * 
+	 * @return		The received input.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If this player has been closed or the thread has been interrupted.
+	 */
+	private Object await(Phase phase, Class<?> type) {
+		this.inputs.clear();
+		if (this.closed) {
+			throw new IllegalStateException("Player ".concat(Integer.toString(this.playerNumber)).concat(" has been closed"));
+		}
+		this.send(this.encoder.encodeAwait(phase));
+		while (true) {
+			Input input;
+			try {
+				input = this.inputs.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for player ".concat(Integer.toString(this.playerNumber)));
+			}
+			if (input == NetworkPlayer.CLOSED) {
+				this.inputs.add(NetworkPlayer.CLOSED);
+				throw new IllegalStateException("Player ".concat(Integer.toString(this.playerNumber)).concat(" has been closed"));
+			}
+			if ((input.phase == phase) && type.isInstance(input.value)) {
+				return input.value;
+			}
+		}
+	}
+	
+	@Override
+	public void setNumberPlayers(int numberPlayers) {
+		this.send(this.encoder.encodeNumberPlayers(numberPlayers));
+	}
+	
+	@Override
+	public void setPlayerNumber(int number) {
+		this.playerNumber = number;
+		this.send(this.encoder.encodePlayerNumber(number));
+	}
+	
+	@Override
+	public void setKing(int number) {
+		this.send(this.encoder.encodeKing(number));
+	}
+	
+	@Override
+	public void setOpenChars(Set<Character> characters) {
+		this.send(this.encoder.encodeOpenChars(characters));
+	}
+	
+	@Override
+	public void setKingChar(Character character) {
+		this.send(this.encoder.encodeKingChar(character));
+	}
+	
+	@Override
+	public void setCharsToChoose(Set<Character> characters) {
+		this.send(this.encoder.encodeCharsToChoose(characters));
+	}
+	
+	@Override
+	public Character getChosenChar() {
+		return (Character) this.await(Phase.CHOOSE_CHAR, Character.class);
+	}
+	
+	@Override
+	public Character getPutAwayChar() {
+		return (Character) this.await(Phase.PUT_AWAY_CHAR, Character.class);
+	}
+	
+	@Override
+	public void setActiveChar(Character character, int playerNumber) {
+		this.send(this.encoder.encodeActiveChar(character, playerNumber));
+	}
+	
+	@Override
+	public void setKilledChar(Character killedChar) {
+		this.send(this.encoder.encodeKilledChar(killedChar));
+	}
+	
+	@Override
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+		this.send(this.encoder.encodeStolen(stolenChar, thiefPlayer));
+	}
+	
+	@Override
+	public void setStolen(int stolenPlayer, int thiefPlayer) {
+		this.send(this.encoder.encodeStolen(stolenPlayer, thiefPlayer));
+	}
+	
+	@Override
+	public void setCoins(int playerNumber, int coins) {
+		this.send(this.encoder.encodeCoins(playerNumber, coins));
+	}
+	
+	@Override
+	public void setCharMove(int activePlayer, CharMove charMove) {
+		this.send(this.encoder.encodeCharMove(activePlayer, charMove));
+	}
+	
+	@Override
+	public void setCardsToChoose(Set<Card> cards) {
+		this.send(this.encoder.encodeCardsToChoose(cards));
+	}
+	
+	@Override
+	public void setCards(int playerNumber, int numberCards) {
+		this.send(this.encoder.encodeNumberCards(playerNumber, numberCards));
+	}
+	
+	@Override
+	public void setCards(Set<Card> cards) {
+		this.send(this.encoder.encodeCards(cards));
+	}
+	
+	@Override
+	public void setCity(int playerNumber, Set<Card> cards) {
+		this.send(this.encoder.encodeCity(playerNumber, cards));
+	}
+	
+	@Override
+	public void setDelta(GameDelta delta) {
+		this.send(this.encoder.encodeDelta(delta));
+	}
+	
+	@Override
+	public void setPoints(Map<Integer, Integer> points) {
+		this.send(this.encoder.encodePoints(points));
+	}
+	
+	@Override
+	public void setWinner(int playerNumber) {
+		this.send(this.encoder.encodeWinner(playerNumber));
+	}
+	
+	@Override
+	public CharMove getCharMove() {
+		return (CharMove) this.await(Phase.CHAR_MOVE, CharMove.class);
+	}
+	
+	@Override
+	public Revenue getRevenue() {
+		return (Revenue) this.await(Phase.REVENUE, Revenue.class);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<Card> getChosenCard() {
+		return (Set<Card>) this.await(Phase.CHOOSE_CARDS, Set.class);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<Card> getBuild() {
+		return (Set<Card>) this.await(Phase.BUILD, Set.class);
+	}
+}
@@ -0,0 +1,92 @@
+package game.host;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This executor runs the submitted tasks one at a time and in submission order, on top of a
+ * shared backing executor. Each table owns one of these, such that everything that happens at a
+ * table is serialized, while different tables run in parallel on all available threads.
+ */
+public class SerialExecutor implements Executor {
+	
+	/**
+	 * Create a new serial execution context on top of the given executor.
+	 * 
+	 * @param backingExecutor	The executor that will run the tasks of this context.
+	 */
+	public SerialExecutor(Executor backingExecutor) {
+		this.backingExecutor = backingExecutor;
+		this.tasks = new ConcurrentLinkedQueue<Runnable>();
+		this.scheduled = new AtomicBoolean(false);
+	}
+	
+	private final Executor backingExecutor;
+	
+	/**
+	 * The tasks that are waiting to be executed in this context.
+	 */
+	private final Queue<Runnable> tasks;
+	
+	/**
+	 * This flag is set while a drain of this context is submitted to the backing executor. At most
+	 * one drain can be scheduled at any time, which guarantees the serial execution.
+	 */
+	private final AtomicBoolean scheduled;
+	
+	/**
+	 * Add the given task to the queue of this context. The task will be executed after all tasks
+	 * that were submitted before.
+	 * 
+	 * @param task	The task to be executed.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		this.tasks.add(task);
+		this.schedule();
+	}
+	
+	/**
+	 * This method returns the number of tasks that are waiting to be executed.
+	 * 
+	 * @return	An integer representing the number of pending tasks.
+	 */
+	public int getPendingTasks() {
+		return this.tasks.size();
+	}
+	
+	private void schedule() {
+		if (this.scheduled.compareAndSet(false, true)) {
+			this.backingExecutor.execute(this::drain);
+		}
+	}
+	
+	/**
+	 * Execute the pending tasks. To give other tables a fair share of the backing threads, only a
+	 * limited number of tasks is executed before the context is rescheduled.
+	 */
+	private void drain() {
+		try {
+			for (int i = 0; i < SerialExecutor.BATCH_SIZE; i++) {
+				Runnable task = this.tasks.poll();
+				if (task == null) {
+					break;
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			this.scheduled.set(false);
+			if (!this.tasks.isEmpty()) {
+				this.schedule();
+			}
+		}
+	}
+	
+	private static final int BATCH_SIZE = 64;
+}
@@ -0,0 +1,275 @@
+package game.host;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import game.engine.Engine;
+import game.engine.Phase;
+import game.player.Player;
+import helpers.SocketMessage;
+
+/**
+ * A table hosts one game of Machiavelli. All messages for this table are handled on the serial
+ * execution context of the table, such that the game state never has to be locked.
+ * 
+ * A table can also run its game in blocking mode, see startBlocking(). The engine then runs on its
+ * own game thread and pulls the inputs from its players, the inputs of network players are handed
+ * to them directly instead of being submitted to the engine.
+ */
+public class Table {
+	
+	/**
+	 * Create a new table hosting the given game.
+	 * 
+	 * @param id				The unique number of this table.
+	 * @param players			The players that participate in the game of this table.
+	 * @param engine			The engine of the game of this table.
+	 * @param context			The serial execution context of this table.
+	 * @param gameThreads		The executor that runs the game of this table in blocking mode.
+	 */
+	Table(int id, List<Player> players, Engine engine, SerialExecutor context, Executor gameThreads) {
+		this.id = id;
+		this.players = players;
+		this.engine = engine;
+		this.context = context;
+		this.gameThreads = gameThreads;
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i) instanceof NetworkPlayer) {
+				((NetworkPlayer) players.get(i)).attach(id, i);
+			}
+		}
+	}
+	
+	public final int id;
+	
+	private final Engine engine;
+	
+	public Engine getEngine() {
+		return this.engine;
+	}
+	
+	private final SerialExecutor context;
+	
+	private final Executor gameThreads;
+	
+	/**
+	 * The players of this table, indexed by seat.
+	 */
+	private final List<Player> players;
+	
+	public int getNumberPlayers() {
+		return this.players.size();
+	}
+	
+	/**
+	 * This method returns the seat of the given player at this table. The seats are fixed when the
+	 * table is created, unlike the player numbers, which the engine assigns in a random order. A
+	 * client joins the table on the seat of its player, with the token of that seat.
+	 * 
+	 * @param player	A player of this table.
+	 * 
+	 * @return			An integer representing the seat of the player, or -1 if the player is not
+	 * 					at this table.
+	 */
+	public int getSeat(Player player) {
+		return this.players.indexOf(player);
+	}
+	
+	/**
+	 * Start the game of this table in event driven mode. This method returns immediately. The
+	 * engine of this table does not own a thread: the inputs of the players have to be submitted
+	 * to the engine from the execution context of this table, typically by the message handler.
+	 */
+	public void start() {
+		this.context.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				Table.this.engine.begin();
+				Table.this.updatePhase();
+			}
+			
+		});
+	}
+	
+	/**
+	 * Start the game of this table in blocking mode. This method returns immediately, the game is
+	 * played by Engine.start() on a game thread of the scheduler, which is a virtual thread if the
+	 * runtime supports them. The engine pulls every input from its players, the network players
+	 * of this table receive the inputs submitted via submitInput(). The engine must not be
+	 * accessed from the execution context of this table while the game is running.
+	 * 
+	 * If the game fails, for example because a closed player is asked for an input or an input
+	 * cannot be handled, the game is aborted: the failure is logged, the table is marked as aborted
+	 * and its network players are closed.
+	 */
+	public void startBlocking() {
+		this.blocking = true;
+		this.gameThreads.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Table.this.engine.start();
+				} catch (RuntimeException e) {
+					System.out.println("Game of table ".concat(Integer.toString(Table.this.id)).concat(" aborted: ").concat(String.valueOf(e.getMessage())));
+					if (!(e instanceof IllegalStateException)) {
+						e.printStackTrace();
+					}
+					Table.this.aborted = true;
+					Table.this.close();
+				} finally {
+					Table.this.phase = Phase.ENDED;
+				}
+			}
+			
+		});
+	}
+	
+	/**
+	 * This flag is set if the game of this table has been aborted by a failure in blocking mode.
+	 */
+	private volatile boolean aborted;
+	
+	public boolean isAborted() {
+		return this.aborted;
+	}
+	
+	/**
+	 * This flag is set if the game of this table runs in blocking mode.
+	 */
+	private volatile boolean blocking;
+	
+	public boolean isBlocking() {
+		return this.blocking;
+	}
+	
+	/**
+	 * Close all network players of this table. A game running in blocking mode stops as soon as it
+	 * waits for the input of one of them.
+	 */
+	public void close() {
+		for (Player player : this.players) {
+			if (player instanceof NetworkPlayer) {
+				((NetworkPlayer) player).close();
+			}
+		}
+	}
+	
+	/**
+	 * This method returns true if the game of this table has ended.
+	 * 
+	 * @return	A boolean stating if the game has ended.
+	 */
+	public boolean hasEnded() {
+		return this.phase == Phase.ENDED;
+	}
+	
+	/**
+	 * The phase of the engine after the last task of this table. This copy can be read from any
+	 * thread, while the engine itself is only accessed from the execution context.
+	 */
+	private volatile Phase phase = Phase.NOT_STARTED;
+	
+	/**
+	 * Copy the phase of the engine. In blocking mode, the phase is only set by the game thread.
+	 */
+	private void updatePhase() {
+		if (!this.blocking) {
+			this.phase = this.engine.getPhase();
+		}
+	}
+	
+	/**
+	 * Set the handler that will receive all messages that are routed to this table. The handler
+	 * will always be invoked on the execution context of this table.
+	 * 
+	 * @param messageHandler	The function that handles the messages of this table.
+	 */
+	public void setMessageHandler(Function<SocketMessage, Void> messageHandler) {
+		this.messageHandler = messageHandler;
+	}
+	
+	private volatile Function<SocketMessage, Void> messageHandler;
+	
+	/**
+	 * Deliver the given message to this table. This method returns immediately, the message will be
+	 * handled on the execution context of this table after all messages delivered before.
+	 * 
+	 * @param message	The message to be handled by this table.
+	 */
+	public void deliver(SocketMessage message) {
+		this.context.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				Function<SocketMessage, Void> handler = Table.this.messageHandler;
+				if (handler != null) {
+					handler.apply(message);
+					Table.this.updatePhase();
+				}
+			}
+			
+		});
+	}
+	
+	/**
+	 * Submit the given input of the player on the given seat to the engine of this table. This
+	 * method returns immediately, the input is submitted on the execution context of this table
+	 * after all messages delivered before. Inputs that are not awaited by the engine are ignored.
+	 * In blocking mode, the input is handed to the network player on the given seat instead.
+	 * 
+	 * @param seat	An integer representing the seat of the player that sent the input.
+	 * @param phase	The phase the input is meant for, as sent by the player.
+	 * @param input	A decoded input: a Character, a CharMove, a Revenue or a set of cards.
+	 */
+	public void submitInput(int seat, Phase phase, Object input) {
+		if ((seat < 0) || (seat >= this.players.size())) {
+			return;
+		}
+		Player player = this.players.get(seat);
+		if (this.blocking) {
+			if (player instanceof NetworkPlayer) {
+				((NetworkPlayer) player).submit(phase, input);
+			}
+			return;
+		}
+		this.context.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				Table.this.engine.submitInput(Table.this.engine.getPlayerNumber(player), input);
+				Table.this.updatePhase();
+			}
+			
+		});
+	}
+	
+	/**
+	 * Execute the given task on the execution context of this table.
+	 * 
+	 * @param task	The task to be executed.
+	 */
+	public void execute(Runnable task) {
+		this.context.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				task.run();
+				Table.this.updatePhase();
+			}
+			
+		});
+	}
+	
+	/**
+	 * This method returns the number of messages and tasks that are waiting to be handled by this
+	 * table.
+	 * 
+	 * @return	An integer representing the backlog of this table.
+	 */
+	public int getBacklog() {
+		return this.context.getPendingTasks();
+	}
+}
@@ -0,0 +1,232 @@
+package game.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A journal storage in one append-only file. The records are appended to a buffer in memory and
+ * written by a separate writer thread, which forces them to disk once per group: all records
+ * appended while the previous group was being written are written and forced together. The
+ * game threads therefore never wait for the disk, appending a record only costs copying it.
+ */
+public class FileJournalStorage implements JournalStorage {
+	
+	/**
+	 * Open the journal storage in the given file, the file is created if it does not exist. A
+	 * torn record at the end of the file is removed.
+	 * 
+	 * @param path	The path of the journal file.
+	 * 
+	 * @throws IOException
+	 */
+	public FileJournalStorage(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.records = new ArrayList<ByteBuffer>();
+		this.recover();
+		this.channel.position(this.channel.size());
+		this.pending = ByteBuffer.allocate(FileJournalStorage.INITIAL_BUFFER_SIZE);
+		this.writing = ByteBuffer.allocate(FileJournalStorage.INITIAL_BUFFER_SIZE);
+		this.writer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				FileJournalStorage.this.write();
+			}
+		
+		}, "journal-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	private final Path path;
+	
+	public Path getPath() {
+		return this.path;
+	}
+	
+	@Override
+	public String getName() {
+		return this.path.toString();
+	}
+	
+	private final FileChannel channel;
+	
+	private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Map the journal file and remove a torn record at its end.
+	 * 
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		long size = this.channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Journal ".concat(this.path.toString()).concat(" is too large"));
+		}
+		if (size == 0) {
+			return;
+		}
+		MappedByteBuffer data = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		JournalReader reader = new JournalReader(data);
+		while (reader.next()) {
+		}
+		int validBytes = reader.getValidBytes();
+		if (validBytes < size) {
+			System.out.println("Journal ".concat(this.path.toString()).concat(": removed torn record at ").concat(Integer.toString(validBytes)));
+			this.channel.truncate(validBytes);
+			this.channel.force(true);
+		}
+		data.limit(validBytes);
+		this.records.add(data);
+	}
+	
+	@Override
+	public List<ByteBuffer> getRecords() {
+		return this.records;
+	}
+	
+	private final List<ByteBuffer> records;
+	
+	@Override
+	public long getMaxRemovedGameId() {
+		return 0;
+	}
+	
+	@Override
+	public void append(byte type, long gameId, ByteBuffer payload) {
+		int size = GameJournal.getRecordSize(payload);
+		synchronized (this.lock) {
+			if (this.closed || (this.failure != null)) {
+				throw new IllegalStateException("Journal ".concat(this.path.toString()).concat(" is not writable"), this.failure);
+			}
+			if (this.pending.remaining() < size) {
+				this.pending = FileJournalStorage.grow(this.pending, size);
+			}
+			boolean wasEmpty = this.pending.position() == 0;
+			GameJournal.putRecord(this.pending, type, gameId, payload);
+			this.appended += size;
+			if (wasEmpty) {
+				this.lock.notifyAll();
+			}
+		}
+	}
+	
+	private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+		int capacity = buffer.capacity();
+		while (capacity - buffer.position() < needed) {
+			capacity *= 2;
+		}
+		ByteBuffer result = ByteBuffer.allocate(capacity);
+		buffer.flip();
+		result.put(buffer);
+		return result;
+	}
+	
+	private final Object lock = new Object();
+	
+	/**
+	 * The records of the next group.
+	 */
+	private ByteBuffer pending;
+	
+	/**
+	 * The buffer of the group that is being written, it is swapped with the pending buffer.
+	 */
+	private ByteBuffer writing;
+	
+	/**
+	 * The number of bytes appended to this storage since it was opened.
+	 */
+	private long appended;
+	
+	/**
+	 * The number of bytes forced to disk since this storage was opened.
+	 */
+	private long durable;
+	
+	private boolean closed;
+	
+	private IOException failure;
+	
+	private final Thread writer;
+	
+	/**
+	 * The loop of the writer thread: wait for records, swap the buffers, write the group and force
+	 * it to disk.
+	 */
+	private void write() {
+		while (true) {
+			long groupEnd;
+			synchronized (this.lock) {
+				while ((this.pending.position() == 0) && !this.closed) {
+					try {
+						this.lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (this.pending.position() == 0) {
+					return;
+				}
+				ByteBuffer group = this.pending;
+				this.pending = this.writing;
+				this.pending.clear();
+				this.writing = group;
+				groupEnd = this.appended;
+			}
+			try {
+				this.writing.flip();
+				while (this.writing.hasRemaining()) {
+					this.channel.write(this.writing);
+				}
+				this.channel.force(false);
+			} catch (IOException e) {
+				synchronized (this.lock) {
+					this.failure = e;
+					this.lock.notifyAll();
+				}
+				return;
+			}
+			synchronized (this.lock) {
+				this.durable = groupEnd;
+				this.lock.notifyAll();
+			}
+		}
+	}
+	
+	@Override
+	public void sync() throws IOException, InterruptedException {
+		synchronized (this.lock) {
+			long target = this.appended;
+			while ((this.durable < target) && (this.failure == null)) {
+				this.lock.wait();
+			}
+			if (this.failure != null) {
+				throw this.failure;
+			}
+		}
+	}
+	
+	/**
+	 * Write all appended records, stop the writer thread and close the journal file.
+	 */
+	@Override
+	public void close() throws IOException, InterruptedException {
+		synchronized (this.lock) {
+			this.closed = true;
+			this.lock.notifyAll();
+		}
+		this.writer.join();
+		this.channel.close();
+		if (this.failure != null) {
+			throw this.failure;
+		}
+	}
+}
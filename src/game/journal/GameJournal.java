@@ -0,0 +1,371 @@
+package game.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import game.cards.CardCatalog;
+import game.cards.CardCatalogFile;
+import game.engine.Engine;
+import game.engine.GameListener;
+import game.engine.GameRecord;
+import game.engine.Phase;
+import game.helpers.Card;
+import game.helpers.Character;
+import game.protocol.Opcode;
+import game.protocol.ProtocolDecoder;
+import game.protocol.ProtocolEncoder;
+
+/**
+ * An append-only journal of games. The journal contains for every game a START record with the
+ * seed, the cards and the characters of the game, an INPUT record for every accepted input and an
+ * END record when the game has ended. Since a game is completely determined by its seed and its
+ * inputs, the engine events do not have to be stored: every unfinished game can be rebuilt by
+ * replaying its records, see getUnfinishedGames(). A finished game can also be stored as one
+ * ARCHIVE record, which contains its START record and all its inputs.
+ * 
+ * The records are written to a journal storage, which appends them without waiting for the disk
+ * and forces them to disk in groups. A record is durable once sync() has returned, which can be
+ * used by a caller that has to acknowledge an action only when it is safe. Every record is
+ * checksummed, see JournalReader.
+ */
+public class GameJournal {
+	
+	/**
+	 * Open the journal in the given file, the file is created if it does not exist. The existing
+	 * records are read to find the unfinished games.
+	 * 
+	 * @param path	The path of the journal file.
+	 * 
+	 * @throws IOException
+	 */
+	public GameJournal(Path path) throws IOException {
+		this(new FileJournalStorage(path));
+	}
+	
+	/**
+	 * Open the journal in the given storage. The existing records are read to find the unfinished
+	 * games. The ids of new games continue after the highest id of the records and of the games
+	 * the storage has removed, so an archived game is never given the id of a new game.
+	 * 
+	 * @param storage	The storage of the records of this journal.
+	 */
+	public GameJournal(JournalStorage storage) {
+		this.storage = storage;
+		this.unfinishedGames = new LinkedHashMap<Long, GameRecord>();
+		long gameId = GameJournal.readGames(storage.getRecords(), this.unfinishedGames, true, storage.getName());
+		this.nextGameId = new AtomicLong(Math.max(gameId, storage.getMaxRemovedGameId()) + 1);
+	}
+	
+	private final JournalStorage storage;
+	
+	public JournalStorage getStorage() {
+		return this.storage;
+	}
+	
+	private final AtomicLong nextGameId;
+	
+	/**
+	 * The size of the header of a record: the length and the checksum of its body.
+	 */
+	static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The size of the fixed part of the body of a record: its type and the id of its game.
+	 */
+	static final int BODY_HEADER_SIZE = 9;
+	
+	/**
+	 * The maximum size of the body of a record.
+	 */
+	static final int MAX_RECORD_SIZE = 1 << 20;
+	
+	public static final byte START = 1;
+	
+	public static final byte INPUT = 2;
+	
+	public static final byte END = 3;
+	
+	public static final byte ARCHIVE = 4;
+	
+	/**
+	 * This method returns the games in the journal that had not ended when it was opened, in the
+	 * order they were started. Such a game is rebuilt by replaying its record, after which its
+	 * engine can be attached to this journal again with resumeGame().
+	 * 
+	 * @return	A map containing for every unfinished game its id and its record.
+	 */
+	public Map<Long, GameRecord> getUnfinishedGames() {
+		return Collections.unmodifiableMap(this.unfinishedGames);
+	}
+	
+	private final Map<Long, GameRecord> unfinishedGames;
+	
+	/**
+	 * Start journaling the game of the given engine. A START record is appended and all inputs
+	 * accepted by the engine from now on are journaled. This method has to be invoked before the
+	 * game is started.
+	 * 
+	 * @param engine	The engine of the game.
+	 * 
+	 * @return			The id of the game in this journal.
+	 */
+	public long startGame(Engine engine) {
+		long gameId = this.nextGameId.getAndIncrement();
+		byte[] catalog = (engine.getCatalog() == CardCatalog.getDefault()) ? new byte[0] : CardCatalogFile.toBytes(engine.getCatalog());
+		ByteBuffer payload = ByteBuffer.allocate(GameJournal.START_SIZE + catalog.length);
+		payload.putLong(engine.getSeed());
+		payload.put((byte) engine.getNumberPlayers());
+		Set<Character> characters = engine.getCharacters();
+		if (characters == null) {
+			payload.put((byte) 0);
+		}
+		else {
+			payload.put((byte) 1);
+			ProtocolEncoder.putCharacters(payload, characters);
+		}
+		payload.putInt(catalog.length);
+		payload.put(catalog);
+		payload.flip();
+		this.storage.append(GameJournal.START, gameId, payload);
+		this.resumeGame(gameId, engine);
+		return gameId;
+	}
+	
+	/**
+	 * The largest size of the payload of a START record without its catalog: the seed, the number
+	 * of players, the flag and the varint mask of the characters and the length of the catalog.
+	 */
+	private static final int START_SIZE = 8 + 1 + 1 + 5 + 4;
+	
+	/**
+	 * Journal all inputs accepted by the given engine from now on as inputs of the given game.
+	 * 
+	 * @param gameId	The id of the game in this journal.
+	 * @param engine	The engine of the game.
+	 */
+	public void resumeGame(long gameId, Engine engine) {
+		engine.setListener(new GameListener() {
+			
+			@Override
+			public void inputAccepted(int playerNumber, Phase phase, Object input) {
+				GameJournal.this.appendInput(gameId, playerNumber, phase, input);
+			}
+			
+			@Override
+			public void gameEnded() {
+				GameJournal.this.storage.append(GameJournal.END, gameId, ByteBuffer.allocate(0));
+			}
+		
+		});
+	}
+	
+	private void appendInput(long gameId, int playerNumber, Phase phase, Object input) {
+		ByteBuffer frame = this.encoder.encodeInput(phase, input);
+		ByteBuffer payload = ByteBuffer.allocate(frame.remaining() + 1);
+		payload.put((byte) playerNumber);
+		payload.put(frame);
+		payload.flip();
+		this.encoder.release(frame);
+		this.storage.append(GameJournal.INPUT, gameId, payload);
+	}
+	
+	/**
+	 * The encoder of the inputs, an input is stored as the frame of the game protocol a player
+	 * would send for it.
+	 */
+	private final ProtocolEncoder encoder = new ProtocolEncoder();
+	
+	/**
+	 * Wait until all records appended before the invocation of this method have been forced to
+	 * disk.
+	 * 
+	 * @throws IOException
+	 * 			If the journal could not be written.
+	 * @throws InterruptedException
+	 */
+	public void sync() throws IOException, InterruptedException {
+		this.storage.sync();
+	}
+	
+	/**
+	 * Write all appended records and close the storage of this journal.
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void close() throws IOException, InterruptedException {
+		this.storage.close();
+	}
+	
+	/**
+	 * This method returns the number of bytes of the record with the given payload.
+	 */
+	static int getRecordSize(ByteBuffer payload) {
+		return GameJournal.HEADER_SIZE + GameJournal.BODY_HEADER_SIZE + payload.remaining();
+	}
+	
+	/**
+	 * Write a record to the given buffer: the length and the checksum of its body, followed by the
+	 * body.
+	 * 
+	 * @param target	The buffer the record is written to, at its position.
+	 * @param type		The type of the record.
+	 * @param gameId	The id of the game of the record.
+	 * @param payload	The payload of the record.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the record is larger than the maximum record size.
+	 */
+	static void putRecord(ByteBuffer target, byte type, long gameId, ByteBuffer payload) {
+		int length = GameJournal.BODY_HEADER_SIZE + payload.remaining();
+		if (length > GameJournal.MAX_RECORD_SIZE) {
+			throw new IllegalArgumentException("Journal record too large: ".concat(Integer.toString(length)));
+		}
+		int start = target.position();
+		target.position(start + GameJournal.HEADER_SIZE);
+		target.put(type);
+		target.putLong(gameId);
+		target.put(payload.duplicate());
+		ByteBuffer body = target.duplicate();
+		body.position(start + GameJournal.HEADER_SIZE);
+		body.limit(start + GameJournal.HEADER_SIZE + length);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		target.putInt(start + 4, (int) crc.getValue());
+		target.putInt(start, length);
+	}
+	
+	/**
+	 * Encode the payload of an ARCHIVE record, containing a complete game.
+	 * 
+	 * @param start		The payload of the START record of the game.
+	 * @param inputs	The payloads of the INPUT records of the game, in order.
+	 * 
+	 * @return			The payload of the ARCHIVE record.
+	 */
+	static ByteBuffer encodeArchive(ByteBuffer start, List<ByteBuffer> inputs) {
+		int size = 8 + start.remaining();
+		for (ByteBuffer input : inputs) {
+			size += 2 + input.remaining();
+		}
+		ByteBuffer result = ByteBuffer.allocate(size);
+		result.putInt(start.remaining());
+		result.put(start.duplicate());
+		result.putInt(inputs.size());
+		for (ByteBuffer input : inputs) {
+			result.putShort((short) input.remaining());
+			result.put(input.duplicate());
+		}
+		result.flip();
+		return result;
+	}
+	
+	/**
+	 * Read the games from the given records and add them to the given map, in the order the games
+	 * were started.
+	 * 
+	 * @param records			A list of buffers containing records, in the order they were
+	 * 							appended.
+	 * @param games				The map the id and the record of every game is added to.
+	 * @param unfinishedOnly	A boolean stating if only the games without an END record have to
+	 * 							be added.
+	 * @param source			The name of the journal, used in error messages.
+	 * 
+	 * @return					The highest game id in the records, or 0 if they contain no games.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If a record cannot be decoded.
+	 */
+	public static long readGames(List<ByteBuffer> records, Map<Long, GameRecord> games, boolean unfinishedOnly, String source) {
+		Map<Long, ProtocolDecoder> decoders = new LinkedHashMap<Long, ProtocolDecoder>();
+		long maxGameId = 0;
+		for (ByteBuffer buffer : records) {
+			JournalReader reader = new JournalReader(buffer);
+			while (reader.next()) {
+				long gameId = reader.getGameId();
+				maxGameId = Math.max(maxGameId, gameId);
+				ByteBuffer payload = reader.getPayload();
+				switch (reader.getType()) {
+				case GameJournal.START:
+					GameRecord record = GameJournal.decodeStart(payload, source);
+					games.put(gameId, record);
+					decoders.put(gameId, new ProtocolDecoder(CardCatalog.of(record.cards)));
+					break;
+				case GameJournal.INPUT:
+					GameRecord game = games.get(gameId);
+					if (game != null) {
+						GameJournal.decodeInput(game, decoders.get(gameId), payload);
+					}
+					break;
+				case GameJournal.END:
+					if (unfinishedOnly) {
+						games.remove(gameId);
+					}
+					decoders.remove(gameId);
+					break;
+				case GameJournal.ARCHIVE:
+					if (!unfinishedOnly) {
+						games.put(gameId, GameJournal.decodeArchive(payload, source));
+					}
+					break;
+				default:
+					throw new IllegalArgumentException(source.concat(": unknown record type ").concat(Integer.toString(reader.getType())));
+				}
+			}
+		}
+		return maxGameId;
+	}
+	
+	private static void decodeInput(GameRecord game, ProtocolDecoder decoder, ByteBuffer payload) {
+		int playerNumber = payload.get();
+		Opcode opcode = decoder.readHeader(payload);
+		game.addInput(playerNumber, decoder.decodeInput(opcode, payload));
+	}
+	
+	private static GameRecord decodeArchive(ByteBuffer payload, String source) {
+		int startLength = payload.getInt();
+		ByteBuffer start = payload.slice();
+		start.limit(startLength);
+		payload.position(payload.position() + start.limit());
+		GameRecord result = GameJournal.decodeStart(start, source);
+		ProtocolDecoder decoder = new ProtocolDecoder(CardCatalog.of(result.cards));
+		int numberInputs = payload.getInt();
+		for (int i = 0; i < numberInputs; i++) {
+			int inputLength = payload.getShort() & 0xFFFF;
+			ByteBuffer input = payload.slice();
+			input.limit(inputLength);
+			payload.position(payload.position() + input.limit());
+			GameJournal.decodeInput(result, decoder, input);
+		}
+		return result;
+	}
+	
+	private static GameRecord decodeStart(ByteBuffer payload, String source) {
+		long seed = payload.getLong();
+		int numberPlayers = payload.get();
+		ProtocolDecoder decoder = new ProtocolDecoder(CardCatalog.getDefault());
+		Set<Character> characters = null;
+		if (payload.get() != 0) {
+			characters = decoder.getCharacters(payload);
+		}
+		int catalogLength = payload.getInt();
+		Set<Card> cards;
+		if (catalogLength == 0) {
+			cards = CardCatalog.getDefault().getCards();
+		}
+		else {
+			ByteBuffer catalog = payload.slice();
+			catalog.limit(catalogLength);
+			cards = CardCatalogFile.read(catalog, source).getCards();
+		}
+		return new GameRecord(seed, numberPlayers, cards, characters);
+	}
+}
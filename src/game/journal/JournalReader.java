@@ -0,0 +1,134 @@
+package game.journal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A sequential reader of the records of a journal. Every record consists of a header and a body:
+ *  - The length of the body, a four byte integer.
+ *  - The CRC-32 checksum of the body, a four byte integer.
+ *  - The body: the type of the record (one byte), the id of the game it belongs to (eight bytes)
+ *    and the payload of the record.
+ * The reader stops at the end of the data or at the first record that is incomplete or does not
+ * match its checksum. Such a record is the torn tail of a journal that was being written when the
+ * process died, everything before it is intact.
+ */
+public class JournalReader {
+	
+	/**
+	 * Create a new reader of the records in the given buffer, starting at its position.
+	 * 
+	 * @param buffer	The buffer containing the records.
+	 */
+	public JournalReader(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+		this.start = this.buffer.position();
+		this.end = this.buffer.position();
+		this.crc = new CRC32();
+	}
+	
+	private final ByteBuffer buffer;
+	
+	private final int start;
+	
+	/**
+	 * The position after the last valid record that has been read.
+	 */
+	private int end;
+	
+	private final CRC32 crc;
+	
+	private int type;
+	
+	private long gameId;
+	
+	private ByteBuffer payload;
+	
+	private ByteBuffer record;
+	
+	private boolean corrupt;
+	
+	/**
+	 * Read the next record.
+	 * 
+	 * @return	A boolean stating if a valid record has been read. It is false at the end of the
+	 * 			data and at a corrupt record.
+	 */
+	public boolean next() {
+		this.buffer.position(this.end);
+		if (this.buffer.remaining() < GameJournal.HEADER_SIZE) {
+			this.corrupt = this.buffer.hasRemaining();
+			return false;
+		}
+		int length = this.buffer.getInt();
+		int checksum = this.buffer.getInt();
+		if (length == 0) {
+			// Zeroed space after the last record.
+			return false;
+		}
+		if ((length < GameJournal.BODY_HEADER_SIZE) || (length > GameJournal.MAX_RECORD_SIZE) || (length > this.buffer.remaining())) {
+			this.corrupt = true;
+			return false;
+		}
+		ByteBuffer body = this.buffer.slice();
+		body.limit(length);
+		this.crc.reset();
+		this.crc.update(body.duplicate());
+		if ((int) this.crc.getValue() != checksum) {
+			this.corrupt = true;
+			return false;
+		}
+		this.type = body.get();
+		this.gameId = body.getLong();
+		this.payload = body.slice();
+		this.record = this.buffer.duplicate();
+		this.record.position(this.end);
+		this.record.limit(this.buffer.position() + length);
+		this.end = this.buffer.position() + length;
+		return true;
+	}
+	
+	/**
+	 * This method returns the type of the last record that has been read.
+	 */
+	public int getType() {
+		return this.type;
+	}
+	
+	/**
+	 * This method returns the id of the game of the last record that has been read.
+	 */
+	public long getGameId() {
+		return this.gameId;
+	}
+	
+	/**
+	 * This method returns the payload of the last record that has been read. The returned buffer
+	 * shares its content with the buffer of this reader.
+	 */
+	public ByteBuffer getPayload() {
+		return this.payload.duplicate();
+	}
+	
+	/**
+	 * This method returns the complete last record that has been read, including its header. The
+	 * returned buffer shares its content with the buffer of this reader.
+	 */
+	public ByteBuffer getRecord() {
+		return this.record.duplicate();
+	}
+	
+	/**
+	 * This method returns the number of bytes of valid records that have been read.
+	 */
+	public int getValidBytes() {
+		return this.end - this.start;
+	}
+	
+	/**
+	 * This method returns true if the reader has stopped at an incomplete or corrupt record.
+	 */
+	public boolean isCorrupt() {
+		return this.corrupt;
+	}
+}
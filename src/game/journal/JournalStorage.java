@@ -0,0 +1,67 @@
+package game.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The storage of the records of a game journal. A storage appends records without waiting for the
+ * disk and makes them durable in groups, see sync().
+ */
+public interface JournalStorage {
+	
+	/**
+	 * This method returns the records that were in the storage when it was opened, in the order
+	 * they were appended. Torn records at the end have already been removed. The buffers are views
+	 * of the storage and are only valid until records are appended.
+	 * 
+	 * @return	A list of buffers, each containing a sequence of complete records.
+	 */
+	public List<ByteBuffer> getRecords();
+	
+	/**
+	 * This method returns the highest id of a game whose records have been moved out of the
+	 * records returned by getRecords(), for example into an archive, when the storage was opened.
+	 * The ids of new games have to be higher than this id.
+	 * 
+	 * @return	The highest id of a removed game, or 0 if no game has been removed.
+	 */
+	public long getMaxRemovedGameId();
+	
+	/**
+	 * Append a record to the storage. This method never waits for the disk and can be invoked from
+	 * any thread. The records of one game are appended by one thread at a time, their order is
+	 * preserved.
+	 * 
+	 * @param type		The type of the record.
+	 * @param gameId	The id of the game of the record.
+	 * @param payload	The payload of the record.
+	 * 
+	 * @throws IllegalStateException
+	 * 			If the storage has been closed or could not be written.
+	 */
+	public void append(byte type, long gameId, ByteBuffer payload);
+	
+	/**
+	 * Wait until all records appended before the invocation of this method have been forced to
+	 * disk.
+	 * 
+	 * @throws IOException
+	 * 			If the storage could not be written.
+	 * @throws InterruptedException
+	 */
+	public void sync() throws IOException, InterruptedException;
+	
+	/**
+	 * Write all appended records and close the storage.
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void close() throws IOException, InterruptedException;
+	
+	/**
+	 * This method returns a name of the storage for messages.
+	 */
+	public String getName();
+}
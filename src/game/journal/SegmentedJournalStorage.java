@@ -0,0 +1,641 @@
+package game.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.engine.GameRecord;
+
+/**
+ * A journal storage in a directory of memory-mapped segment files of a fixed size. The records
+ * are appended to the active segment without any lock: a writer reserves the space of its record
+ * by advancing the write cursor of the segment atomically and then copies the record into the
+ * mapped segment. The copies are made in parallel, but a writer only publishes its record after
+ * all records reserved before it have been published. Only this contiguous prefix of published
+ * records is forced and reported durable by sync(), such that recovering a segment, which stops at
+ * the first torn record, never removes a record that was durable. The writer whose reservation does not fit in the active segment creates the
+ * next segment, which is the only synchronized step. The records are read without copying them,
+ * straight from the mapped segments.
+ *
+ * A maintenance thread forces the mapped segments to disk every FLUSH_INTERVAL_MILLIS, such that
+ * all records appended in this interval become durable together. The same thread compacts the
+ * segments that are full: the records of the finished games are removed from the segments and
+ * replaced by one ARCHIVE record per game in the archive file, the records of the other games
+ * are rewritten to one compacted segment. The segments therefore only hold the records of the
+ * games that are still being played, and recovering these games is a sequential scan of the
+ * segments. If archiving is disabled, finished games are dropped and the disk use of the journal
+ * stays bounded by the games that are being played.
+ *
+ * A segment file is named after the sequence numbers it covers. A compacted segment covers the
+ * sequence numbers of all segments it replaces, which allows a crash during a compaction to be
+ * recovered: the segments that are covered by a compacted segment are removed when the storage is
+ * opened. A compacted segment that replaces a single segment has the name of that segment and
+ * replaces it atomically. A crash after the archive has been written but before the compacted segment has
+ * replaced the old segments only causes the finished games to be archived twice, readArchive()
+ * keeps the last copy of every game.
+ */
+public class SegmentedJournalStorage implements JournalStorage {
+	
+	/**
+	 * Open the journal storage in the given directory with segments of DEFAULT_SEGMENT_SIZE bytes.
+	 * 
+	 * @param directory	The directory of the segment files, it is created if it does not exist.
+	 * 
+	 * @throws IOException
+	 */
+	public SegmentedJournalStorage(Path directory) throws IOException {
+		this(directory, SegmentedJournalStorage.DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Open the journal storage in the given directory. The records in the existing segments are
+	 * read and a torn record at the end of a segment is removed.
+	 * 
+	 * @param directory		The directory of the segment files, it is created if it does not exist.
+	 * @param segmentSize	The size in bytes of a new segment.
+	 * 
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 * 			If a segment is too small to hold the largest record.
+	 */
+	public SegmentedJournalStorage(Path directory, int segmentSize) throws IOException {
+		if (segmentSize < GameJournal.HEADER_SIZE + GameJournal.MAX_RECORD_SIZE) {
+			throw new IllegalArgumentException("Segment size too small: ".concat(Integer.toString(segmentSize)));
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.segments = new CopyOnWriteArrayList<Segment>();
+		this.records = new ArrayList<ByteBuffer>();
+		this.endedGames = ConcurrentHashMap.newKeySet();
+		Files.createDirectories(directory);
+		this.recover();
+		this.archive = FileChannel.open(directory.resolve(SegmentedJournalStorage.ARCHIVE_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.recoverArchive();
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "journal-maintenance");
+				thread.setDaemon(true);
+				return thread;
+			}
+		
+		});
+		this.maintenance.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				SegmentedJournalStorage.this.flush();
+			}
+		
+		}, SegmentedJournalStorage.FLUSH_INTERVAL_MILLIS, SegmentedJournalStorage.FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		this.maintenance.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					SegmentedJournalStorage.this.compact();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		
+		}, SegmentedJournalStorage.COMPACTION_INTERVAL_MILLIS, SegmentedJournalStorage.COMPACTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	private final Path directory;
+	
+	public Path getDirectory() {
+		return this.directory;
+	}
+	
+	@Override
+	public String getName() {
+		return this.directory.toString();
+	}
+	
+	private final int segmentSize;
+	
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+	
+	/**
+	 * The interval in milliseconds at which the appended records are forced to disk.
+	 */
+	public static final long FLUSH_INTERVAL_MILLIS = 5;
+	
+	/**
+	 * The interval in milliseconds at which the full segments are compacted.
+	 */
+	public static final long COMPACTION_INTERVAL_MILLIS = 10000;
+	
+	private static final String SEGMENT_PREFIX = "segment-";
+	
+	private static final String SEGMENT_EXTENSION = ".seg";
+	
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	
+	private static final String ARCHIVE_FILE = "archive.log";
+	
+	/**
+	 * The segments of this storage, ordered by their sequence numbers. The last segment is the
+	 * active segment.
+	 */
+	private final CopyOnWriteArrayList<Segment> segments;
+	
+	/**
+	 * The segment the records are appended to.
+	 */
+	private volatile Segment active;
+	
+	/**
+	 * The ids of the games whose END record is in the segments.
+	 */
+	private final Set<Long> endedGames;
+	
+	private final FileChannel archive;
+	
+	private final ScheduledExecutorService maintenance;
+	
+	private volatile boolean closed;
+	
+	/**
+	 * Map the existing segments. Segments that are covered by a compacted segment are left over
+	 * from an interrupted compaction and are removed, as are temporary files.
+	 * 
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		List<Segment> found = new ArrayList<Segment>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(SegmentedJournalStorage.TEMPORARY_EXTENSION)) {
+					Files.delete(file);
+				}
+				else if (name.startsWith(SegmentedJournalStorage.SEGMENT_PREFIX) && name.endsWith(SegmentedJournalStorage.SEGMENT_EXTENSION)) {
+					found.add(SegmentedJournalStorage.map(file));
+				}
+			}
+		}
+		Collections.sort(found, new Comparator<Segment>() {
+			
+			@Override
+			public int compare(Segment segment1, Segment segment2) {
+				if (segment1.first != segment2.first) {
+					return Long.compare(segment1.first, segment2.first);
+				}
+				return Long.compare(segment2.last, segment1.last);
+			}
+		
+		});
+		long covered = 0;
+		for (int i = 0; i < found.size(); i++) {
+			Segment segment = found.get(i);
+			if (segment.last <= covered) {
+				Files.delete(segment.path);
+				continue;
+			}
+			covered = segment.last;
+			JournalReader reader = new JournalReader(segment.buffer);
+			while (reader.next()) {
+				if (reader.getType() == GameJournal.END) {
+					this.endedGames.add(reader.getGameId());
+				}
+			}
+			int validBytes = reader.getValidBytes();
+			if (reader.isCorrupt()) {
+				System.out.println("Journal ".concat(segment.path.toString()).concat(": removed torn record at ").concat(Integer.toString(validBytes)));
+				SegmentedJournalStorage.zero(segment.buffer, validBytes);
+				segment.buffer.force();
+			}
+			segment.cursor.set(validBytes);
+			segment.committed.set(validBytes);
+			segment.forced = validBytes;
+			this.segments.add(segment);
+			this.records.add(segment.getRecords(validBytes));
+		}
+		if (!this.segments.isEmpty()) {
+			Segment last = this.segments.get(this.segments.size() - 1);
+			if ((last.first == last.last) && (last.buffer.capacity() == this.segmentSize)) {
+				this.active = last;
+			}
+		}
+		for (Segment segment : this.segments) {
+			if (segment != this.active) {
+				segment.seal(segment.committed.get());
+			}
+		}
+		if (this.active == null) {
+			long sequence = this.segments.isEmpty() ? 1 : this.segments.get(this.segments.size() - 1).last + 1;
+			this.active = this.createSegment(sequence);
+			this.segments.add(this.active);
+		}
+	}
+	
+	/**
+	 * Remove a torn record at the end of the archive file and find the highest id of an archived
+	 * game.
+	 * 
+	 * @throws IOException
+	 */
+	private void recoverArchive() throws IOException {
+		long size = this.archive.size();
+		if (size > 0) {
+			JournalReader reader = new JournalReader(this.archive.map(FileChannel.MapMode.READ_ONLY, 0, size));
+			while (reader.next()) {
+				this.maxArchivedGameId = Math.max(this.maxArchivedGameId, reader.getGameId());
+			}
+			if (reader.getValidBytes() < size) {
+				this.archive.truncate(reader.getValidBytes());
+				this.archive.force(true);
+			}
+		}
+		this.archive.position(this.archive.size());
+	}
+	
+	private static Segment map(Path file) throws IOException {
+		String name = file.getFileName().toString();
+		String[] range = name.substring(SegmentedJournalStorage.SEGMENT_PREFIX.length(), name.length() - SegmentedJournalStorage.SEGMENT_EXTENSION.length()).split("-");
+		long first;
+		long last;
+		try {
+			first = Long.parseLong(range[0]);
+			last = (range.length > 1) ? Long.parseLong(range[1]) : first;
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("Invalid journal segment name ".concat(file.toString()));
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return new Segment(first, last, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+		}
+	}
+	
+	private Segment createSegment(long sequence) throws IOException {
+		Path file = this.directory.resolve(SegmentedJournalStorage.getSegmentName(sequence, sequence));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return new Segment(sequence, sequence, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize));
+		}
+	}
+	
+	private static String getSegmentName(long first, long last) {
+		String range = String.format("%016d", first);
+		if (last != first) {
+			range = range.concat("-").concat(String.format("%016d", last));
+		}
+		return SegmentedJournalStorage.SEGMENT_PREFIX.concat(range).concat(SegmentedJournalStorage.SEGMENT_EXTENSION);
+	}
+	
+	private static void zero(ByteBuffer buffer, int from) {
+		ByteBuffer target = buffer.duplicate();
+		target.position(from);
+		byte[] zeros = new byte[4096];
+		while (target.hasRemaining()) {
+			target.put(zeros, 0, Math.min(zeros.length, target.remaining()));
+		}
+	}
+	
+	@Override
+	public List<ByteBuffer> getRecords() {
+		return this.records;
+	}
+	
+	/**
+	 * The records of the segments when this storage was opened.
+	 */
+	private final List<ByteBuffer> records;
+	
+	@Override
+	public long getMaxRemovedGameId() {
+		return this.maxArchivedGameId;
+	}
+	
+	/**
+	 * The highest id of a game in the archive file when this storage was opened.
+	 */
+	private long maxArchivedGameId;
+	
+	@Override
+	public void append(byte type, long gameId, ByteBuffer payload) {
+		if (this.closed) {
+			throw new IllegalStateException("Journal ".concat(this.directory.toString()).concat(" is closed"));
+		}
+		int size = GameJournal.getRecordSize(payload);
+		while (true) {
+			Segment segment = this.active;
+			int position = segment.cursor.getAndAdd(size);
+			if ((position >= 0) && (position <= segment.buffer.capacity() - size)) {
+				ByteBuffer target = segment.buffer.duplicate();
+				target.position(position);
+				GameJournal.putRecord(target, type, gameId, payload);
+				while (segment.committed.get() != position) {
+					Thread.yield();
+				}
+				segment.committed.set(position + size);
+				if (type == GameJournal.END) {
+					this.endedGames.add(gameId);
+				}
+				return;
+			}
+			if (position >= 0) {
+				segment.seal(Math.min(position, segment.buffer.capacity()));
+			}
+			this.roll(segment);
+		}
+	}
+	
+	/**
+	 * Replace the given full segment by a new active segment, unless another writer has already
+	 * done so.
+	 */
+	private synchronized void roll(Segment segment) {
+		if (this.active != segment) {
+			return;
+		}
+		try {
+			Segment next = this.createSegment(segment.last + 1);
+			this.segments.add(next);
+			this.active = next;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot create a segment of journal ".concat(this.directory.toString()), e);
+		}
+	}
+	
+	/**
+	 * Force the appended records of all segments to disk.
+	 */
+	private void flush() {
+		synchronized (this.flushLock) {
+			for (Segment segment : this.segments) {
+				int committed = segment.committed.get();
+				if (segment.forced < committed) {
+					segment.buffer.force();
+					segment.forced = committed;
+				}
+			}
+		}
+	}
+	
+	private final Object flushLock = new Object();
+	
+	@Override
+	public void sync() throws IOException {
+		this.flush();
+	}
+	
+	/**
+	 * Compact the full segments: archive the finished games and rewrite the records of the other
+	 * games to one compacted segment, which replaces the full segments. This method is invoked
+	 * periodically by the maintenance thread.
+	 * 
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		synchronized (this.compactionLock) {
+			List<Segment> run = new ArrayList<Segment>();
+			for (Segment segment : this.segments) {
+				if ((segment == this.active) || !segment.isComplete()) {
+					break;
+				}
+				run.add(segment);
+			}
+			Set<Long> finished = new HashSet<Long>();
+			for (Segment segment : run) {
+				JournalReader reader = new JournalReader(segment.getRecords(segment.committed.get()));
+				while (reader.next()) {
+					if (reader.getType() == GameJournal.END) {
+						finished.add(reader.getGameId());
+					}
+				}
+			}
+			if (run.isEmpty() || ((run.size() == 1) && finished.isEmpty())) {
+				return;
+			}
+			this.flush();
+			Segment first = run.get(0);
+			Segment last = run.get(run.size() - 1);
+			Path compacted = this.directory.resolve(SegmentedJournalStorage.getSegmentName(first.first, last.last));
+			Path temporary = this.directory.resolve(compacted.getFileName().toString().concat(SegmentedJournalStorage.TEMPORARY_EXTENSION));
+			Map<Long, ByteBuffer> starts = new HashMap<Long, ByteBuffer>();
+			Map<Long, List<ByteBuffer>> inputs = new HashMap<Long, List<ByteBuffer>>();
+			long retained = 0;
+			Files.deleteIfExists(temporary);
+			try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				for (Segment segment : run) {
+					JournalReader reader = new JournalReader(segment.getRecords(segment.committed.get()));
+					while (reader.next()) {
+						long gameId = reader.getGameId();
+						if (!finished.contains(gameId)) {
+							retained += SegmentedJournalStorage.writeFully(output, reader.getRecord());
+							continue;
+						}
+						switch (reader.getType()) {
+						case GameJournal.START:
+							starts.put(gameId, reader.getPayload());
+							inputs.put(gameId, new ArrayList<ByteBuffer>());
+							break;
+						case GameJournal.INPUT:
+							if (inputs.containsKey(gameId)) {
+								inputs.get(gameId).add(reader.getPayload());
+							}
+							break;
+						case GameJournal.END:
+							ByteBuffer start = starts.remove(gameId);
+							List<ByteBuffer> gameInputs = inputs.remove(gameId);
+							if ((start != null) && this.archiving) {
+								ByteBuffer payload = GameJournal.encodeArchive(start, gameInputs);
+								ByteBuffer record = ByteBuffer.allocate(GameJournal.getRecordSize(payload));
+								GameJournal.putRecord(record, GameJournal.ARCHIVE, gameId, payload);
+								record.flip();
+								SegmentedJournalStorage.writeFully(this.archive, record);
+							}
+							break;
+						default:
+							break;
+						}
+					}
+				}
+				output.force(true);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(temporary);
+				throw e;
+			}
+			this.archive.force(true);
+			Segment replacement = null;
+			if (retained > 0) {
+				Files.move(temporary, compacted, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				replacement = SegmentedJournalStorage.map(compacted);
+				replacement.cursor.set((int) retained);
+				replacement.committed.set((int) retained);
+				replacement.forced = (int) retained;
+				replacement.seal((int) retained);
+			}
+			else {
+				Files.delete(temporary);
+			}
+			synchronized (this) {
+				this.segments.removeAll(run);
+				if (replacement != null) {
+					this.segments.add(0, replacement);
+				}
+			}
+			for (Segment segment : run) {
+				if ((replacement == null) || !segment.path.equals(compacted)) {
+					Files.delete(segment.path);
+				}
+			}
+			this.endedGames.removeAll(finished);
+		}
+	}
+	
+	private final Object compactionLock = new Object();
+	
+	private static long writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		long result = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return result;
+	}
+	
+	/**
+	 * Enable or disable the archiving of finished games. If archiving is disabled, a compaction
+	 * drops the records of the finished games.
+	 * 
+	 * @param archiving	A boolean stating if finished games are archived.
+	 */
+	public void setArchiving(boolean archiving) {
+		this.archiving = archiving;
+	}
+	
+	private volatile boolean archiving = true;
+	
+	/**
+	 * Read the finished games from the archive file. A game that has been archived more than once
+	 * is only returned once.
+	 * 
+	 * @return	A map containing for every archived game its id and its record, in the order the
+	 * 			games were archived.
+	 * 
+	 * @throws IOException
+	 */
+	public Map<Long, GameRecord> readArchive() throws IOException {
+		Map<Long, GameRecord> result = new LinkedHashMap<Long, GameRecord>();
+		synchronized (this.compactionLock) {
+			long size = this.archive.size();
+			if (size > 0) {
+				List<ByteBuffer> records = Collections.singletonList((ByteBuffer) this.archive.map(FileChannel.MapMode.READ_ONLY, 0, size));
+				GameJournal.readGames(records, result, false, this.directory.resolve(SegmentedJournalStorage.ARCHIVE_FILE).toString());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * This method returns the number of segment files of this storage.
+	 */
+	public int getNumberSegments() {
+		return this.segments.size();
+	}
+	
+	/**
+	 * Stop the maintenance thread, force all records to disk and close the archive file.
+	 */
+	@Override
+	public void close() throws IOException, InterruptedException {
+		this.closed = true;
+		this.maintenance.shutdown();
+		this.maintenance.awaitTermination(10, TimeUnit.SECONDS);
+		this.flush();
+		this.archive.close();
+	}
+	
+	/**
+	 * A mapped segment file, covering the segments with the sequence numbers from first to last.
+	 */
+	private static class Segment {
+		
+		Segment(long first, long last, Path path, MappedByteBuffer buffer) {
+			this.first = first;
+			this.last = last;
+			this.path = path;
+			this.buffer = buffer;
+		}
+		
+		final long first;
+		
+		final long last;
+		
+		final Path path;
+		
+		final MappedByteBuffer buffer;
+		
+		/**
+		 * The write cursor: the position of the next reservation.
+		 */
+		final AtomicInteger cursor = new AtomicInteger();
+		
+		/**
+		 * The end of the records that have been written completely. The writers publish their
+		 * records in the order of their reservations, so all bytes before this position belong to
+		 * complete records and there is never a hole before a published record.
+		 */
+		final AtomicInteger committed = new AtomicInteger();
+		
+		/**
+		 * The number of bytes of the records of a full segment, or the maximum integer as long as
+		 * records can be appended to the segment.
+		 */
+		final AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE);
+		
+		/**
+		 * The number of bytes that have been forced to disk.
+		 */
+		volatile int forced;
+		
+		/**
+		 * Mark this segment as full at the given position. The first reservation that did not fit
+		 * has the lowest position, which is the end of the records of the segment.
+		 */
+		void seal(int position) {
+			int current = this.limit.get();
+			while ((position < current) && !this.limit.compareAndSet(current, position)) {
+				current = this.limit.get();
+			}
+		}
+		
+		/**
+		 * This method returns true if this segment is full and all its records have been written.
+		 */
+		boolean isComplete() {
+			return this.committed.get() == this.limit.get();
+		}
+		
+		ByteBuffer getRecords(int size) {
+			ByteBuffer result = this.buffer.duplicate();
+			result.position(0);
+			result.limit(size);
+			return result;
+		}
+	}
+}
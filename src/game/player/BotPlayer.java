@@ -0,0 +1,243 @@
+package game.player;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import game.helpers.Card;
+import game.helpers.CardColor;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+import game.helpers.charMove.DiefMove;
+import game.helpers.charMove.KoningMove;
+import game.helpers.charMove.MoordenaarMove;
+import game.helpers.charMove.NoMove;
+
+/**
+ * A fast computer player without any I/O. This player answers every question of the engine
+ * immediately with a random, but always valid choice, which makes it suited for simulations of
+ * many complete games.
+ */
+public class BotPlayer implements Player {
+	
+	/**
+	 * Create a new bot player that takes its random decisions from the given random generator.
+	 * 
+	 * @param random	The random generator of this bot.
+	 */
+	public BotPlayer(Random random) {
+		this.random = random;
+	}
+	
+	private final Random random;
+	
+	private int number = -1;
+	
+	private int coins = 0;
+	
+	private Set<Card> hand = new HashSet<Card>();
+	
+	private Set<Card> city = new HashSet<Card>();
+	
+	private List<Character> charsToChoose;
+	
+	private Set<Card> cardsToChoose;
+	
+	private Character activeChar;
+	
+	private Character killedChar;
+	
+	@Override
+	public void setNumberPlayers(int numberPlayers) {
+	}
+	
+	@Override
+	public void setPlayerNumber(int number) {
+		this.number = number;
+	}
+	
+	@Override
+	public void setKing(int number) {
+		this.killedChar = null;
+	}
+	
+	@Override
+	public void setOpenChars(Set<Character> characters) {
+	}
+	
+	@Override
+	public void setKingChar(Character character) {
+	}
+	
+	@Override
+	public void setCharsToChoose(Set<Character> characters) {
+		this.charsToChoose = new ArrayList<Character>(characters);
+	}
+	
+	@Override
+	public Character getChosenChar() {
+		return this.charsToChoose.remove(this.random.nextInt(this.charsToChoose.size()));
+	}
+	
+	@Override
+	public Character getPutAwayChar() {
+		return this.charsToChoose.remove(this.random.nextInt(this.charsToChoose.size()));
+	}
+	
+	@Override
+	public void setActiveChar(Character character, int playerNumber) {
+		if (playerNumber == this.number) {
+			this.activeChar = character;
+		}
+	}
+	
+	@Override
+	public void setKilledChar(Character killedChar) {
+		this.killedChar = killedChar;
+	}
+	
+	@Override
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setStolen(int stolenPlayer, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setCoins(int playerNumber, int coins) {
+		if (playerNumber == this.number) {
+			this.coins = coins;
+		}
+	}
+	
+	@Override
+	public void setCharMove(int activePlayer, CharMove charMove) {
+		if (activePlayer == this.number) {
+			this.activeChar = null;
+		}
+	}
+	
+	@Override
+	public void setCardsToChoose(Set<Card> cards) {
+		this.cardsToChoose = cards;
+	}
+	
+	@Override
+	public void setCards(int playerNumber, int numberCards) {
+	}
+	
+	@Override
+	public void setCards(Set<Card> cards) {
+		this.hand = cards;
+	}
+	
+	@Override
+	public void setCity(int playerNumber, Set<Card> cards) {
+		if (playerNumber == this.number) {
+			this.city = cards;
+		}
+	}
+	
+	@Override
+	public void setPoints(Map<Integer, Integer> points) {
+	}
+	
+	@Override
+	public void setWinner(int playerNumber) {
+	}
+	
+	/**
+	 * Play the move of the active character at the first opportunity, if this bot knows how to
+	 * play it. Otherwise a NoMove is returned.
+	 */
+	@Override
+	public CharMove getCharMove() {
+		Character character = this.activeChar;
+		if (character == null) {
+			return new NoMove();
+		}
+		switch (character) {
+		case MOORDENAAR:
+			return new MoordenaarMove(this.randomCharacter(Character.MOORDENAAR.number));
+		case DIEF:
+			Character stolenChar = this.randomCharacter(Character.DIEF.number);
+			if (stolenChar == this.killedChar) {
+				return new NoMove();
+			}
+			return new DiefMove(stolenChar);
+		case KONING:
+			Set<Card> coinBuildings = new HashSet<Card>();
+			for (Card card : this.city) {
+				if (card.color == CardColor.YELLOW) {
+					coinBuildings.add(card);
+				}
+			}
+			return new KoningMove(coinBuildings);
+		default:
+			return new NoMove();
+		}
+	}
+	
+	/**
+	 * This method returns a random character with a number higher than the given number.
+	 * 
+	 * @param lowest	The number of the character just below the range to choose from.
+	 * 
+	 * @return			A random character.
+	 */
+	private Character randomCharacter(int lowest) {
+		Character[] characters = Character.values();
+		int item = lowest + this.random.nextInt(characters.length - lowest);
+		return characters[item];
+	}
+	
+	@Override
+	public Revenue getRevenue() {
+		if (this.hand.isEmpty()) {
+			return new Revenue(false);
+		}
+		return new Revenue(this.random.nextBoolean());
+	}
+	
+	@Override
+	public Set<Card> getChosenCard() {
+		Set<Card> result = new HashSet<Card>(1);
+		for (Card card : this.cardsToChoose) {
+			result.add(card);
+			break;
+		}
+		return result;
+	}
+	
+	/**
+	 * Build the most expensive card this bot can afford and has not built yet.
+	 */
+	@Override
+	public Set<Card> getBuild() {
+		Card best = null;
+		for (Card card : this.hand) {
+			if ((card.cost <= this.coins) && ((best == null) || (card.cost > best.cost)) && !this.isBuilt(card)) {
+				best = card;
+			}
+		}
+		Set<Card> result = new HashSet<Card>(1);
+		if (best != null) {
+			result.add(best);
+		}
+		return result;
+	}
+	
+	private boolean isBuilt(Card card) {
+		for (Card building : this.city) {
+			if (building.isSameType(card)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,279 @@
+package game.player;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import game.helpers.Card;
+import game.helpers.Character;
+import game.helpers.charMove.CharMove;
+
+/**
+ * All changes of the game caused by one action, as seen by one player. Instead of invoking a
+ * callback for every single change, an engine in batching mode gathers the changes of an action
+ * and delivers them to each player at once via Player.setDelta(GameDelta).
+ *
+ * A delta contains the events of the action (the active character, the killed and stolen
+ * characters, the played character move) and the state that has changed (coins, number of
+ * cards, the hand of the receiving player and cities). The state always reflects the situation
+ * after the action, intermediate values are not delivered.
+ */
+public class GameDelta {
+	
+	/**
+	 * Create a new empty delta for a game with the given number of players.
+	 * 
+	 * @param numberPlayers	An integer representing the number of players in the game.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public GameDelta(int numberPlayers) {
+		this.coins = new int[numberPlayers];
+		this.numberCards = new int[numberPlayers];
+		this.cities = new Set[numberPlayers];
+		Arrays.fill(this.coins, -1);
+		Arrays.fill(this.numberCards, -1);
+	}
+	
+	/**
+	 * Create a new delta containing the same changes as the given delta. The sets of cards are
+	 * shared, not copied.
+	 * 
+	 * @param delta	The delta to be copied.
+	 */
+	public GameDelta(GameDelta delta) {
+		this.activeChar = delta.activeChar;
+		this.activePlayer = delta.activePlayer;
+		this.killedChar = delta.killedChar;
+		this.stolenChar = delta.stolenChar;
+		this.stolenCharThief = delta.stolenCharThief;
+		this.stolenPlayer = delta.stolenPlayer;
+		this.thiefPlayer = delta.thiefPlayer;
+		this.charMove = delta.charMove;
+		this.charMovePlayer = delta.charMovePlayer;
+		this.coins = delta.coins.clone();
+		this.numberCards = delta.numberCards.clone();
+		this.cards = delta.cards;
+		this.cities = delta.cities.clone();
+	}
+	
+	/**
+	 * Deliver the changes of this delta to the given player by invoking the corresponding
+	 * callbacks: first the events in the order killed character, stolen character, character
+	 * move, active character and stolen player, then the changed coins, number of cards, hand and
+	 * cities.
+	 * 
+	 * @param player	The player to be notified.
+	 */
+	public void apply(Player player) {
+		if (this.killedChar != null) {
+			player.setKilledChar(this.killedChar);
+		}
+		if (this.stolenChar != null) {
+			player.setStolen(this.stolenChar, this.stolenCharThief);
+		}
+		if (this.charMove != null) {
+			player.setCharMove(this.charMovePlayer, this.charMove);
+		}
+		if (this.activeChar != null) {
+			player.setActiveChar(this.activeChar, this.activePlayer);
+		}
+		if (this.stolenPlayer >= 0) {
+			player.setStolen(this.stolenPlayer, this.thiefPlayer);
+		}
+		for (int i = 0; i < this.coins.length; i++) {
+			if (this.coins[i] >= 0) {
+				player.setCoins(i, this.coins[i]);
+			}
+		}
+		for (int i = 0; i < this.numberCards.length; i++) {
+			if (this.numberCards[i] >= 0) {
+				player.setCards(i, this.numberCards[i]);
+			}
+		}
+		if (this.cards != null) {
+			player.setCards(this.cards);
+		}
+		for (int i = 0; i < this.cities.length; i++) {
+			if (this.cities[i] != null) {
+				player.setCity(i, this.cities[i]);
+			}
+		}
+	}
+	
+	/**
+	 * This method returns true if this delta contains no changes.
+	 * 
+	 * @return	A boolean stating if this delta is empty.
+	 */
+	public boolean isEmpty() {
+		if ((this.activeChar != null) || (this.killedChar != null) || (this.stolenChar != null) || (this.stolenPlayer >= 0) || (this.charMove != null) || (this.cards != null)) {
+			return false;
+		}
+		for (int i = 0; i < this.coins.length; i++) {
+			if ((this.coins[i] >= 0) || (this.numberCards[i] >= 0) || (this.cities[i] != null)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public int getNumberPlayers() {
+		return this.coins.length;
+	}
+	
+	public void setActiveChar(Character character, int playerNumber) {
+		this.activeChar = character;
+		this.activePlayer = playerNumber;
+	}
+	
+	/**
+	 * The character that started its turn, or the null object.
+	 */
+	public Character getActiveChar() {
+		return this.activeChar;
+	}
+	
+	private Character activeChar;
+	
+	public int getActivePlayer() {
+		return this.activePlayer;
+	}
+	
+	private int activePlayer = -1;
+	
+	public void setKilledChar(Character killedChar) {
+		this.killedChar = killedChar;
+	}
+	
+	/**
+	 * The character that has been killed, or the null object.
+	 */
+	public Character getKilledChar() {
+		return this.killedChar;
+	}
+	
+	private Character killedChar;
+	
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+		this.stolenChar = stolenChar;
+		this.stolenCharThief = thiefPlayer;
+	}
+	
+	/**
+	 * The character that has been chosen to be stolen, or the null object.
+	 */
+	public Character getStolenChar() {
+		return this.stolenChar;
+	}
+	
+	private Character stolenChar;
+	
+	public int getStolenCharThief() {
+		return this.stolenCharThief;
+	}
+	
+	private int stolenCharThief = -1;
+	
+	public void setStolen(int stolenPlayer, int thiefPlayer) {
+		this.stolenPlayer = stolenPlayer;
+		this.thiefPlayer = thiefPlayer;
+	}
+	
+	/**
+	 * The player that has been stolen, or -1.
+	 */
+	public int getStolenPlayer() {
+		return this.stolenPlayer;
+	}
+	
+	private int stolenPlayer = -1;
+	
+	public int getThiefPlayer() {
+		return this.thiefPlayer;
+	}
+	
+	private int thiefPlayer = -1;
+	
+	public void setCharMove(int activePlayer, CharMove charMove) {
+		this.charMovePlayer = activePlayer;
+		this.charMove = charMove;
+	}
+	
+	/**
+	 * The character move that has been played, or the null object.
+	 */
+	public CharMove getCharMove() {
+		return this.charMove;
+	}
+	
+	private CharMove charMove;
+	
+	public int getCharMovePlayer() {
+		return this.charMovePlayer;
+	}
+	
+	private int charMovePlayer = -1;
+	
+	public void setCoins(int playerNumber, int coins) {
+		this.coins[playerNumber] = coins;
+	}
+	
+	/**
+	 * This method returns the number of coins of the given player, or -1 if it has not changed.
+	 * 
+	 * @param playerNumber	An integer representing the player.
+	 * 
+	 * @return				The new number of coins of the given player.
+	 */
+	public int getCoins(int playerNumber) {
+		return this.coins[playerNumber];
+	}
+	
+	private final int[] coins;
+	
+	public void setCards(int playerNumber, int numberCards) {
+		this.numberCards[playerNumber] = numberCards;
+	}
+	
+	/**
+	 * This method returns the number of cards of the given player, or -1 if it has not changed.
+	 * 
+	 * @param playerNumber	An integer representing the player.
+	 * 
+	 * @return				The new number of cards of the given player.
+	 */
+	public int getNumberCards(int playerNumber) {
+		return this.numberCards[playerNumber];
+	}
+	
+	private final int[] numberCards;
+	
+	public void setCards(Set<Card> cards) {
+		this.cards = cards;
+	}
+	
+	/**
+	 * The new hand of the receiving player, or the null object if it has not changed.
+	 */
+	public Set<Card> getCards() {
+		return this.cards;
+	}
+	
+	private Set<Card> cards;
+	
+	public void setCity(int playerNumber, Set<Card> cards) {
+		this.cities[playerNumber] = cards;
+	}
+	
+	/**
+	 * This method returns the city of the given player, or the null object if it has not changed.
+	 * 
+	 * @param playerNumber	An integer representing the player.
+	 * 
+	 * @return				The new city of the given player.
+	 */
+	public Set<Card> getCity(int playerNumber) {
+		return this.cities[playerNumber];
+	}
+	
+	private final Set<Card>[] cities;
+}
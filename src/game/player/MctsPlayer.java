@@ -0,0 +1,505 @@
+package game.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import game.engine.Engine;
+import game.engine.GameState;
+import game.engine.MoveGenerator;
+import game.helpers.Card;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+
+/**
+ * A computer player that decides with an information set Monte Carlo tree search. For every
+ * decision, the position of the game is taken from the engine as a game state and searched by
+ * one search per thread of a fork-join pool. Every iteration of a search first guesses everything
+ * this player cannot know, see GameState.determinize(), so the decisions only depend on what this
+ * player has seen. The iteration then descends the tree of moves that are legal in the guessed
+ * position, plays random moves until the end of the next round and scores the position for every
+ * player. The move that has been visited most often by all searches together is played.
+ *
+ * Every decision is bounded by a time budget, of which a margin of a quarter, at most 10 ms, is
+ * reserved twice. The searches check the clock in every step of an iteration and stop two margins
+ * before the budget expires. The decision waits for them at most until one margin before the
+ * budget expires, then cancels the searches that are late, which stop at their next step and free
+ * their threads, and plays the move visited most often by the searches that have finished. The
+ * last margin is left for collecting the results and for the scheduling of the deciding thread.
+ * If no search has finished in time, the first legal move is played.
+ *
+ * The engine has to be given to this player with setEngine() before the game starts. This player
+ * pulls its decisions from the engine in the getX() methods, it is meant for engines that are
+ * played with step() or start().
+ */
+public class MctsPlayer implements Player {
+	
+	/**
+	 * Create a new player that searches on the default pool of this class, see DEFAULT_POOL.
+	 * 
+	 * @param budgetMillis	The time budget of a decision in milliseconds.
+	 */
+	public MctsPlayer(long budgetMillis) {
+		this(MctsPlayer.DEFAULT_POOL, budgetMillis, new Random().nextLong());
+	}
+	
+	/**
+	 * The pool shared by the players that are not given a pool. It has one thread less than there
+	 * are processors, such that the thread that waits for a decision is not starved by the searches.
+	 */
+	private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	
+	/**
+	 * Create a new player that searches on the given fork-join pool, one search per thread of the
+	 * pool.
+	 * 
+	 * @param pool			The pool to search on.
+	 * @param budgetMillis	The time budget of a decision in milliseconds.
+	 * @param seed			The seed of the random decisions of the searches.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 						If the budget is not positive.
+	 */
+	public MctsPlayer(ForkJoinPool pool, long budgetMillis, long seed) {
+		if (budgetMillis <= 0) {
+			throw new IllegalArgumentException("The time budget has to be positive.");
+		}
+		this.pool = pool;
+		this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		this.random = new Random(seed);
+	}
+	
+	private final ForkJoinPool pool;
+	
+	private final long budgetNanos;
+	
+	private final Random random;
+	
+	/**
+	 * Set the engine of the game this player plays in.
+	 * 
+	 * @param engine	The engine of the game.
+	 */
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+	
+	private Engine engine;
+	
+	/**
+	 * This method returns the number of this player in its game, or -1 before the game has started.
+	 */
+	public int getPlayerNumber() {
+		return this.number;
+	}
+	
+	private int number = -1;
+	
+	/**
+	 * The number of rounds after the current round that are played by the random moves of an
+	 * iteration.
+	 */
+	public static final int HORIZON_ROUNDS = 1;
+	
+	/**
+	 * The exploration constant of the selection of moves in the tree.
+	 */
+	private static final double EXPLORATION = 0.7;
+	
+	/**
+	 * Search the current position of the game and return the input of the best move.
+	 */
+	private Object decide() {
+		long start = System.nanoTime();
+		if (this.engine == null) {
+			throw new IllegalStateException("The engine of the player has not been set.");
+		}
+		GameState root = this.engine.getState(this.random.nextLong());
+		MoveGenerator generator = new MoveGenerator();
+		int numberMoves = generator.generate(root);
+		if (numberMoves == 1) {
+			return root.getInput(generator.getMove(0));
+		}
+		long[] moves = new long[numberMoves];
+		for (int i = 0; i < numberMoves; i++) {
+			moves[i] = generator.getMove(i);
+		}
+		long margin = Math.min(this.budgetNanos / 4, MctsPlayer.MAX_MARGIN_NANOS);
+		long searchDeadline = start + this.budgetNanos - 2 * margin;
+		long decisionDeadline = start + this.budgetNanos - margin;
+		int numberSearches = this.pool.getParallelism();
+		AtomicReferenceArray<int[]> results = new AtomicReferenceArray<int[]>(numberSearches);
+		CountDownLatch finished = new CountDownLatch(numberSearches);
+		List<ForkJoinTask<Void>> searches = new ArrayList<ForkJoinTask<Void>>(numberSearches);
+		for (int i = 0; i < numberSearches; i++) {
+			searches.add(this.pool.submit(new Search(root, moves, this.number, this.random.nextLong(), searchDeadline, results, i, finished)));
+		}
+		try {
+			finished.await(Math.max(0, decisionDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (ForkJoinTask<Void> search : searches) {
+			search.cancel(false);
+		}
+		int[] visits = new int[numberMoves];
+		for (int i = 0; i < numberSearches; i++) {
+			int[] result = results.get(i);
+			if (result != null) {
+				for (int j = 0; j < numberMoves; j++) {
+					visits[j] += result[j];
+				}
+			}
+		}
+		int best = 0;
+		for (int i = 1; i < numberMoves; i++) {
+			if (visits[i] > visits[best]) {
+				best = i;
+			}
+		}
+		return root.getInput(moves[best]);
+	}
+	
+	/**
+	 * The largest margin of the budget, reserved once for the searches to finish and once for
+	 * collecting their results.
+	 */
+	private static final long MAX_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	
+	/**
+	 * A node of a search tree: the move that leads to it, the player of that move and the
+	 * statistics of the iterations through it.
+	 */
+	private static final class Node {
+		
+		Node(long move, int player) {
+			this.move = move;
+			this.player = player;
+		}
+		
+		final long move;
+		
+		final int player;
+		
+		/**
+		 * The moves of the children of this node in ascending order.
+		 */
+		long[] moves = new long[4];
+		
+		/**
+		 * The children of this node, in the order of their moves.
+		 */
+		Node[] children = new Node[4];
+		
+		int numberChildren;
+		
+		/**
+		 * This method returns the child of this node that is reached by the given move, or null if
+		 * the move has not been tried yet.
+		 */
+		Node getChild(long move) {
+			int index = Arrays.binarySearch(this.moves, 0, this.numberChildren, move);
+			return (index >= 0) ? this.children[index] : null;
+		}
+		
+		/**
+		 * Add a child to this node, its move must not have been tried yet.
+		 */
+		void addChild(Node child) {
+			if (this.numberChildren == this.moves.length) {
+				this.moves = Arrays.copyOf(this.moves, 2 * this.numberChildren);
+				this.children = Arrays.copyOf(this.children, 2 * this.numberChildren);
+			}
+			int index = -Arrays.binarySearch(this.moves, 0, this.numberChildren, child.move) - 1;
+			System.arraycopy(this.moves, index, this.moves, index + 1, this.numberChildren - index);
+			System.arraycopy(this.children, index, this.children, index + 1, this.numberChildren - index);
+			this.moves[index] = child.move;
+			this.children[index] = child;
+			this.numberChildren ++;
+		}
+		
+		int visits;
+		
+		/**
+		 * The number of iterations in which the move of this node was legal.
+		 */
+		int availability;
+		
+		double reward;
+	}
+	
+	/**
+	 * One search of a decision. The search builds its own tree, iterating until its deadline or
+	 * until it is cancelled, both are checked in every step of an iteration. When it stops, the
+	 * search stores the visits of the moves of the root, in the order of the given moves, as its
+	 * result and counts down the latch of the finished searches.
+	 */
+	private static final class Search extends RecursiveAction {
+		
+		Search(GameState root, long[] moves, int observer, long seed, long deadline, AtomicReferenceArray<int[]> results, int index, CountDownLatch finished) {
+			this.root = root;
+			this.moves = moves;
+			this.observer = observer;
+			this.seed = seed;
+			this.deadline = deadline;
+			this.results = results;
+			this.index = index;
+			this.finished = finished;
+		}
+		
+		private final GameState root;
+		
+		private final long[] moves;
+		
+		private final int observer;
+		
+		private final long seed;
+		
+		private final long deadline;
+		
+		private final AtomicReferenceArray<int[]> results;
+		
+		private final int index;
+		
+		private final CountDownLatch finished;
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * This method returns a boolean stating if this search has to stop.
+		 */
+		private boolean isExpired() {
+			return (System.nanoTime() >= this.deadline) || this.isCancelled();
+		}
+		
+		@Override
+		protected void compute() {
+			try {
+				Node tree = this.search();
+				int[] visits = new int[this.moves.length];
+				for (int i = 0; i < this.moves.length; i++) {
+					Node child = tree.getChild(this.moves[i]);
+					visits[i] = (child == null) ? 0 : child.visits;
+				}
+				this.results.set(this.index, visits);
+			} finally {
+				this.finished.countDown();
+			}
+		}
+		
+		/**
+		 * Iterate until this search has to stop and return the tree of the complete iterations. An
+		 * iteration that is interrupted by the deadline is abandoned.
+		 */
+		private Node search() {
+			Node tree = new Node(0, -1);
+			MoveGenerator generator = new MoveGenerator();
+			long[] untried = new long[64];
+			double[] rewards = new double[this.root.getNumberPlayers()];
+			Node[] path = new Node[256];
+			long seed = this.seed;
+			int horizon = this.root.getRound() + MctsPlayer.HORIZON_ROUNDS;
+			while (!this.isExpired()) {
+				GameState state = this.root.copy();
+				seed = seed * 6364136223846793005L + 1442695040888963407L;
+				state.setSeed(seed);
+				state.determinize(this.observer);
+				Node node = tree;
+				int depth = 0;
+				boolean expired = false;
+				while (!state.isEnded() && (depth < path.length)) {
+					if (this.isExpired()) {
+						expired = true;
+						break;
+					}
+					int player = state.getAwaitedPlayer();
+					int numberMoves = generator.generate(state);
+					if (numberMoves == 0) {
+						break;
+					}
+					if (untried.length < numberMoves) {
+						untried = new long[numberMoves];
+					}
+					int numberUntried = 0;
+					Node best = null;
+					double bestValue = Double.NEGATIVE_INFINITY;
+					for (int i = 0; i < numberMoves; i++) {
+						long move = generator.getMove(i);
+						Node child = node.getChild(move);
+						if (child == null) {
+							untried[numberUntried++] = move;
+							continue;
+						}
+						child.availability ++;
+						double value = child.reward / child.visits + MctsPlayer.EXPLORATION * Math.sqrt(Math.log(child.availability) / child.visits);
+						if (value > bestValue) {
+							best = child;
+							bestValue = value;
+						}
+					}
+					if (numberUntried > 0) {
+						long move = untried[state.nextInt(numberUntried)];
+						state.apply(move);
+						Node child = new Node(move, player);
+						child.availability = 1;
+						node.addChild(child);
+						path[depth++] = child;
+						break;
+					}
+					state.apply(best.move);
+					node = best;
+					path[depth++] = best;
+				}
+				while (!expired && !state.isEnded() && (state.getRound() <= horizon)) {
+					if (this.isExpired()) {
+						expired = true;
+						break;
+					}
+					state.apply(generator.getMove(state.nextInt(generator.generate(state))));
+				}
+				if (expired) {
+					break;
+				}
+				MctsPlayer.evaluate(state, rewards);
+				for (int i = 0; i < depth; i++) {
+					path[i].visits ++;
+					path[i].reward += rewards[path[i].player];
+				}
+				tree.visits ++;
+			}
+			return tree;
+		}
+	}
+	
+	/**
+	 * Score the given position for every player, between 0 for the weakest and 1 for the strongest
+	 * player. The strength of a player is twice his score plus his coins and cards.
+	 */
+	private static void evaluate(GameState state, double[] rewards) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < rewards.length; i++) {
+			rewards[i] = 2 * state.getScore(i) + state.getCoins(i) + state.getNumberCards(i);
+			min = Math.min(min, rewards[i]);
+			max = Math.max(max, rewards[i]);
+		}
+		for (int i = 0; i < rewards.length; i++) {
+			rewards[i] = (max > min) ? (rewards[i] - min) / (max - min) : 0.5;
+		}
+	}
+	
+	@Override
+	public void setNumberPlayers(int numberPlayers) {
+	}
+	
+	@Override
+	public void setPlayerNumber(int number) {
+		this.number = number;
+	}
+	
+	@Override
+	public void setKing(int number) {
+	}
+	
+	@Override
+	public void setOpenChars(Set<Character> characters) {
+	}
+	
+	@Override
+	public void setKingChar(Character character) {
+	}
+	
+	@Override
+	public void setCharsToChoose(Set<Character> characters) {
+	}
+	
+	@Override
+	public Character getChosenChar() {
+		return (Character) this.decide();
+	}
+	
+	@Override
+	public Character getPutAwayChar() {
+		return (Character) this.decide();
+	}
+	
+	@Override
+	public void setActiveChar(Character character, int playerNumber) {
+	}
+	
+	@Override
+	public void setKilledChar(Character killedChar) {
+	}
+	
+	@Override
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setStolen(int stolenPlayer, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setCoins(int playerNumber, int coins) {
+	}
+	
+	@Override
+	public void setCharMove(int activePlayer, CharMove charMove) {
+	}
+	
+	@Override
+	public void setCardsToChoose(Set<Card> cards) {
+	}
+	
+	@Override
+	public void setCards(int playerNumber, int numberCards) {
+	}
+	
+	@Override
+	public void setCards(Set<Card> cards) {
+	}
+	
+	@Override
+	public void setCity(int playerNumber, Set<Card> cards) {
+	}
+	
+	@Override
+	public void setPoints(Map<Integer, Integer> points) {
+	}
+	
+	@Override
+	public void setWinner(int playerNumber) {
+	}
+	
+	@Override
+	public CharMove getCharMove() {
+		return (CharMove) this.decide();
+	}
+	
+	@Override
+	public Revenue getRevenue() {
+		return (Revenue) this.decide();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<Card> getChosenCard() {
+		return (Set<Card>) this.decide();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<Card> getBuild() {
+		return (Set<Card>) this.decide();
+	}
+}
@@ -165,7 +165,7 @@ public interface Player {
 	 * This method will be called to one player at a time and gives the player the current status
 	 * of the cards he holds in his hand. This method can be called multiple times during a player's
 	 * round and also to non active players (magier). This method always reflects a change of cards
-	 * for this player.
+	 * for this player. The given set is a copy, it is not changed by the engine afterwards.
 	 * 
 	 * @param cards	A set of cards representing the current player's hand.
 	 */
@@ -174,6 +174,7 @@ public interface Player {
 	/**
 	 * Notifies all player about the current city of the player represented by playerNumber. This
 	 * method will by invoked to all players when one player has a change of number of buildings.
+	 * The given set is a copy, it is not changed by the engine afterwards.
 	 * 
 	 * @param playerNumber	The playerNumber which has this set of buildings.
 	 * @param cards			The current city of the player represented by playerNumber.
@@ -181,8 +182,21 @@ public interface Player {
 	public void setCity(int playerNumber, Set<Card> cards);
 	
 	/**
-	 * This method will be called to all players at the end of the game to distribute the score of
-	 * each individual player.
+	 * Notify the player about all changes caused by one action. This method is only invoked by an
+	 * engine in batching mode, which invokes it once per action instead of invoking the
+	 * individual methods setActiveChar(), setKilledChar(), setStolen(), setCharMove(), setCoins(),
+	 * setCards() and setCity(). The default implementation delivers the delta via these methods,
+	 * a player that sends the changes over a network should override it to send them at once.
+	 * 
+	 * @param delta	The changes of the game since the previous delta.
+	 */
+	public default void setDelta(GameDelta delta) {
+		delta.apply(this);
+	}
+	
+	/**
+	 * This method will be called to all players whenever the score of a player changes, and at the
+	 * end of the game, to distribute the score of each individual player.
 	 * 
 	 * @param points	A map containing a key-value pair for each player. The key represents the
 	 * 					playerNumber and the value the number of points.
@@ -200,7 +214,8 @@ public interface Player {
 	 * Ask the current active player what will be his move related to his chosen character. This
 	 * method will be invoked three times during a player's turn. A player has to return a valid 
 	 * CharMove object three times. If the player does not do this, this method will be invoked
-	 * again.
+	 * again. The move of a character can only be played once per turn, a player who does not want
+	 * to play his move returns a NoMove object.
 	 * 
 	 * @return	A CharMove object containing all information about the chosen move of the active
 	 * 			player.
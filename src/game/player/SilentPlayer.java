@@ -0,0 +1,118 @@
+package game.player;
+
+import java.util.Map;
+import java.util.Set;
+
+import game.helpers.Card;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+
+/**
+ * A player that ignores all notifications and never provides an input. This player can be used
+ * for games whose inputs are submitted directly to the engine, like replays.
+ */
+public class SilentPlayer implements Player {
+	
+	@Override
+	public void setNumberPlayers(int numberPlayers) {
+	}
+	
+	@Override
+	public void setPlayerNumber(int number) {
+	}
+	
+	@Override
+	public void setKing(int number) {
+	}
+	
+	@Override
+	public void setOpenChars(Set<Character> characters) {
+	}
+	
+	@Override
+	public void setKingChar(Character character) {
+	}
+	
+	@Override
+	public void setCharsToChoose(Set<Character> characters) {
+	}
+	
+	@Override
+	public Character getChosenChar() {
+		return null;
+	}
+	
+	@Override
+	public Character getPutAwayChar() {
+		return null;
+	}
+	
+	@Override
+	public void setActiveChar(Character character, int playerNumber) {
+	}
+	
+	@Override
+	public void setKilledChar(Character killedChar) {
+	}
+	
+	@Override
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setStolen(int stolenPlayer, int thiefPlayer) {
+	}
+	
+	@Override
+	public void setCoins(int playerNumber, int coins) {
+	}
+	
+	@Override
+	public void setCharMove(int activePlayer, CharMove charMove) {
+	}
+	
+	@Override
+	public void setCardsToChoose(Set<Card> cards) {
+	}
+	
+	@Override
+	public void setCards(int playerNumber, int numberCards) {
+	}
+	
+	@Override
+	public void setCards(Set<Card> cards) {
+	}
+	
+	@Override
+	public void setCity(int playerNumber, Set<Card> cards) {
+	}
+	
+	@Override
+	public void setPoints(Map<Integer, Integer> points) {
+	}
+	
+	@Override
+	public void setWinner(int playerNumber) {
+	}
+	
+	@Override
+	public CharMove getCharMove() {
+		return null;
+	}
+	
+	@Override
+	public Revenue getRevenue() {
+		return null;
+	}
+	
+	@Override
+	public Set<Card> getChosenCard() {
+		return null;
+	}
+	
+	@Override
+	public Set<Card> getBuild() {
+		return null;
+	}
+}
@@ -0,0 +1,69 @@
+package game.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe pool of byte buffers of one fixed size. Encoding a frame into a pooled buffer
+ * avoids allocating a new buffer for every message that is sent.
+ */
+public class BufferPool {
+	
+	/**
+	 * Create a new pool of buffers.
+	 * 
+	 * @param bufferSize	The capacity of the buffers of this pool.
+	 * @param maxBuffers	The maximum number of free buffers kept by this pool. Buffers released
+	 * 						to a full pool are left to the garbage collector.
+	 */
+	public BufferPool(int bufferSize, int maxBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxBuffers = maxBuffers;
+	}
+	
+	public final int bufferSize;
+	
+	private final int maxBuffers;
+	
+	/**
+	 * This method returns an empty buffer, ready to be written. The buffer should be returned to
+	 * this pool with release() when it is no longer used.
+	 * 
+	 * @return	A cleared buffer with the capacity of this pool.
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = this.buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocate(this.bufferSize);
+		}
+		this.numberBuffers.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+	
+	/**
+	 * Return the given buffer to this pool. The buffer must not be used after it has been
+	 * released.
+	 * 
+	 * @param buffer	A buffer that has been acquired from this pool.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer.capacity() != this.bufferSize) {
+			return;
+		}
+		if (this.numberBuffers.incrementAndGet() > this.maxBuffers) {
+			this.numberBuffers.decrementAndGet();
+			return;
+		}
+		this.buffers.offer(buffer);
+	}
+	
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+	
+	/**
+	 * The number of buffers in the queue, counted separately because the size of the queue is
+	 * not a constant time operation.
+	 */
+	private final AtomicInteger numberBuffers = new AtomicInteger();
+}
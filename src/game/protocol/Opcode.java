@@ -0,0 +1,76 @@
+package game.protocol;
+
+/**
+ * The types of the frames of the binary game protocol. Every frame starts with the protocol
+ * version, followed by the code of its opcode. The codes below 64 are sent by the server to a
+ * player, the other codes are sent by a player to the server. A BATCH frame contains several
+ * frames, each prefixed with its length.
+ */
+public enum Opcode {
+	
+	NUMBER_PLAYERS(1),
+	PLAYER_NUMBER(2),
+	KING(3),
+	OPEN_CHARS(4),
+	KING_CHAR(5),
+	CHARS_TO_CHOOSE(6),
+	ACTIVE_CHAR(7),
+	KILLED_CHAR(8),
+	STOLEN_CHAR(9),
+	STOLEN_PLAYER(10),
+	COINS(11),
+	CHAR_MOVE(12),
+	CARDS_TO_CHOOSE(13),
+	NUMBER_CARDS(14),
+	CARDS(15),
+	CITY(16),
+	POINTS(17),
+	WINNER(18),
+	DELTA(19),
+	AWAIT(20),
+	BATCH(21),
+	JOIN(64),
+	CHOSEN_CHAR(65),
+	PUT_AWAY_CHAR(66),
+	PLAY_CHAR_MOVE(67),
+	REVENUE(68),
+	CHOSEN_CARDS(69),
+	BUILD(70);
+	
+	Opcode(int code) {
+		this.code = (byte) code;
+	}
+	
+	public final byte code;
+	
+	/**
+	 * This method returns true if frames of this type are sent by a player to the server.
+	 * 
+	 * @return	A boolean stating if this is an opcode of a player action.
+	 */
+	public boolean isAction() {
+		return this.code >= 64;
+	}
+	
+	/**
+	 * This method returns the opcode with the given code.
+	 * 
+	 * @param code	The code of the opcode.
+	 * 
+	 * @return		The opcode with the given code, or the null object if there is no such opcode.
+	 */
+	public static Opcode getOpcode(int code) {
+		if ((code < 0) || (code >= Opcode.BY_CODE.length)) {
+			return null;
+		}
+		return Opcode.BY_CODE[code];
+	}
+	
+	private static final Opcode[] BY_CODE = new Opcode[128];
+	
+	static {
+		for (Opcode opcode : Opcode.values()) {
+			Opcode.BY_CODE[opcode.code] = opcode;
+		}
+	}
+}
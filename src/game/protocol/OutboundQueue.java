@@ -0,0 +1,260 @@
+package game.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.java_websocket.WebSocket;
+
+/**
+ * A bounded queue of the frames that still have to be sent to one connection. Frames are only
+ * written when the websocket library has sent everything it has buffered for the connection, in
+ * the meantime the queued frames are coalesced:
+ *  - A state update (coins, number of cards, hand, city, king and awaited phase) replaces the
+ *    queued update of the same state, such that a lagging client only receives the latest value.
+ *  - All queued frames are written as one BATCH frame, containing each frame prefixed with its
+ *    length.
+ * The queue holds at most maxBytes bytes. Frames offered to a full queue are dropped and the
+ * queue is marked as overflowed. A queue that stays above its high-water mark for longer than
+ * the given time is reported as lagging, such that the server can disconnect the client.
+ *
+ * All methods are synchronized, frames can be offered by a game thread while another thread
+ * flushes the queue.
+ */
+public class OutboundQueue {
+	
+	/**
+	 * Create a new queue for the given connection.
+	 * 
+	 * @param socket			The connection the frames are sent to.
+	 * @param encoder			The encoder the frames were encoded with, the frames are released
+	 * 							to its pool after they have been sent or dropped.
+	 * @param maxBytes			The maximum number of bytes in this queue.
+	 * @param highWaterMark		The number of bytes above which this queue is considered behind.
+	 * @param maxLagMillis		The time in milliseconds this queue may stay above its high-water
+	 * 							mark before it is reported as lagging.
+	 */
+	public OutboundQueue(WebSocket socket, ProtocolEncoder encoder, int maxBytes, int highWaterMark, long maxLagMillis) {
+		this.socket = socket;
+		this.encoder = encoder;
+		this.maxBytes = maxBytes;
+		this.highWaterMark = highWaterMark;
+		this.maxLagMillis = maxLagMillis;
+	}
+	
+	private final WebSocket socket;
+	
+	public WebSocket getSocket() {
+		return this.socket;
+	}
+	
+	private final ProtocolEncoder encoder;
+	
+	private final int maxBytes;
+	
+	private final int highWaterMark;
+	
+	private final long maxLagMillis;
+	
+	/**
+	 * The queued frames, in the order they have to be sent.
+	 */
+	private final List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+	
+	/**
+	 * The supersede key of each queued frame, or -1 for frames that are never replaced.
+	 */
+	private final List<Integer> keys = new ArrayList<Integer>();
+	
+	private int queuedBytes;
+	
+	/**
+	 * The time at which this queue went above its high-water mark, or -1 if it is below.
+	 */
+	private long highWaterSince = -1;
+	
+	private boolean overflowed;
+	
+	private long droppedFrames;
+	
+	/**
+	 * Add the given frame to this queue. The queue takes ownership of the frame: it is released to
+	 * the pool of the encoder once it has been sent, replaced or dropped.
+	 * 
+	 * @param frame	A frame encoded by the encoder of this queue.
+	 * 
+	 * @return		A boolean stating if the frame has been queued. It is false if the queue is
+	 * 				full, in which case the frame is dropped.
+	 */
+	public synchronized boolean offer(ByteBuffer frame) {
+		int key = OutboundQueue.getSupersedeKey(frame);
+		if (key >= 0) {
+			int index = this.keys.indexOf(key);
+			if (index >= 0) {
+				ByteBuffer old = this.frames.remove(index);
+				this.keys.remove(index);
+				this.queuedBytes -= old.remaining();
+				this.encoder.release(old);
+				this.droppedFrames ++;
+			}
+		}
+		if (this.queuedBytes + frame.remaining() > this.maxBytes) {
+			this.encoder.release(frame);
+			this.overflowed = true;
+			this.droppedFrames ++;
+			return false;
+		}
+		this.frames.add(frame);
+		this.keys.add(key);
+		this.queuedBytes += frame.remaining();
+		if ((this.queuedBytes > this.highWaterMark) && (this.highWaterSince < 0)) {
+			this.highWaterSince = System.currentTimeMillis();
+		}
+		return true;
+	}
+	
+	/**
+	 * Send the queued frames if the connection has no buffered data left. All queued frames are
+	 * merged into as few BATCH frames as possible.
+	 * 
+	 * @return	A boolean stating if the queue is empty afterwards.
+	 */
+	public synchronized boolean flush() {
+		if (this.frames.isEmpty()) {
+			return true;
+		}
+		if (!this.socket.isOpen() || this.socket.hasBufferedData()) {
+			return false;
+		}
+		if (this.frames.size() == 1) {
+			this.socket.send(this.frames.get(0));
+		}
+		else {
+			this.sendBatches();
+		}
+		for (ByteBuffer frame : this.frames) {
+			this.encoder.release(frame);
+		}
+		this.frames.clear();
+		this.keys.clear();
+		this.queuedBytes = 0;
+		this.highWaterSince = -1;
+		return true;
+	}
+	
+	/**
+	 * Send the queued frames as BATCH frames. A frame that does not fit in an empty batch is sent
+	 * on its own.
+	 */
+	private void sendBatches() {
+		ByteBuffer batch = null;
+		for (ByteBuffer frame : this.frames) {
+			int length = frame.remaining();
+			if ((batch != null) && (batch.remaining() < length + 5)) {
+				this.sendBatch(batch);
+				batch = null;
+			}
+			if (batch == null) {
+				batch = this.encoder.beginFrame(Opcode.BATCH);
+				if (batch.remaining() < length + 5) {
+					this.encoder.release(batch);
+					batch = null;
+					this.socket.send(frame.duplicate());
+					continue;
+				}
+			}
+			ProtocolEncoder.putVarInt(batch, length);
+			batch.put(frame.duplicate());
+		}
+		if (batch != null) {
+			this.sendBatch(batch);
+		}
+	}
+	
+	private void sendBatch(ByteBuffer batch) {
+		batch.flip();
+		this.socket.send(batch);
+		this.encoder.release(batch);
+	}
+	
+	/**
+	 * Release all queued frames without sending them, for example when the connection is closed.
+	 */
+	public synchronized void clear() {
+		for (ByteBuffer frame : this.frames) {
+			this.encoder.release(frame);
+		}
+		this.frames.clear();
+		this.keys.clear();
+		this.queuedBytes = 0;
+		this.highWaterSince = -1;
+	}
+	
+	public synchronized int getQueuedBytes() {
+		return this.queuedBytes;
+	}
+	
+	public synchronized int getNumberFrames() {
+		return this.frames.size();
+	}
+	
+	/**
+	 * This method returns the number of frames that have been replaced by a newer state update or
+	 * dropped because the queue was full.
+	 */
+	public synchronized long getDroppedFrames() {
+		return this.droppedFrames;
+	}
+	
+	/**
+	 * This method returns true if a frame has been dropped because this queue was full. The
+	 * client has missed events and should be disconnected or resynchronized.
+	 */
+	public synchronized boolean isOverflowed() {
+		return this.overflowed;
+	}
+	
+	/**
+	 * This method returns true if this queue has been above its high-water mark for longer than
+	 * the allowed time.
+	 * 
+	 * @param now	The current time in milliseconds.
+	 */
+	public synchronized boolean isLagging(long now) {
+		return (this.highWaterSince >= 0) && (now - this.highWaterSince > this.maxLagMillis);
+	}
+	
+	/**
+	 * This method returns the key of the state updated by the given frame, or -1 if the frame
+	 * contains an event that can never be replaced. Frames with the same key update the same
+	 * state, only the latest one has to be sent.
+	 * 
+	 * @param frame	A frame positioned at its start.
+	 * 
+	 * @return		The supersede key of the frame.
+	 */
+	static int getSupersedeKey(ByteBuffer frame) {
+		if (frame.remaining() < 2) {
+			return -1;
+		}
+		Opcode opcode = Opcode.getOpcode(frame.get(frame.position() + 1));
+		if (opcode == null) {
+			return -1;
+		}
+		switch (opcode) {
+		case KING:
+		case CARDS:
+		case AWAIT:
+			return opcode.code << 8;
+		case COINS:
+		case NUMBER_CARDS:
+		case CITY:
+			if (frame.remaining() < 3) {
+				return -1;
+			}
+			return (opcode.code << 8) | (frame.get(frame.position() + 2) & 0x7F);
+		default:
+			return -1;
+		}
+	}
+}
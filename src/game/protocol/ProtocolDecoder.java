@@ -0,0 +1,380 @@
+package game.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import game.cards.CardCatalog;
+import game.engine.Phase;
+import game.helpers.CardSet;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+import game.helpers.charMove.DiefMove;
+import game.helpers.charMove.KoningMove;
+import game.helpers.charMove.MagierMove;
+import game.helpers.charMove.MoordenaarMove;
+import game.helpers.charMove.NoMove;
+import game.player.GameDelta;
+
+/**
+ * The decoder of the binary game protocol, see ProtocolEncoder for the format. The decoder reads
+ * directly from the buffer of the received frame, no bytes are copied. A malformed frame is
+ * rejected with an IllegalArgumentException.
+ */
+public class ProtocolDecoder {
+	
+	/**
+	 * Create a new decoder for games with the cards of the given catalog.
+	 * 
+	 * @param catalog	The catalog of the cards in the decoded frames.
+	 */
+	public ProtocolDecoder(CardCatalog catalog) {
+		this.catalog = catalog;
+	}
+	
+	private final CardCatalog catalog;
+	
+	/**
+	 * Read the header of the frame in the given buffer. The buffer is positioned at the payload
+	 * afterwards.
+	 * 
+	 * @param buffer	The buffer positioned at the start of a frame.
+	 * 
+	 * @return			The opcode of the frame.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the frame has another version or an unknown opcode.
+	 */
+	public Opcode readHeader(ByteBuffer buffer) {
+		if (buffer.remaining() < 2) {
+			throw new IllegalArgumentException("Frame is too short");
+		}
+		byte version = buffer.get();
+		if (version != ProtocolEncoder.VERSION) {
+			throw new IllegalArgumentException("Unsupported protocol version ".concat(Byte.toString(version)));
+		}
+		byte code = buffer.get();
+		Opcode opcode = Opcode.getOpcode(code);
+		if (opcode == null) {
+			throw new IllegalArgumentException("Unknown opcode ".concat(Byte.toString(code)));
+		}
+		return opcode;
+	}
+	
+	/**
+	 * Decode the payload of a frame of a player action into the input for the engine: a Character,
+	 * a CharMove, a Revenue or a CardSet, which can be submitted with Engine.submitInput().
+	 * 
+	 * @param opcode	The opcode of the frame, as returned by readHeader().
+	 * @param buffer	The buffer positioned at the payload of the frame.
+	 * 
+	 * @return			The input contained in the frame.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the frame does not contain a valid input.
+	 */
+	public Object decodeInput(Opcode opcode, ByteBuffer buffer) {
+		Object result;
+		switch (opcode) {
+		case CHOSEN_CHAR:
+		case PUT_AWAY_CHAR:
+			result = this.getCharacter(buffer);
+			if (result == null) {
+				throw new IllegalArgumentException("Missing character");
+			}
+			break;
+		case PLAY_CHAR_MOVE:
+			result = this.getCharMove(buffer);
+			break;
+		case REVENUE:
+			result = new Revenue(this.getBoolean(buffer));
+			break;
+		case CHOSEN_CARDS:
+		case BUILD:
+			result = this.getCards(buffer);
+			break;
+		default:
+			throw new IllegalArgumentException("Not an input: ".concat(opcode.name()));
+		}
+		this.checkEnd(buffer);
+		return result;
+	}
+	
+	/**
+	 * This method returns the phase in which the engine awaits the input of the given action
+	 * frame.
+	 * 
+	 * @param opcode	The opcode of a frame of a player action.
+	 * 
+	 * @return			The phase the input of the frame is meant for.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the opcode is not the opcode of an input.
+	 */
+	public static Phase getPhase(Opcode opcode) {
+		switch (opcode) {
+		case CHOSEN_CHAR:
+			return Phase.CHOOSE_CHAR;
+		case PUT_AWAY_CHAR:
+			return Phase.PUT_AWAY_CHAR;
+		case PLAY_CHAR_MOVE:
+			return Phase.CHAR_MOVE;
+		case REVENUE:
+			return Phase.REVENUE;
+		case CHOSEN_CARDS:
+			return Phase.CHOOSE_CARDS;
+		case BUILD:
+			return Phase.BUILD;
+		default:
+			throw new IllegalArgumentException("Not an input: ".concat(opcode.name()));
+		}
+	}
+	
+	/**
+	 * Split the payload of a BATCH frame into the frames it contains. The returned buffers share
+	 * the content of the given buffer, each one contains one complete frame.
+	 * 
+	 * @param buffer	The buffer positioned at the payload of the frame.
+	 * 
+	 * @return			A list of the frames in the batch, in the order they were sent.
+	 */
+	public List<ByteBuffer> splitBatch(ByteBuffer buffer) {
+		List<ByteBuffer> result = new ArrayList<ByteBuffer>();
+		while (buffer.hasRemaining()) {
+			int length = this.getVarInt(buffer);
+			if (length > buffer.remaining()) {
+				throw new IllegalArgumentException("Frame in batch is truncated");
+			}
+			ByteBuffer frame = buffer.slice();
+			frame.limit(length);
+			result.add(frame);
+			buffer.position(buffer.position() + length);
+		}
+		return result;
+	}
+	
+	/**
+	 * Decode the payload of a DELTA frame.
+	 * 
+	 * @param buffer	The buffer positioned at the payload of the frame.
+	 * 
+	 * @return			The delta contained in the frame.
+	 */
+	public GameDelta decodeDelta(ByteBuffer buffer) {
+		int events = this.getVarInt(buffer);
+		int numberPlayers = this.getVarInt(buffer);
+		if (numberPlayers > ProtocolDecoder.MAX_PLAYERS) {
+			throw new IllegalArgumentException("Invalid number of players");
+		}
+		GameDelta delta = new GameDelta(numberPlayers);
+		if ((events & ProtocolEncoder.DELTA_KILLED_CHAR) != 0) {
+			delta.setKilledChar(this.getCharacter(buffer));
+		}
+		if ((events & ProtocolEncoder.DELTA_STOLEN_CHAR) != 0) {
+			Character stolenChar = this.getCharacter(buffer);
+			delta.setStolen(stolenChar, this.getPlayer(buffer, numberPlayers));
+		}
+		if ((events & ProtocolEncoder.DELTA_CHAR_MOVE) != 0) {
+			int activePlayer = this.getPlayer(buffer, numberPlayers);
+			delta.setCharMove(activePlayer, this.getCharMove(buffer));
+		}
+		if ((events & ProtocolEncoder.DELTA_ACTIVE_CHAR) != 0) {
+			Character activeChar = this.getCharacter(buffer);
+			delta.setActiveChar(activeChar, this.getPlayer(buffer, numberPlayers));
+		}
+		if ((events & ProtocolEncoder.DELTA_STOLEN_PLAYER) != 0) {
+			int stolenPlayer = this.getPlayer(buffer, numberPlayers);
+			delta.setStolen(stolenPlayer, this.getPlayer(buffer, numberPlayers));
+		}
+		if ((events & ProtocolEncoder.DELTA_CARDS) != 0) {
+			delta.setCards(this.getCards(buffer));
+		}
+		int changed = this.getVarInt(buffer);
+		for (int i = 0; i < changed; i++) {
+			int playerNumber = this.getPlayer(buffer, numberPlayers);
+			delta.setCoins(playerNumber, this.getVarInt(buffer));
+		}
+		changed = this.getVarInt(buffer);
+		for (int i = 0; i < changed; i++) {
+			int playerNumber = this.getPlayer(buffer, numberPlayers);
+			delta.setCards(playerNumber, this.getVarInt(buffer));
+		}
+		changed = this.getVarInt(buffer);
+		for (int i = 0; i < changed; i++) {
+			int playerNumber = this.getPlayer(buffer, numberPlayers);
+			delta.setCity(playerNumber, this.getCards(buffer));
+		}
+		this.checkEnd(buffer);
+		return delta;
+	}
+	
+	/**
+	 * The maximum number of players of a game.
+	 */
+	private static final int MAX_PLAYERS = 7;
+	
+	/**
+	 * Read an unsigned varint from the given buffer.
+	 * 
+	 * @param buffer	The buffer to be read.
+	 * 
+	 * @return			The decoded integer.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the buffer ends before the varint or the varint does not fit in 31 bits.
+	 */
+	public int getVarInt(ByteBuffer buffer) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				throw new IllegalArgumentException("Frame ends within a number");
+			}
+			byte b = buffer.get();
+			if ((shift == 28) && ((b & 0xF8) != 0)) {
+				break;
+			}
+			result |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+		throw new IllegalArgumentException("Number is too large");
+	}
+	
+	/**
+	 * Read a long integer of eight bytes from the given buffer.
+	 * 
+	 * @param buffer	The buffer to be read.
+	 * 
+	 * @return			The decoded long integer.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the buffer ends before the long integer.
+	 */
+	public long getLong(ByteBuffer buffer) {
+		if (buffer.remaining() < 8) {
+			throw new IllegalArgumentException("Frame ends within a number");
+		}
+		return buffer.getLong();
+	}
+	
+	private int getPlayer(ByteBuffer buffer, int numberPlayers) {
+		int result = this.getVarInt(buffer);
+		if (result >= numberPlayers) {
+			throw new IllegalArgumentException("Invalid player number ".concat(Integer.toString(result)));
+		}
+		return result;
+	}
+	
+	private boolean getBoolean(ByteBuffer buffer) {
+		if (!buffer.hasRemaining()) {
+			throw new IllegalArgumentException("Frame ends within a boolean");
+		}
+		return buffer.get() != 0;
+	}
+	
+	/**
+	 * Read a character from the given buffer.
+	 * 
+	 * @return	The decoded character, or the null object if it is encoded as zero.
+	 */
+	public Character getCharacter(ByteBuffer buffer) {
+		if (!buffer.hasRemaining()) {
+			throw new IllegalArgumentException("Frame ends within a character");
+		}
+		int number = buffer.get();
+		if (number == 0) {
+			return null;
+		}
+		Character[] characters = Character.values();
+		if ((number < 0) || (number > characters.length)) {
+			throw new IllegalArgumentException("Unknown character ".concat(Integer.toString(number)));
+		}
+		return characters[number - 1];
+	}
+	
+	/**
+	 * Read a set of characters, encoded as a bitmask, from the given buffer.
+	 */
+	public Set<Character> getCharacters(ByteBuffer buffer) {
+		int mask = this.getVarInt(buffer);
+		Set<Character> result = EnumSet.noneOf(Character.class);
+		for (Character character : Character.values()) {
+			if ((mask & (1 << character.number)) != 0) {
+				result.add(character);
+				mask &= ~(1 << character.number);
+			}
+		}
+		if (mask != 0) {
+			throw new IllegalArgumentException("Unknown characters in set");
+		}
+		return result;
+	}
+	
+	/**
+	 * Read a set of cards of the catalog of this decoder from the given buffer.
+	 */
+	public CardSet getCards(ByteBuffer buffer) {
+		int size = this.getVarInt(buffer);
+		if (size > this.catalog.getNumberCards()) {
+			throw new IllegalArgumentException("Too many cards in set");
+		}
+		CardSet result = new CardSet(this.catalog);
+		for (int i = 0; i < size; i++) {
+			int id = this.getVarInt(buffer);
+			if (id >= this.catalog.getNumberCards()) {
+				throw new IllegalArgumentException("Unknown card ".concat(Integer.toString(id)));
+			}
+			result.addId(id);
+		}
+		return result;
+	}
+	
+	/**
+	 * Read a character move from the given buffer.
+	 */
+	public CharMove getCharMove(ByteBuffer buffer) {
+		Character type = this.getCharacter(buffer);
+		if (type == null) {
+			return new NoMove();
+		}
+		switch (type) {
+		case MOORDENAAR:
+			return new MoordenaarMove(this.getTarget(buffer));
+		case DIEF:
+			return new DiefMove(this.getTarget(buffer));
+		case MAGIER:
+			if (this.getBoolean(buffer)) {
+				return new MagierMove(true, this.getPlayer(buffer, ProtocolDecoder.MAX_PLAYERS), new CardSet(this.catalog));
+			}
+			return new MagierMove(false, -1, this.getCards(buffer));
+		case KONING:
+			return new KoningMove(this.getCards(buffer));
+		default:
+			throw new IllegalArgumentException("Character has no move: ".concat(type.name));
+		}
+	}
+	
+	private Character getTarget(ByteBuffer buffer) {
+		Character result = this.getCharacter(buffer);
+		if (result == null) {
+			throw new IllegalArgumentException("Missing target character of move");
+		}
+		return result;
+	}
+	
+	/**
+	 * Check that the given frame has been read completely.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the frame contains bytes that have not been read.
+	 */
+	public void checkEnd(ByteBuffer buffer) {
+		if (buffer.hasRemaining()) {
+			throw new IllegalArgumentException("Unexpected bytes at the end of the frame");
+		}
+	}
+}
@@ -0,0 +1,485 @@
+package game.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+import game.engine.Phase;
+import game.helpers.Card;
+import game.helpers.Character;
+import game.helpers.Revenue;
+import game.helpers.charMove.CharMove;
+import game.helpers.charMove.DiefMove;
+import game.helpers.charMove.KoningMove;
+import game.helpers.charMove.MagierMove;
+import game.helpers.charMove.MoordenaarMove;
+import game.player.GameDelta;
+
+/**
+ * The encoder of the binary game protocol. A frame consists of the protocol version, the code of
+ * its opcode and a payload. All integers in the payload are unsigned varints: seven bits per byte,
+ * least significant group first, with the high bit set on all bytes but the last. Characters are
+ * encoded by their number, cards by their instance id, sets of characters as a bitmask of their
+ * numbers and sets of cards as their size followed by the ids.
+ *
+ * The frames are encoded into buffers of a pool. A returned buffer is ready to be sent and should
+ * be released to the pool of this encoder when it has been sent. The websocket library copies the
+ * payload into its own frame, so the buffer can be released as soon as send() has returned.
+ */
+public class ProtocolEncoder {
+	
+	/**
+	 * Create a new encoder, using a new pool of buffers of BUFFER_SIZE bytes.
+	 */
+	public ProtocolEncoder() {
+		this(new BufferPool(ProtocolEncoder.BUFFER_SIZE, 256));
+	}
+	
+	/**
+	 * Create a new encoder, using the given pool of buffers.
+	 * 
+	 * @param pool	The pool the frames are encoded into.
+	 */
+	public ProtocolEncoder(BufferPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * The version of the protocol, which is the first byte of every frame.
+	 */
+	public static final byte VERSION = 1;
+	
+	/**
+	 * The size of the pooled buffers, which is large enough for every frame of a game with seven
+	 * players and 128 cards.
+	 */
+	public static final int BUFFER_SIZE = 4096;
+	
+	private final BufferPool pool;
+	
+	public BufferPool getPool() {
+		return this.pool;
+	}
+	
+	/**
+	 * Return the given frame to the pool of this encoder.
+	 * 
+	 * @param frame	A frame encoded by this encoder, that has been sent.
+	 */
+	public void release(ByteBuffer frame) {
+		this.pool.release(frame);
+	}
+	
+	/**
+	 * This method returns a pooled buffer containing the header of a frame of the given type. The
+	 * payload can be appended with the put methods, after which the buffer has to be flipped.
+	 * 
+	 * @param opcode	The type of the frame.
+	 * 
+	 * @return			A buffer positioned after the header.
+	 */
+	public ByteBuffer beginFrame(Opcode opcode) {
+		ByteBuffer buffer = this.pool.acquire();
+		buffer.put(ProtocolEncoder.VERSION);
+		buffer.put(opcode.code);
+		return buffer;
+	}
+	
+	private ByteBuffer encodeNumber(Opcode opcode, int number) {
+		ByteBuffer buffer = this.beginFrame(opcode);
+		ProtocolEncoder.putVarInt(buffer, number);
+		buffer.flip();
+		return buffer;
+	}
+	
+	private ByteBuffer encodeCharacter(Opcode opcode, Character character) {
+		ByteBuffer buffer = this.beginFrame(opcode);
+		ProtocolEncoder.putCharacter(buffer, character);
+		buffer.flip();
+		return buffer;
+	}
+	
+	private ByteBuffer encodeCharacters(Opcode opcode, Set<Character> characters) {
+		ByteBuffer buffer = this.beginFrame(opcode);
+		ProtocolEncoder.putCharacters(buffer, characters);
+		buffer.flip();
+		return buffer;
+	}
+	
+	private ByteBuffer encodeCards(Opcode opcode, Set<Card> cards) {
+		ByteBuffer buffer = this.beginFrame(opcode);
+		ProtocolEncoder.putCards(buffer, cards);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeNumberPlayers(int numberPlayers) {
+		return this.encodeNumber(Opcode.NUMBER_PLAYERS, numberPlayers);
+	}
+	
+	public ByteBuffer encodePlayerNumber(int number) {
+		return this.encodeNumber(Opcode.PLAYER_NUMBER, number);
+	}
+	
+	public ByteBuffer encodeKing(int number) {
+		return this.encodeNumber(Opcode.KING, number);
+	}
+	
+	public ByteBuffer encodeOpenChars(Set<Character> characters) {
+		return this.encodeCharacters(Opcode.OPEN_CHARS, characters);
+	}
+	
+	public ByteBuffer encodeKingChar(Character character) {
+		return this.encodeCharacter(Opcode.KING_CHAR, character);
+	}
+	
+	public ByteBuffer encodeCharsToChoose(Set<Character> characters) {
+		return this.encodeCharacters(Opcode.CHARS_TO_CHOOSE, characters);
+	}
+	
+	public ByteBuffer encodeActiveChar(Character character, int playerNumber) {
+		ByteBuffer buffer = this.beginFrame(Opcode.ACTIVE_CHAR);
+		ProtocolEncoder.putCharacter(buffer, character);
+		ProtocolEncoder.putVarInt(buffer, playerNumber);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeKilledChar(Character killedChar) {
+		return this.encodeCharacter(Opcode.KILLED_CHAR, killedChar);
+	}
+	
+	public ByteBuffer encodeStolen(Character stolenChar, int thiefPlayer) {
+		ByteBuffer buffer = this.beginFrame(Opcode.STOLEN_CHAR);
+		ProtocolEncoder.putCharacter(buffer, stolenChar);
+		ProtocolEncoder.putVarInt(buffer, thiefPlayer);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeStolen(int stolenPlayer, int thiefPlayer) {
+		ByteBuffer buffer = this.beginFrame(Opcode.STOLEN_PLAYER);
+		ProtocolEncoder.putVarInt(buffer, stolenPlayer);
+		ProtocolEncoder.putVarInt(buffer, thiefPlayer);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeCoins(int playerNumber, int coins) {
+		ByteBuffer buffer = this.beginFrame(Opcode.COINS);
+		ProtocolEncoder.putVarInt(buffer, playerNumber);
+		ProtocolEncoder.putVarInt(buffer, coins);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeCharMove(int activePlayer, CharMove charMove) {
+		ByteBuffer buffer = this.beginFrame(Opcode.CHAR_MOVE);
+		ProtocolEncoder.putVarInt(buffer, activePlayer);
+		ProtocolEncoder.putCharMove(buffer, charMove);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeCardsToChoose(Set<Card> cards) {
+		return this.encodeCards(Opcode.CARDS_TO_CHOOSE, cards);
+	}
+	
+	public ByteBuffer encodeNumberCards(int playerNumber, int numberCards) {
+		ByteBuffer buffer = this.beginFrame(Opcode.NUMBER_CARDS);
+		ProtocolEncoder.putVarInt(buffer, playerNumber);
+		ProtocolEncoder.putVarInt(buffer, numberCards);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeCards(Set<Card> cards) {
+		return this.encodeCards(Opcode.CARDS, cards);
+	}
+	
+	public ByteBuffer encodeCity(int playerNumber, Set<Card> cards) {
+		ByteBuffer buffer = this.beginFrame(Opcode.CITY);
+		ProtocolEncoder.putVarInt(buffer, playerNumber);
+		ProtocolEncoder.putCards(buffer, cards);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodePoints(Map<Integer, Integer> points) {
+		ByteBuffer buffer = this.beginFrame(Opcode.POINTS);
+		ProtocolEncoder.putVarInt(buffer, points.size());
+		for (Map.Entry<Integer, Integer> entry : points.entrySet()) {
+			ProtocolEncoder.putVarInt(buffer, entry.getKey());
+			ProtocolEncoder.putVarInt(buffer, entry.getValue());
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	public ByteBuffer encodeWinner(int playerNumber) {
+		return this.encodeNumber(Opcode.WINNER, playerNumber);
+	}
+	
+	/**
+	 * This method encodes the given delta. The payload starts with a bitmask of the events in the
+	 * delta (killed character, stolen character, character move, active character, stolen player
+	 * and hand), followed by these events and by the changed coins, number of cards and cities,
+	 * each as a count followed by pairs of a player number and a value.
+	 * 
+	 * @param delta	The delta to be encoded.
+	 * 
+	 * @return		A frame containing the delta.
+	 */
+	public ByteBuffer encodeDelta(GameDelta delta) {
+		ByteBuffer buffer = this.beginFrame(Opcode.DELTA);
+		int events = 0;
+		if (delta.getKilledChar() != null) {
+			events |= ProtocolEncoder.DELTA_KILLED_CHAR;
+		}
+		if (delta.getStolenChar() != null) {
+			events |= ProtocolEncoder.DELTA_STOLEN_CHAR;
+		}
+		if (delta.getCharMove() != null) {
+			events |= ProtocolEncoder.DELTA_CHAR_MOVE;
+		}
+		if (delta.getActiveChar() != null) {
+			events |= ProtocolEncoder.DELTA_ACTIVE_CHAR;
+		}
+		if (delta.getStolenPlayer() >= 0) {
+			events |= ProtocolEncoder.DELTA_STOLEN_PLAYER;
+		}
+		if (delta.getCards() != null) {
+			events |= ProtocolEncoder.DELTA_CARDS;
+		}
+		ProtocolEncoder.putVarInt(buffer, events);
+		ProtocolEncoder.putVarInt(buffer, delta.getNumberPlayers());
+		if (delta.getKilledChar() != null) {
+			ProtocolEncoder.putCharacter(buffer, delta.getKilledChar());
+		}
+		if (delta.getStolenChar() != null) {
+			ProtocolEncoder.putCharacter(buffer, delta.getStolenChar());
+			ProtocolEncoder.putVarInt(buffer, delta.getStolenCharThief());
+		}
+		if (delta.getCharMove() != null) {
+			ProtocolEncoder.putVarInt(buffer, delta.getCharMovePlayer());
+			ProtocolEncoder.putCharMove(buffer, delta.getCharMove());
+		}
+		if (delta.getActiveChar() != null) {
+			ProtocolEncoder.putCharacter(buffer, delta.getActiveChar());
+			ProtocolEncoder.putVarInt(buffer, delta.getActivePlayer());
+		}
+		if (delta.getStolenPlayer() >= 0) {
+			ProtocolEncoder.putVarInt(buffer, delta.getStolenPlayer());
+			ProtocolEncoder.putVarInt(buffer, delta.getThiefPlayer());
+		}
+		if (delta.getCards() != null) {
+			ProtocolEncoder.putCards(buffer, delta.getCards());
+		}
+		int numberPlayers = delta.getNumberPlayers();
+		int changed = 0;
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getCoins(i) >= 0) {
+				changed ++;
+			}
+		}
+		ProtocolEncoder.putVarInt(buffer, changed);
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getCoins(i) >= 0) {
+				ProtocolEncoder.putVarInt(buffer, i);
+				ProtocolEncoder.putVarInt(buffer, delta.getCoins(i));
+			}
+		}
+		changed = 0;
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getNumberCards(i) >= 0) {
+				changed ++;
+			}
+		}
+		ProtocolEncoder.putVarInt(buffer, changed);
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getNumberCards(i) >= 0) {
+				ProtocolEncoder.putVarInt(buffer, i);
+				ProtocolEncoder.putVarInt(buffer, delta.getNumberCards(i));
+			}
+		}
+		changed = 0;
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getCity(i) != null) {
+				changed ++;
+			}
+		}
+		ProtocolEncoder.putVarInt(buffer, changed);
+		for (int i = 0; i < numberPlayers; i++) {
+			if (delta.getCity(i) != null) {
+				ProtocolEncoder.putVarInt(buffer, i);
+				ProtocolEncoder.putCards(buffer, delta.getCity(i));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	static final int DELTA_KILLED_CHAR = 1;
+	
+	static final int DELTA_STOLEN_CHAR = 2;
+	
+	static final int DELTA_CHAR_MOVE = 4;
+	
+	static final int DELTA_ACTIVE_CHAR = 8;
+	
+	static final int DELTA_STOLEN_PLAYER = 16;
+	
+	static final int DELTA_CARDS = 32;
+	
+	/**
+	 * This method encodes a frame telling a player that the engine waits for his input in the
+	 * given phase.
+	 * 
+	 * @param phase	The phase of the engine.
+	 * 
+	 * @return		A frame containing the awaited phase.
+	 */
+	public ByteBuffer encodeAwait(Phase phase) {
+		return this.encodeNumber(Opcode.AWAIT, phase.ordinal());
+	}
+	
+	/**
+	 * This method encodes a request of a player to join the given table as the given player.
+	 * 
+	 * @param tableId		The number of the table.
+	 * @param playerNumber	The number of the player at the table.
+	 * @param token			The token of the seat of the player, issued when the table was opened.
+	 * 
+	 * @return				A frame containing the request.
+	 */
+	public ByteBuffer encodeJoin(int tableId, int playerNumber, long token) {
+		ByteBuffer buffer = this.beginFrame(Opcode.JOIN);
+		ProtocolEncoder.putVarInt(buffer, tableId);
+		ProtocolEncoder.putVarInt(buffer, playerNumber);
+		buffer.putLong(token);
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * This method encodes an input of a player for the engine: a character to choose or to put
+	 * away, a character move, a revenue or a set of cards to keep or to build.
+	 * 
+	 * @param phase	The phase the input is meant for.
+	 * @param input	The input of the player.
+	 * 
+	 * @return		A frame containing the input.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			If the given input does not belong to the given phase.
+	 */
+	@SuppressWarnings("unchecked")
+	public ByteBuffer encodeInput(Phase phase, Object input) {
+		ByteBuffer buffer;
+		switch (phase) {
+		case CHOOSE_CHAR:
+			return this.encodeCharacter(Opcode.CHOSEN_CHAR, (Character) input);
+		case PUT_AWAY_CHAR:
+			return this.encodeCharacter(Opcode.PUT_AWAY_CHAR, (Character) input);
+		case CHAR_MOVE:
+			buffer = this.beginFrame(Opcode.PLAY_CHAR_MOVE);
+			ProtocolEncoder.putCharMove(buffer, (CharMove) input);
+			buffer.flip();
+			return buffer;
+		case REVENUE:
+			buffer = this.beginFrame(Opcode.REVENUE);
+			buffer.put((byte) (((Revenue) input).isCoins() ? 1 : 0));
+			buffer.flip();
+			return buffer;
+		case CHOOSE_CARDS:
+			return this.encodeCards(Opcode.CHOSEN_CARDS, (Set<Card>) input);
+		case BUILD:
+			return this.encodeCards(Opcode.BUILD, (Set<Card>) input);
+		default:
+			throw new IllegalArgumentException("No input expected in phase ".concat(phase.name()));
+		}
+	}
+	
+	/**
+	 * Append the given integer as an unsigned varint to the given buffer.
+	 * 
+	 * @param buffer	The buffer to be written.
+	 * @param value		A positive integer.
+	 */
+	public static void putVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	/**
+	 * Append the given character as its number to the given buffer. The null object is encoded as
+	 * zero.
+	 */
+	public static void putCharacter(ByteBuffer buffer, Character character) {
+		if (character == null) {
+			buffer.put((byte) 0);
+		}
+		else {
+			buffer.put((byte) character.number);
+		}
+	}
+	
+	/**
+	 * Append the given set of characters as a bitmask of their numbers to the given buffer.
+	 */
+	public static void putCharacters(ByteBuffer buffer, Set<Character> characters) {
+		int mask = 0;
+		for (Character character : characters) {
+			mask |= 1 << character.number;
+		}
+		ProtocolEncoder.putVarInt(buffer, mask);
+	}
+	
+	/**
+	 * Append the given set of cards as its size followed by the instance ids of the cards to the
+	 * given buffer.
+	 */
+	public static void putCards(ByteBuffer buffer, Set<Card> cards) {
+		ProtocolEncoder.putVarInt(buffer, cards.size());
+		for (Card card : cards) {
+			ProtocolEncoder.putVarInt(buffer, card.id);
+		}
+	}
+	
+	/**
+	 * Append the given character move to the given buffer: the number of its character, zero for a
+	 * NoMove, followed by the arguments of the move.
+	 */
+	public static void putCharMove(ByteBuffer buffer, CharMove move) {
+		ProtocolEncoder.putCharacter(buffer, move.type);
+		if (move.type == null) {
+			return;
+		}
+		switch (move.type) {
+		case MOORDENAAR:
+			ProtocolEncoder.putCharacter(buffer, ((MoordenaarMove) move).getKilledChar());
+			break;
+		case DIEF:
+			ProtocolEncoder.putCharacter(buffer, ((DiefMove) move).getStolenChar());
+			break;
+		case MAGIER:
+			MagierMove magierMove = (MagierMove) move;
+			buffer.put((byte) (magierMove.isOtherPlayer() ? 1 : 0));
+			if (magierMove.isOtherPlayer()) {
+				ProtocolEncoder.putVarInt(buffer, magierMove.getOtherPlayerNumber());
+			}
+			else {
+				ProtocolEncoder.putCards(buffer, magierMove.getCards());
+			}
+			break;
+		case KONING:
+			ProtocolEncoder.putCards(buffer, ((KoningMove) move).getCoinBuildings());
+			break;
+		default:
+			throw new IllegalArgumentException("Character move cannot be encoded: ".concat(move.type.name));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package game.simulation;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.engine.Engine;
+import game.engine.Phase;
+import game.player.BotPlayer;
+import game.player.Player;
+
+/**
+ * The simulator plays complete games between bot players, without any I/O. It can be used for
+ * load testing, regression testing of the rules and balance analysis.
+ * 
+ * Usage: Simulator [numberGames] [numberPlayers] [numberThreads] [maxRounds]
+ */
+public class Simulator {
+	
+	/**
+	 * Create a new simulator.
+	 * 
+	 * @param numberPlayers	An integer representing the number of bots in each game.
+	 * @param maxRounds		The maximum number of rounds of a game. A game that has not ended after
+	 * 						this number of rounds is aborted.
+	 */
+	public Simulator(int numberPlayers, int maxRounds) {
+		this.numberPlayers = numberPlayers;
+		this.maxRounds = maxRounds;
+	}
+	
+	public final int numberPlayers;
+	
+	public final int maxRounds;
+	
+	/**
+	 * Play one complete game between bot players.
+	 * 
+	 * @param random	The random generator used by the bots of this game.
+	 * 
+	 * @return			A boolean stating if the game has ended normally, false if it was aborted
+	 * 					after the maximum number of rounds.
+	 */
+	public boolean playGame(Random random) {
+		Set<Player> players = new HashSet<Player>(this.numberPlayers);
+		for (int i = 0; i < this.numberPlayers; i++) {
+			players.add(new BotPlayer(random));
+		}
+		Engine engine = new Engine(players, null, null);
+		engine.begin();
+		while ((engine.getPhase() != Phase.ENDED) && (engine.getRound() <= this.maxRounds)) {
+			engine.step();
+		}
+		return engine.getPhase() == Phase.ENDED;
+	}
+	
+	/**
+	 * Play the given number of games and return the number of games that have ended normally.
+	 * 
+	 * @param numberGames	The number of games to be played.
+	 * @param random		The random generator used by the bots.
+	 * 
+	 * @return				The number of games that have ended normally.
+	 */
+	public int playGames(int numberGames, Random random) {
+		int ended = 0;
+		for (int i = 0; i < numberGames; i++) {
+			if (this.playGame(random)) {
+				ended ++;
+			}
+		}
+		return ended;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numberGames = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int numberPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int numberThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int maxRounds = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+		Simulator simulator = new Simulator(numberPlayers, maxRounds);
+		ExecutorService executor = Executors.newFixedThreadPool(numberThreads);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>(numberThreads);
+		long start = System.nanoTime();
+		for (int i = 0; i < numberThreads; i++) {
+			int games = numberGames / numberThreads + ((i < numberGames % numberThreads) ? 1 : 0);
+			long seed = i;
+			results.add(executor.submit(() -> simulator.playGames(games, new Random(seed))));
+		}
+		int ended = 0;
+		try {
+			for (Future<Integer> result : results) {
+				ended += result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+		double seconds = elapsed / 1e9;
+		System.out.println("Games played: ".concat(Integer.toString(numberGames)));
+		System.out.println("Games ended: ".concat(Integer.toString(ended)));
+		System.out.println("Time: ".concat(String.format("%.3f s", seconds)));
+		System.out.println("Throughput: ".concat(String.format("%.1f games/s", numberGames / seconds)));
+	}
+}
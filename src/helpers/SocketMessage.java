@@ -1,5 +1,7 @@
 package helpers;
 
+import java.nio.ByteBuffer;
+
 import org.java_websocket.WebSocket;
 
 import helpers.Server;
@@ -10,6 +12,26 @@ public class SocketMessage {
 		this.sock = sock;
 		this.message = message;
 		this.server = server;
+		this.data = null;
+	}
+	
+	/**
+	 * Create a message for a binary frame. The message field of a binary message is the null
+	 * object.
+	 * 
+	 * @param sock		The connection the frame was received on.
+	 * @param data		The payload of the frame.
+	 * @param server	The server that received the frame.
+	 */
+	public SocketMessage(WebSocket sock, ByteBuffer data, Server server) {
+		this.sock = sock;
+		this.message = null;
+		this.server = server;
+		this.data = data;
+	}
+	
+	public boolean isBinary() {
+		return this.data != null;
 	}
 	
 	public final WebSocket sock;
@@ -17,4 +39,6 @@ public class SocketMessage {
 	public final String message;
 	
 	public final Server server;
+	
+	public final ByteBuffer data;
 }
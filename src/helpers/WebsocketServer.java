@@ -7,8 +7,9 @@ import org.java_websocket.server.WebSocketServer;
 import helpers.Server;
 
 import java.net.InetSocketAddress;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class WebsocketServer extends WebSocketServer {
@@ -23,7 +24,7 @@ public class WebsocketServer extends WebSocketServer {
 
     public WebsocketServer(int port, Function<SocketMessage, Void> responder, Function<SocketMessage, Void> closer, Server server) {
         super(new InetSocketAddress(port));
-        this.conns = new HashSet<>();
+        this.conns = ConcurrentHashMap.newKeySet();
         this.responder = responder;
         this.server = server;
         this.closer = closer;
@@ -47,6 +48,11 @@ public class WebsocketServer extends WebSocketServer {
 		this.responder.apply(new SocketMessage(conn, message, this.server));
     }
 
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+		this.responder.apply(new SocketMessage(conn, message, this.server));
+    }
+
     @Override
     public void onError(WebSocket conn, Exception ex) {
         ex.printStackTrace();
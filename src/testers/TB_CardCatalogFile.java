@@ -0,0 +1,35 @@
+package testers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import game.cards.CardCatalog;
+import game.cards.CardCatalogFile;
+import game.cards.CardsParser;
+import game.helpers.Card;
+
+public class TB_CardCatalogFile {
+	
+	public static void main(String[] args) throws Exception {
+		CardCatalog catalog = new CardsParser("src/game/cards/db_cards.txt").getCatalog();
+		Path path = Files.createTempFile("db_cards", CardCatalogFile.EXTENSION);
+		CardCatalogFile.write(catalog, path);
+		System.out.println("File size: ".concat(Long.toString(Files.size(path))).concat(" bytes"));
+		CardCatalog loaded = CardCatalogFile.read(path);
+		long start = System.nanoTime();
+		for (int i = 0; i < 1000; i++) {
+			loaded = CardCatalogFile.read(path);
+		}
+		long time = (System.nanoTime() - start) / 1000;
+		boolean identical = loaded.getNumberCards() == catalog.getNumberCards();
+		for (int id = 0; identical && (id < catalog.getNumberCards()); id++) {
+			Card card = catalog.getCard(id);
+			Card other = loaded.getCard(id);
+			identical = card.name.equals(other.name) && card.text.equals(other.text) && (card.cost == other.cost) && (card.points == other.points) && (card.color == other.color) && (card.typeId == other.typeId);
+		}
+		System.out.println("Catalog identical: ".concat(Boolean.toString(identical)));
+		System.out.println("Load time: ".concat(Long.toString(time / 1000)).concat(" us"));
+		Files.delete(path);
+	}
+
+}
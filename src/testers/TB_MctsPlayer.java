@@ -0,0 +1,74 @@
+package testers;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import game.engine.Engine;
+import game.engine.GameState;
+import game.player.BotPlayer;
+import game.player.MctsPlayer;
+import game.player.Player;
+
+public class TB_MctsPlayer {
+	
+	public static void main(String[] args) {
+		System.out.println("Test the MCTS player against bots:");
+		int numberGames = 6;
+		int rounds = 6;
+		long budgetMillis = 20;
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		long mctsPoints = 0;
+		long botPoints = 0;
+		int wins = 0;
+		long maxLatency = 0;
+		int decisions = 0;
+		int lateDecisions = 0;
+		for (int g = 0; g < numberGames; g++) {
+			Random random = new Random(g);
+			MctsPlayer mcts = new MctsPlayer(pool, budgetMillis, g);
+			Set<Player> players = new HashSet<Player>(4);
+			players.add(mcts);
+			for (int i = 0; i < 3; i++) {
+				players.add(new BotPlayer(random));
+			}
+			Engine engine = new Engine(players, null, null, g);
+			mcts.setEngine(engine);
+			engine.begin();
+			while (engine.getRound() <= rounds) {
+				boolean asked = engine.getAwaitedPlayer() == mcts.getPlayerNumber();
+				long start = System.nanoTime();
+				engine.step();
+				if (asked) {
+					long latency = System.nanoTime() - start;
+					maxLatency = Math.max(maxLatency, latency);
+					decisions ++;
+					if (latency > budgetMillis * 1000000) {
+						lateDecisions ++;
+					}
+				}
+			}
+			GameState state = engine.getState(0);
+			int best = 0;
+			for (int i = 0; i < engine.getNumberPlayers(); i++) {
+				if (i == mcts.getPlayerNumber()) {
+					mctsPoints += state.getCityPoints(i);
+				} else {
+					botPoints += state.getCityPoints(i);
+					best = Math.max(best, state.getCityPoints(i));
+				}
+			}
+			if (state.getCityPoints(mcts.getPlayerNumber()) > best) {
+				wins ++;
+			}
+		}
+		pool.shutdown();
+		System.out.println("Average city points of the MCTS player: ".concat(Double.toString((double) mctsPoints / numberGames)));
+		System.out.println("Average city points of a bot: ".concat(Double.toString((double) botPoints / (3 * numberGames))));
+		System.out.println("Games led by the MCTS player: ".concat(Integer.toString(wins)).concat(" of ").concat(Integer.toString(numberGames)));
+		System.out.println("Decisions: ".concat(Integer.toString(decisions)));
+		System.out.println("Decisions over the budget of ".concat(Long.toString(budgetMillis)).concat(" ms: ").concat(Integer.toString(lateDecisions)));
+		System.out.println("Maximum decision time: ".concat(Long.toString(maxLatency / 1000000)).concat(" ms, budget ").concat(Long.toString(budgetMillis)).concat(" ms"));
+	}
+}
@@ -0,0 +1,82 @@
+package testers;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import game.engine.Engine;
+import game.engine.GameRecord;
+import game.engine.GameReplay;
+import game.helpers.Character;
+import game.player.BotPlayer;
+import game.player.Player;
+
+public class TB_Replay {
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("Test replay of a recorded game:");
+		Engine engine = TB_Replay.play(1234, 20);
+		GameRecord record = engine.startRecording();
+		System.out.println("Recorded inputs: ".concat(Integer.toString(record.getNumberInputs())));
+		long start = System.nanoTime();
+		Engine replay = record.replay();
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Replay identical: ".concat(Boolean.toString(TB_Replay.isIdentical(replay, engine))));
+		System.out.println("Replay time: ".concat(Long.toString(elapsed / 1000)).concat(" us"));
+		
+		System.out.println("Test seeking in a replay:");
+		GameReplay gameReplay = new GameReplay(record);
+		int turns = 0;
+		for (Character character : Character.values()) {
+			if (gameReplay.seekTurn(10, character) && (gameReplay.getEngine().getActiveChar() == character)) {
+				turns ++;
+			}
+		}
+		System.out.println("Turns reached in round 10: ".concat(Integer.toString(turns)));
+		gameReplay.seekRound(3);
+		System.out.println("Round 3 reached: ".concat(Boolean.toString(gameReplay.getEngine().getRound() == 3)).concat(", input ").concat(Integer.toString(gameReplay.getPosition())));
+		gameReplay.runToEnd();
+		System.out.println("Replay identical after seeking: ".concat(Boolean.toString(TB_Replay.isIdentical(gameReplay.getEngine(), engine))));
+		
+		System.out.println("Test bulk verification of recorded games:");
+		int numberGames = 2000;
+		Map<Long, GameRecord> games = new LinkedHashMap<Long, GameRecord>(numberGames);
+		for (int i = 0; i < numberGames; i++) {
+			games.put((long) i, TB_Replay.play(i, 20).startRecording());
+		}
+		GameReplay.verifyAll(games, Runtime.getRuntime().availableProcessors());
+		start = System.nanoTime();
+		Map<Long, Integer> rejected = GameReplay.verifyAll(games, Runtime.getRuntime().availableProcessors());
+		elapsed = System.nanoTime() - start;
+		System.out.println("Rejected games: ".concat(Integer.toString(rejected.size())));
+		System.out.println("Games per second: ".concat(Long.toString(numberGames * 1000000000L / elapsed)));
+	}
+	
+	/**
+	 * Play a recorded game with bots for the given number of rounds.
+	 */
+	private static Engine play(long seed, int rounds) {
+		Set<Player> players = new HashSet<Player>(4);
+		Random random = new Random(seed);
+		for (int i = 0; i < 4; i++) {
+			players.add(new BotPlayer(random));
+		}
+		Engine engine = new Engine(players, null, null, seed);
+		engine.startRecording();
+		engine.begin();
+		while (engine.getRound() <= rounds) {
+			engine.step();
+		}
+		return engine;
+	}
+	
+	private static boolean isIdentical(Engine replay, Engine engine) {
+		boolean identical = (replay.getRound() == engine.getRound()) && (replay.getPhase() == engine.getPhase());
+		for (int i = 0; i < engine.getNumberPlayers(); i++) {
+			identical = identical && replay.getCards(i).equals(engine.getCards(i));
+		}
+		return identical;
+	}
+}
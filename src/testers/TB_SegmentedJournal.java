@@ -0,0 +1,76 @@
+package testers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import game.engine.Engine;
+import game.engine.GameRecord;
+import game.journal.GameJournal;
+import game.journal.SegmentedJournalStorage;
+import game.player.BotPlayer;
+import game.player.Player;
+
+public class TB_SegmentedJournal {
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.out.println("Test compaction of one full segment:");
+		Path directory = Files.createTempDirectory("journal");
+		SegmentedJournalStorage storage = new SegmentedJournalStorage(directory, 2 << 20);
+		GameJournal journal = new GameJournal(storage);
+		Engine playing = TB_SegmentedJournal.newEngine(2);
+		long playingId = journal.startGame(playing);
+		playing.begin();
+		Engine finished = TB_SegmentedJournal.newEngine(1);
+		long finishedId = journal.startGame(finished);
+		finished.begin();
+		for (int i = 0; i < 100; i++) {
+			finished.step();
+		}
+		storage.append(GameJournal.END, finishedId, ByteBuffer.allocate(0));
+		int numberInputs = 0;
+		while (storage.getNumberSegments() < 2) {
+			playing.step();
+			numberInputs ++;
+		}
+		Files.createFile(directory.resolve("segment-0000000000000001.seg.tmp"));
+		storage.compact();
+		storage.compact();
+		System.out.println("Segments after compaction: ".concat(Integer.toString(storage.getNumberSegments())));
+		System.out.println("Temporary files left: ".concat(Long.toString(TB_SegmentedJournal.countTemporary(directory))));
+		Map<Long, GameRecord> archive = storage.readArchive();
+		System.out.println("Archived game: ".concat(Boolean.toString(archive.containsKey(finishedId) && (archive.get(finishedId).getNumberInputs() == 100))));
+		journal.close();
+		
+		System.out.println("Test recovery after compaction:");
+		storage = new SegmentedJournalStorage(directory, 2 << 20);
+		journal = new GameJournal(storage);
+		GameRecord recovered = journal.getUnfinishedGames().get(playingId);
+		System.out.println("Unfinished game recovered: ".concat(Boolean.toString((recovered != null) && (recovered.getNumberInputs() == numberInputs))));
+		long newId = journal.startGame(TB_SegmentedJournal.newEngine(3));
+		System.out.println("New game id after archived games: ".concat(Boolean.toString((newId > finishedId) && (newId > playingId))));
+		journal.close();
+	}
+	
+	private static Engine newEngine(long seed) {
+		Set<Player> players = new HashSet<Player>(4);
+		Random random = new Random(seed);
+		for (int i = 0; i < 4; i++) {
+			players.add(new BotPlayer(random));
+		}
+		return new Engine(players, null, null, seed);
+	}
+	
+	private static long countTemporary(Path directory) throws IOException {
+		long result = 0;
+		for (Path file : Files.newDirectoryStream(directory, "*.tmp")) {
+			result ++;
+		}
+		return result;
+	}
+}
@@ -13,6 +13,7 @@ import game.helpers.Card;
 import game.helpers.Character;
 import game.helpers.Revenue;
 import game.helpers.charMove.CharMove;
+import game.helpers.charMove.NoMove;
 
 public class TestPlayer implements Player {
 	
@@ -152,6 +153,16 @@ public class TestPlayer implements Player {
 		this.printMessage("active character: ".concat(character.toString()).concat(", player: ").concat(Integer.toString(playerNumber)));
 	}
 
+	@Override
+	public void setKilledChar(Character killedChar) {
+		this.printMessage("killed character: ".concat(killedChar.toString()));
+	}
+
+	@Override
+	public void setStolen(Character stolenChar, int thiefPlayer) {
+		this.printMessage("character to steal: ".concat(stolenChar.toString()).concat(" by ").concat(Integer.toString(thiefPlayer)));
+	}
+
 	@Override
 	public void setStolen(int stolenPlayer, int thiefPlayer) {
 		this.printMessage("stolen: ".concat(Integer.toString(thiefPlayer)).concat(" from ").concat(Integer.toString(stolenPlayer)));
@@ -228,8 +239,7 @@ public class TestPlayer implements Player {
 
 	@Override
 	public CharMove getCharMove() {
-		// TODO Auto-generated method stub
-		return null;
+		return new NoMove();
 	}
 
 	@Override